@@ -0,0 +1,105 @@
+package com.marceldev.ourcompanylunch.serializer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON(the former path: ObjectMapper.writeValueAsString then StringSerializer) against
+ * MessageCommentWriteV2Codec. Run with ./gradlew jmh. Bytes on the wire are printed at setup, as a
+ * record batch of BATCH_SIZE messages per compression type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCommentWriteV2Benchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  @Param({"1", "20", "1000"})
+  private int receiverCount;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private MessageCommentWriteV2 message;
+
+  private byte[] json;
+
+  private byte[] binary;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    long[] receiverIds = new long[receiverCount];
+    for (int i = 0; i < receiverCount; i++) {
+      receiverIds[i] = 100_000L + i * 13L;
+    }
+    message = MessageCommentWriteV2.builder()
+        .commentId(1_234_567L)
+        .senderId(100_042L)
+        .dinerId(3_021L)
+        .senderName("Jack")
+        .dinerName("HotTaco")
+        .content("Tacos were great today. The line was short around 11:40, try it before noon.")
+        .receiverIds(receiverIds)
+        .chunkIndex(0)
+        .chunkCount(1)
+        .build();
+    json = objectMapper.writeValueAsString(message).getBytes(StandardCharsets.UTF_8);
+    binary = MessageCommentWriteV2Codec.encode(message);
+
+    System.out.printf("%nreceivers=%d message bytes: json=%d binary=%d%n",
+        receiverCount, json.length, binary.length);
+    for (CompressionType type : new CompressionType[]{CompressionType.NONE, CompressionType.LZ4,
+        CompressionType.ZSTD}) {
+      System.out.printf("receivers=%d batch of %d, %s: json=%d binary=%d%n", receiverCount,
+          BATCH_SIZE, type.name, batchBytes(type, json), batchBytes(type, binary));
+    }
+  }
+
+  @Benchmark
+  public byte[] serializeJson() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(message).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] serializeBinary() {
+    return MessageCommentWriteV2Codec.encode(message);
+  }
+
+  @Benchmark
+  public MessageCommentWriteV2 deserializeJson() throws Exception {
+    return objectMapper.readValue(json, MessageCommentWriteV2.class);
+  }
+
+  @Benchmark
+  public MessageCommentWriteV2 deserializeBinary() {
+    return MessageCommentWriteV2Codec.decode(binary);
+  }
+
+  private static int batchBytes(CompressionType type, byte[] value) {
+    SimpleRecord[] records = new SimpleRecord[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      records[i] = new SimpleRecord("3021".getBytes(StandardCharsets.UTF_8), value);
+    }
+    return MemoryRecords.withRecords(type, records).sizeInBytes();
+  }
+}
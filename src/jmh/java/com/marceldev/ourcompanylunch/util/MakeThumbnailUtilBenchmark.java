@@ -0,0 +1,81 @@
+package com.marceldev.ourcompanylunch.util;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The former getScaledInstance resize against MakeThumbnailUtil.resizeImage, on the decoded test
+ * images. Run with ./gradlew jmh. Allocation per op is reported by the gc profiler, and the
+ * encoded thumbnail sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeThumbnailUtilBenchmark {
+
+  private static final int FIXED_WIDTH = 300;
+
+  @Param({"food.jpg", "food-salad.png"})
+  private String fileName;
+
+  private String extension;
+
+  private BufferedImage image;
+
+  private int targetWidth;
+
+  private int targetHeight;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName)) {
+      image = ImageIO.read(inputStream);
+    }
+    extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+    targetWidth = Math.min(FIXED_WIDTH, image.getWidth());
+    targetHeight = Math.max(1, targetWidth * image.getHeight() / image.getWidth());
+
+    System.out.printf("%n%s %dx%d -> %dx%d, encoded bytes: getScaledInstance=%d resizeImage=%d%n",
+        fileName, image.getWidth(), image.getHeight(), targetWidth, targetHeight,
+        encodedSize(getScaledInstance()), encodedSize(resizeImage()));
+  }
+
+  @Benchmark
+  public BufferedImage getScaledInstance() {
+    Image resultingImage = image.getScaledInstance(targetWidth, targetHeight, Image.SCALE_DEFAULT);
+    BufferedImage outputImage = new BufferedImage(targetWidth, targetHeight,
+        BufferedImage.TYPE_INT_RGB);
+    outputImage.getGraphics().drawImage(resultingImage, 0, 0, null);
+    return outputImage;
+  }
+
+  @Benchmark
+  public BufferedImage resizeImage() {
+    return MakeThumbnailUtil.resizeImage(image, targetWidth, targetHeight, extension);
+  }
+
+  private int encodedSize(BufferedImage thumbnail) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ImageIO.write(thumbnail, extension, outputStream);
+    return outputStream.size();
+  }
+}
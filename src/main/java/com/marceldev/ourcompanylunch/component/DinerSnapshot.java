@@ -0,0 +1,418 @@
+package com.marceldev.ourcompanylunch.component;
+
+import com.marceldev.ourcompanylunch.dto.common.Cursor;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
+import com.marceldev.ourcompanylunch.dto.diner.DinerListQueryDto;
+import com.marceldev.ourcompanylunch.dto.diner.DinerOutputDto;
+import com.marceldev.ourcompanylunch.dto.diner.DinerTagFacetDto;
+import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
+import com.marceldev.ourcompanylunch.type.DinerSort;
+import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.type.TagMatch;
+import com.marceldev.ourcompanylunch.util.CursorUtil;
+import com.marceldev.ourcompanylunch.util.NgramUtil;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Immutable read model of the diners of a company, kept in arrays indexed by position. Positions
+ * are in id order. The orders of each DinerSort are precomputed as arrays of positions, ascending
+ * by (sort key, id). Each tag and each bigram of the names has a bitset of the positions having
+ * it.
+ */
+public class DinerSnapshot {
+
+  private static final BitSet EMPTY = new BitSet();
+
+  /**
+   * Close to the default collation of DB, which ignores case and accents. Names equal in it are
+   * ordered by id, same as DB.
+   */
+  private static final Collator NAME_COLLATOR = createNameCollator();
+
+  /**
+   * System.nanoTime() when the rows were read from DB.
+   */
+  private final long builtAt;
+
+  private final int size;
+  private final long[] ids;
+  private final String[] names;
+  private final CollationKey[] nameKeys;
+  private final String[] lowerNames;
+  private final String[] links;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final String[][] tags;
+  private final long[] commentCounts;
+  private final double[] distances;
+
+  private final int[] nameOrder;
+  private final int[] commentCountOrder;
+  private final int[] distanceOrder;
+
+  private final Map<String, BitSet> tagIndex;
+
+  /**
+   * Bigram of the lowercase name to the positions having it.
+   */
+  private final Map<String, BitSet> gramIndex;
+  private final int[] nameGramCounts;
+
+  private DinerSnapshot(long builtAt, long[] ids, String[] names, CollationKey[] nameKeys,
+      String[] lowerNames, String[] links, double[] latitudes, double[] longitudes, String[][] tags,
+      long[] commentCounts, double[] distances, int[] nameOrder, int[] commentCountOrder,
+      int[] distanceOrder, Map<String, BitSet> tagIndex, Map<String, BitSet> gramIndex,
+      int[] nameGramCounts) {
+    this.builtAt = builtAt;
+    this.size = ids.length;
+    this.ids = ids;
+    this.names = names;
+    this.nameKeys = nameKeys;
+    this.lowerNames = lowerNames;
+    this.links = links;
+    this.latitudes = latitudes;
+    this.longitudes = longitudes;
+    this.tags = tags;
+    this.commentCounts = commentCounts;
+    this.distances = distances;
+    this.nameOrder = nameOrder;
+    this.commentCountOrder = commentCountOrder;
+    this.distanceOrder = distanceOrder;
+    this.tagIndex = tagIndex;
+    this.gramIndex = gramIndex;
+    this.nameGramCounts = nameGramCounts;
+  }
+
+  public static DinerSnapshot of(List<DinerListQueryDto> diners, long builtAt) {
+    List<DinerListQueryDto> sorted = diners.stream()
+        .sorted(Comparator.comparing(DinerListQueryDto::getId))
+        .toList();
+    int n = sorted.size();
+
+    long[] ids = new long[n];
+    String[] names = new String[n];
+    CollationKey[] nameKeys = new CollationKey[n];
+    String[] lowerNames = new String[n];
+    String[] links = new String[n];
+    double[] latitudes = new double[n];
+    double[] longitudes = new double[n];
+    String[][] tags = new String[n][];
+    long[] commentCounts = new long[n];
+    double[] distances = new double[n];
+    Map<String, BitSet> tagIndex = new HashMap<>();
+    Map<String, BitSet> gramIndex = new HashMap<>();
+    int[] nameGramCounts = new int[n];
+
+    for (int i = 0; i < n; i++) {
+      DinerListQueryDto diner = sorted.get(i);
+      ids[i] = diner.getId();
+      names[i] = diner.getName() != null ? diner.getName() : "";
+      nameKeys[i] = NAME_COLLATOR.getCollationKey(names[i]);
+      lowerNames[i] = names[i].toLowerCase(Locale.ROOT);
+      Set<String> grams = NgramUtil.grams(lowerNames[i]);
+      for (String gram : grams) {
+        gramIndex.computeIfAbsent(gram, key -> new BitSet(n)).set(i);
+      }
+      nameGramCounts[i] = grams.size();
+      links[i] = diner.getLink();
+      latitudes[i] = diner.getLocation().getX();
+      longitudes[i] = diner.getLocation().getY();
+      tags[i] = diner.getTags().toArray(String[]::new);
+      for (String tag : tags[i]) {
+        tagIndex.computeIfAbsent(tag, key -> new BitSet(n)).set(i);
+      }
+      commentCounts[i] = diner.getCommentCount();
+      distances[i] = diner.getDistanceInMeter();
+    }
+
+    return new DinerSnapshot(builtAt, ids, names, nameKeys, lowerNames, links, latitudes,
+        longitudes, tags, commentCounts, distances,
+        sortPositions(n, (a, b) -> nameKeys[a].compareTo(nameKeys[b])),
+        sortPositions(n, (a, b) -> Long.compare(commentCounts[a], commentCounts[b])),
+        sortPositions(n, (a, b) -> Double.compare(distances[a], distances[b])),
+        tagIndex, gramIndex, nameGramCounts);
+  }
+
+  public long getBuiltAt() {
+    return builtAt;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * A copy with the comment count of the diner changed by delta. Only the comment count arrays
+   * are copied. Returns this if the diner isn't in the snapshot.
+   */
+  public DinerSnapshot withCommentCountDelta(long dinerId, long delta) {
+    int position = Arrays.binarySearch(ids, dinerId);
+    if (position < 0) {
+      return this;
+    }
+    long[] counts = commentCounts.clone();
+    counts[position] = Math.max(0, counts[position] + delta);
+
+    return new DinerSnapshot(builtAt, ids, names, nameKeys, lowerNames, links, latitudes,
+        longitudes, tags, counts, distances, nameOrder,
+        sortPositions(size, (a, b) -> Long.compare(counts[a], counts[b])),
+        distanceOrder, tagIndex, gramIndex, nameGramCounts);
+  }
+
+  /**
+   * Count of diners per tag. Most used tags first.
+   */
+  public List<DinerTagFacetDto> getTagFacets() {
+    return tagIndex.entrySet().stream()
+        .map(entry -> new DinerTagFacetDto(entry.getKey(), entry.getValue().cardinality()))
+        .sorted(Comparator.comparing(DinerTagFacetDto::getCount).reversed()
+            .thenComparing(DinerTagFacetDto::getTag))
+        .toList();
+  }
+
+  /**
+   * Same as the offset paging of DB. Filters all rows to count the total.
+   */
+  public Page<DinerOutputDto> getPage(GetDinerListRequest dto) {
+    Query query = prepare(dto);
+    int[] order = query.order();
+    boolean asc = dto.getSortDirection() == SortDirection.ASC;
+
+    long offset = (long) dto.getPage() * dto.getSize();
+    List<DinerOutputDto> content = new ArrayList<>();
+    long total = 0;
+    for (int i = 0; i < order.length; i++) {
+      int position = order[asc ? i : order.length - 1 - i];
+      if (!matches(position, query)) {
+        continue;
+      }
+      if (total >= offset && content.size() < dto.getSize()) {
+        content.add(toDto(position));
+      }
+      total++;
+    }
+    return new PageImpl<>(content, PageRequest.of(dto.getPage(), dto.getSize()), total);
+  }
+
+  /**
+   * Same as the cursor paging of DB. The cursors are compatible.
+   */
+  public CursorSliceResponse<DinerOutputDto> getSlice(GetDinerListRequest dto) {
+    Cursor cursor = CursorUtil.decode(dto.getCursor());
+    DinerSort sort = dto.getSortBy();
+    Query query = prepare(dto);
+    int[] order = query.order();
+    boolean asc = Cursor.readDirection(dto.getSortDirection(), cursor) == SortDirection.ASC;
+    CollationKey cursorName = cursor != null && sort == DinerSort.DINER_NAME
+        ? NAME_COLLATOR.getCollationKey(cursor.getValue()) : null;
+
+    // Read one more row to know if there is more in the read direction.
+    List<Integer> rows = new ArrayList<>();
+    for (int i = 0; i < order.length && rows.size() <= dto.getSize(); i++) {
+      int position = order[asc ? i : order.length - 1 - i];
+      if (matches(position, query)
+          && isAfter(position, sort, query, cursor, cursorName, asc)) {
+        rows.add(position);
+      }
+    }
+
+    return CursorSliceResponse.of(rows, dto.getSize(), cursor,
+            (position, backward) -> CursorUtil.encode(getSortKey(sort, query, position),
+                ids[position], backward))
+        .map(this::toDto);
+  }
+
+  private Query prepare(GetDinerListRequest dto) {
+    String keyword = toLowerKeyword(dto.getKeyword());
+    Set<String> grams = NgramUtil.grams(keyword);
+
+    BitSet filter = getTagFilter(dto.getTags(), dto.getTagMatch());
+    if (!grams.isEmpty()) {
+      filter = intersect(filter, getGramFilter(grams));
+    }
+
+    if (dto.getSortBy() != DinerSort.RELEVANCE) {
+      return new Query(getOrder(dto.getSortBy()), keyword, filter, null);
+    }
+    double[] relevance = new double[size];
+    if (keyword != null) {
+      for (int position = 0; position < size; position++) {
+        relevance[position] = getRelevance(position, keyword, grams.size());
+      }
+    }
+    // Only the candidates are sorted.
+    int[] candidates = filter != null ? filter.stream().toArray() : IntStream.range(0, size)
+        .toArray();
+    int[] order = Arrays.stream(candidates)
+        .boxed()
+        .sorted(Comparator.<Integer>comparingDouble(position -> relevance[position])
+            .thenComparing(Comparator.naturalOrder()))
+        .mapToInt(Integer::intValue)
+        .toArray();
+    return new Query(order, keyword, filter, relevance);
+  }
+
+  private boolean matches(int position, Query query) {
+    return (query.filter() == null || query.filter().get(position))
+        && (query.keyword() == null || lowerNames[position].contains(query.keyword()));
+  }
+
+  /**
+   * 1 if the name starts with the keyword, plus how much of the name the keyword covers. The exact
+   * name scores 2.
+   */
+  private double getRelevance(int position, String lowerKeyword, int keywordGramCount) {
+    if (!lowerNames[position].contains(lowerKeyword)) {
+      return 0;
+    }
+    double prefix = lowerNames[position].startsWith(lowerKeyword) ? 1 : 0;
+    if (nameGramCounts[position] == 0) {
+      return prefix + 1;
+    }
+    return prefix + Math.min(1, (double) keywordGramCount / nameGramCounts[position]);
+  }
+
+  /**
+   * Positions having all or any of the tags. Null if no tag is given, meaning no filtering.
+   */
+  private BitSet getTagFilter(List<String> filterTags, TagMatch tagMatch) {
+    if (filterTags == null || filterTags.isEmpty()) {
+      return null;
+    }
+    boolean any = tagMatch == TagMatch.ANY;
+    BitSet result = null;
+    for (String tag : filterTags) {
+      BitSet positions = tagIndex.getOrDefault(tag, EMPTY);
+      if (result == null) {
+        result = (BitSet) positions.clone();
+      } else if (any) {
+        result.or(positions);
+      } else {
+        result.and(positions);
+      }
+      if (!any && result.isEmpty()) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Positions whose name has every bigram of the keyword. The names still have to contain the
+   * keyword.
+   */
+  private BitSet getGramFilter(Set<String> grams) {
+    BitSet result = null;
+    for (String gram : grams) {
+      result = intersect(result, gramIndex.getOrDefault(gram, EMPTY));
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  private boolean isAfter(int position, DinerSort sort, Query query, Cursor cursor,
+      CollationKey cursorName, boolean asc) {
+    if (cursor == null) {
+      return true;
+    }
+    int compared = switch (sort) {
+      case DINER_NAME -> nameKeys[position].compareTo(cursorName);
+      case COMMENTS_COUNT -> Long.compare(commentCounts[position], cursor.getLongValue());
+      case DISTANCE -> Double.compare(distances[position], cursor.getDoubleValue());
+      case RELEVANCE -> Double.compare(query.relevance()[position], cursor.getDoubleValue());
+    };
+    if (compared == 0) {
+      compared = Long.compare(ids[position], cursor.getId());
+    }
+    return asc ? compared > 0 : compared < 0;
+  }
+
+  private int[] getOrder(DinerSort sort) {
+    return switch (sort) {
+      case DINER_NAME -> nameOrder;
+      case COMMENTS_COUNT -> commentCountOrder;
+      case DISTANCE -> distanceOrder;
+      case RELEVANCE -> throw new IllegalArgumentException("Relevance order depends on keyword");
+    };
+  }
+
+  private Object getSortKey(DinerSort sort, Query query, int position) {
+    return switch (sort) {
+      case DINER_NAME -> names[position];
+      case COMMENTS_COUNT -> commentCounts[position];
+      case DISTANCE -> distances[position];
+      case RELEVANCE -> query.relevance()[position];
+    };
+  }
+
+  private DinerOutputDto toDto(int position) {
+    return DinerOutputDto.builder()
+        .id(ids[position])
+        .name(names[position])
+        .link(links[position])
+        .latitude(latitudes[position])
+        .longitude(longitudes[position])
+        .tags(new LinkedHashSet<>(Arrays.asList(tags[position])))
+        .commentCount(commentCounts[position])
+        .distanceInMeter((int) distances[position])
+        .build();
+  }
+
+  private static String toLowerKeyword(String keyword) {
+    return keyword != null ? keyword.toLowerCase(Locale.ROOT) : null;
+  }
+
+  /**
+   * Intersection of the bitsets. Null means every position, so it's not a filter.
+   */
+  private static BitSet intersect(BitSet filter, BitSet positions) {
+    BitSet result = (BitSet) positions.clone();
+    if (filter != null) {
+      result.and(filter);
+    }
+    return result;
+  }
+
+  /**
+   * Positions sorted by the comparator, then by id. Positions are in id order, so the position
+   * itself is the tiebreaker.
+   */
+  private static Collator createNameCollator() {
+    Collator collator = Collator.getInstance(Locale.ROOT);
+    collator.setStrength(Collator.PRIMARY);
+    return collator;
+  }
+
+  private static int[] sortPositions(int n, Comparator<Integer> comparator) {
+    return IntStream.range(0, n)
+        .boxed()
+        .sorted(comparator.thenComparing(Comparator.naturalOrder()))
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  /**
+   * A request resolved against this snapshot. filter is null if nothing is filtered by index.
+   * relevance is only computed for DinerSort.RELEVANCE.
+   */
+  private record Query(int[] order, String keyword, BitSet filter, double[] relevance) {
+
+  }
+}
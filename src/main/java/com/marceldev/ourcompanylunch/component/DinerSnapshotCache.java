@@ -0,0 +1,157 @@
+package com.marceldev.ourcompanylunch.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Per-company DinerSnapshot. A snapshot is built from DB on the first read after it's
+ * invalidated.
+ * <p>
+ * Every change bumps the version of the company. A rebuild that started before a change doesn't
+ * store its snapshot, so a snapshot never goes back to older data.
+ * <p>
+ * Entries expire after the TTL and the least used are evicted above the maximum size. The TTL
+ * also bounds a snapshot rebuilt from a read view older than a change whose version was already
+ * bumped.
+ */
+@Slf4j
+@Component
+public class DinerSnapshotCache {
+
+  private final DinerRepository dinerRepository;
+
+  private final ConcurrentMap<Long, Entry> entries;
+
+  private final Counter hitCounter;
+
+  private final Counter missCounter;
+
+  private final Timer rebuildTimer;
+
+  public DinerSnapshotCache(DinerRepository dinerRepository, MeterRegistry meterRegistry,
+      @Value("${cache.diner-snapshot.maximum-size:1000}") long maximumSize,
+      @Value("${cache.diner-snapshot.expire-after-write:10m}") Duration expireAfterWrite) {
+    this.dinerRepository = dinerRepository;
+    Cache<Long, Entry> cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .build();
+    this.entries = cache.asMap();
+    this.hitCounter = Counter.builder("diner.snapshot.requests")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    this.missCounter = Counter.builder("diner.snapshot.requests")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    this.rebuildTimer = Timer.builder("diner.snapshot.rebuild")
+        .description("Time to read diners of a company and build the snapshot")
+        .register(meterRegistry);
+    Gauge.builder("diner.snapshot.hit.ratio", this, DinerSnapshotCache::getHitRatio)
+        .register(meterRegistry);
+    Gauge.builder("diner.snapshot.companies", cache, Cache::estimatedSize)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Get the snapshot of the company. Must be called in a transaction, because it may read DB.
+   */
+  public DinerSnapshot get(long companyId) {
+    Entry entry = entries.get(companyId);
+    if (entry != null && entry.snapshot() != null) {
+      hitCounter.increment();
+      return entry.snapshot();
+    }
+    missCounter.increment();
+
+    long version = entry != null ? entry.version() : 0;
+    DinerSnapshot snapshot = rebuildTimer.record(() -> DinerSnapshot.of(
+        dinerRepository.getAllForList(companyId), System.nanoTime()));
+
+    entries.compute(companyId, (id, current) -> {
+      long currentVersion = current != null ? current.version() : 0;
+      return currentVersion == version ? new Entry(version, snapshot) : current;
+    });
+    return snapshot;
+  }
+
+  /**
+   * Drop the snapshot of the company now, and again after the transaction completes. Dropping now
+   * lets the rest of the transaction read its own writes. Dropping after completion removes a
+   * snapshot built from uncommitted or older data meanwhile.
+   */
+  public void invalidate(long companyId) {
+    drop(companyId);
+    runAfterCompletion(() -> drop(companyId));
+  }
+
+  /**
+   * Change the comment count of the diner after the transaction commits. If the snapshot was
+   * built after the comment was written, it may already have the change, so it's dropped instead.
+   * Without an entry, the version is still bumped, so a rebuild running meanwhile isn't stored.
+   */
+  public void changeCommentCount(long companyId, long dinerId, long delta) {
+    long writtenAt = System.nanoTime();
+    runAfterCommit(() -> entries.compute(companyId, (id, entry) -> {
+      if (entry == null) {
+        return new Entry(1, null);
+      }
+      DinerSnapshot snapshot = entry.snapshot();
+      if (snapshot == null || snapshot.getBuiltAt() >= writtenAt) {
+        return new Entry(entry.version() + 1, null);
+      }
+      return new Entry(entry.version() + 1, snapshot.withCommentCountDelta(dinerId, delta));
+    }));
+  }
+
+  private void drop(long companyId) {
+    entries.compute(companyId,
+        (id, entry) -> new Entry(entry != null ? entry.version() + 1 : 1, null));
+  }
+
+  private double getHitRatio() {
+    double total = hitCounter.count() + missCounter.count();
+    return total == 0 ? 0 : hitCounter.count() / total;
+  }
+
+  private void runAfterCompletion(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        action.run();
+      }
+    });
+  }
+
+  private void runAfterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private record Entry(long version, DinerSnapshot snapshot) {
+
+  }
+}
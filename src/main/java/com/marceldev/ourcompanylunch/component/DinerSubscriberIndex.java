@@ -0,0 +1,153 @@
+package com.marceldev.ourcompanylunch.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marceldev.ourcompanylunch.repository.diner.DinerSubscriptionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Subscriber member ids of each diner, as a sorted long array. Loaded from DB on the first read
+ * of the diner, and changed in place after a subscription is committed.
+ * <p>
+ * An array is never modified once stored. A change stores a new one and bumps the version of the
+ * diner, so a load that started before the change doesn't store its older ids. Adding and
+ * removing are idempotent, so applying a change to ids that already have it is harmless.
+ * <p>
+ * Entries expire after the TTL and the least used are evicted above the maximum size. A
+ * subscription changed on another instance is seen here after the TTL at the latest.
+ */
+@Component
+public class DinerSubscriberIndex {
+
+  private static final long[] EMPTY = new long[0];
+
+  private final DinerSubscriptionRepository dinerSubscriptionRepository;
+
+  private final ConcurrentMap<Long, Entry> entries;
+
+  private final Counter hitCounter;
+
+  private final Counter missCounter;
+
+  public DinerSubscriberIndex(DinerSubscriptionRepository dinerSubscriptionRepository,
+      MeterRegistry meterRegistry,
+      @Value("${cache.diner-subscriber.maximum-size:10000}") long maximumSize,
+      @Value("${cache.diner-subscriber.expire-after-write:10m}") Duration expireAfterWrite) {
+    this.dinerSubscriptionRepository = dinerSubscriptionRepository;
+    Cache<Long, Entry> cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .build();
+    this.entries = cache.asMap();
+    this.hitCounter = Counter.builder("diner.subscriber.index.requests")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    this.missCounter = Counter.builder("diner.subscriber.index.requests")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder("diner.subscriber.index.diners", cache, Cache::estimatedSize)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Sorted subscriber member ids of the diner. Must not be modified.
+   */
+  public long[] getSubscriberIds(long dinerId) {
+    Entry entry = entries.get(dinerId);
+    if (entry != null && entry.memberIds() != null) {
+      hitCounter.increment();
+      return entry.memberIds();
+    }
+    missCounter.increment();
+
+    long version = entry != null ? entry.version() : 0;
+    long[] memberIds = dinerSubscriptionRepository.findMemberIdsByDinerId(dinerId).stream()
+        .mapToLong(Long::longValue)
+        .sorted()
+        .distinct()
+        .toArray();
+
+    entries.compute(dinerId, (id, current) -> {
+      long currentVersion = current != null ? current.version() : 0;
+      return currentVersion == version ? new Entry(version, memberIds) : current;
+    });
+    return memberIds;
+  }
+
+  public void addAfterCommit(long dinerId, long memberId) {
+    runAfterCommit(() -> change(dinerId, memberIds -> add(memberIds, memberId)));
+  }
+
+  public void removeAfterCommit(long dinerId, long memberId) {
+    runAfterCommit(() -> change(dinerId, memberIds -> remove(memberIds, memberId)));
+  }
+
+  /**
+   * For a diner that's removed.
+   */
+  public void invalidate(long dinerId) {
+    runAfterCommit(() -> entries.compute(dinerId,
+        (id, entry) -> new Entry(entry != null ? entry.version() + 1 : 1, null)));
+  }
+
+  private void change(long dinerId, UnaryOperator<long[]> operator) {
+    entries.compute(dinerId, (id, entry) -> entry == null
+        ? new Entry(1, null)
+        : new Entry(entry.version() + 1,
+            entry.memberIds() != null ? operator.apply(entry.memberIds()) : null));
+  }
+
+  private static long[] add(long[] memberIds, long memberId) {
+    int index = Arrays.binarySearch(memberIds, memberId);
+    if (index >= 0) {
+      return memberIds;
+    }
+    int insertAt = -index - 1;
+    long[] added = new long[memberIds.length + 1];
+    System.arraycopy(memberIds, 0, added, 0, insertAt);
+    added[insertAt] = memberId;
+    System.arraycopy(memberIds, insertAt, added, insertAt + 1, memberIds.length - insertAt);
+    return added;
+  }
+
+  private static long[] remove(long[] memberIds, long memberId) {
+    int index = Arrays.binarySearch(memberIds, memberId);
+    if (index < 0) {
+      return memberIds;
+    }
+    if (memberIds.length == 1) {
+      return EMPTY;
+    }
+    long[] removed = new long[memberIds.length - 1];
+    System.arraycopy(memberIds, 0, removed, 0, index);
+    System.arraycopy(memberIds, index + 1, removed, index, memberIds.length - index - 1);
+    return removed;
+  }
+
+  private void runAfterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private record Entry(long version, long[] memberIds) {
+
+  }
+}
@@ -0,0 +1,131 @@
+package com.marceldev.ourcompanylunch.component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops OutboxRelay from sending while the broker is unreachable. Opens after consecutive broker
+ * failures, and lets one trial through after the open duration. While it's open, events stay in
+ * the outbox.
+ */
+@Slf4j
+@Component
+public class KafkaCircuitBreaker {
+
+  public enum State {
+    CLOSED, HALF_OPEN, OPEN
+  }
+
+  private final Clock clock;
+
+  private final int failureThreshold;
+
+  private final Duration openDuration;
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+  private volatile Instant openedAt = Instant.MIN;
+
+  private final Counter openedCounter;
+
+  @Autowired
+  public KafkaCircuitBreaker(MeterRegistry meterRegistry,
+      @Value("${kafka.circuit-breaker.failure-threshold:3}") int failureThreshold,
+      @Value("${kafka.circuit-breaker.open-duration:30s}") Duration openDuration) {
+    this(meterRegistry, failureThreshold, openDuration, Clock.systemUTC());
+  }
+
+  public KafkaCircuitBreaker(MeterRegistry meterRegistry, int failureThreshold,
+      Duration openDuration, Clock clock) {
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.clock = clock;
+    this.openedCounter = Counter.builder("kafka.circuit.opened")
+        .description("Times the Kafka circuit breaker opened")
+        .register(meterRegistry);
+    Gauge.builder("kafka.circuit.state", state, s -> s.get().ordinal())
+        .description("0: closed, 1: half open, 2: open")
+        .register(meterRegistry);
+  }
+
+  public State getState() {
+    return state.get();
+  }
+
+  /**
+   * Whether sending may start. After the open duration, only the first caller gets the trial.
+   */
+  public boolean allowRequest() {
+    return switch (state.get()) {
+      case CLOSED -> true;
+      case HALF_OPEN -> false;
+      case OPEN -> !clock.instant().isBefore(openedAt.plus(openDuration))
+          && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    };
+  }
+
+  /**
+   * The trial had nothing to send. The next caller gets the trial again.
+   */
+  public void cancelTrial() {
+    state.compareAndSet(State.HALF_OPEN, State.OPEN);
+  }
+
+  /**
+   * The trial ended without telling whether the broker is available. Opens again, so a caller
+   * gets the next trial after the open duration.
+   */
+  public void failTrial() {
+    open(State.HALF_OPEN);
+  }
+
+  public void recordSuccess() {
+    consecutiveFailures.set(0);
+    if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+      log.info("Kafka circuit breaker closed");
+    }
+  }
+
+  public void recordFailure() {
+    int failures = consecutiveFailures.incrementAndGet();
+    State current = state.get();
+    if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+      open(current);
+    }
+  }
+
+  /**
+   * Timeouts and retriable Kafka errors are taken as the broker being unavailable. Other errors,
+   * such as serialization or a missing diner, belong to the event itself.
+   */
+  public static boolean isBrokerFailure(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof RetriableException || cause instanceof TimeoutException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void open(State from) {
+    if (state.compareAndSet(from, State.OPEN)) {
+      openedAt = clock.instant();
+      openedCounter.increment();
+      log.warn("Kafka circuit breaker opened for {}", openDuration);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.marceldev.ourcompanylunch.component;
+
+import com.marceldev.ourcompanylunch.component.KafkaCircuitBreaker.State;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/health/kafka. Comments are still written while Kafka is down, so an open breaker is
+ * reported as DEGRADED, not DOWN. Buffered events are the ones in the outbox and in the comment
+ * event queue. Dropped events are the ones the full queue rejected, which are still relayed from
+ * the outbox on the next poll.
+ */
+@Component
+@RequiredArgsConstructor
+public class KafkaHealthIndicator implements HealthIndicator {
+
+  private static final Status DEGRADED = new Status("DEGRADED");
+
+  private final KafkaCircuitBreaker circuitBreaker;
+
+  private final MeterRegistry meterRegistry;
+
+  @Override
+  public Health health() {
+    State state = circuitBreaker.getState();
+    return Health.status(state == State.CLOSED ? Status.UP : DEGRADED)
+        .withDetail("circuitBreaker", state)
+        .withDetail("outboxPending", gauge("outbox.pending"))
+        .withDetail("queued", gauge("comment.event.queue.size"))
+        .withDetail("dropped", counter("comment.event.rejected"))
+        .build();
+  }
+
+  private long gauge(String name) {
+    Gauge gauge = meterRegistry.find(name).gauge();
+    return gauge == null ? 0 : (long) gauge.value();
+  }
+
+  private long counter(String name) {
+    Counter counter = meterRegistry.find(name).counter();
+    return counter == null ? 0 : (long) counter.count();
+  }
+}
@@ -0,0 +1,99 @@
+package com.marceldev.ourcompanylunch.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marceldev.ourcompanylunch.entity.Company;
+import com.marceldev.ourcompanylunch.security.MemberPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded caches of the member principal by email, and of the company fields read on every
+ * request by company id. Entries expire after the TTL even without a write, so a change made
+ * outside the services is seen eventually.
+ * <p>
+ * A missing member or company is not cached, so a member who signs up is found on the next
+ * request.
+ */
+@Component
+public class MemberCache {
+
+  private final Cache<String, MemberPrincipal> principals;
+
+  private final Cache<Long, CachedCompany> companies;
+
+  public MemberCache(MeterRegistry meterRegistry,
+      @Value("${cache.member.maximum-size:10000}") long maximumSize,
+      @Value("${cache.member.expire-after-write:10m}") Duration expireAfterWrite) {
+    this.principals = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build(), "member.principal");
+    this.companies = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build(), "member.company");
+  }
+
+  public Optional<MemberPrincipal> getPrincipal(String email,
+      Function<String, Optional<MemberPrincipal>> loader) {
+    return Optional.ofNullable(principals.get(email, key -> loader.apply(key).orElse(null)));
+  }
+
+  public Optional<CachedCompany> getCompany(long companyId,
+      Function<Long, Optional<Company>> loader) {
+    return Optional.ofNullable(companies.get(companyId, key -> loader.apply(key)
+        .map(CachedCompany::of)
+        .orElse(null)));
+  }
+
+  /**
+   * Drop the principal now, and again after the transaction completes. Same as
+   * DinerSnapshotCache.invalidate, a principal loaded meanwhile from older data is removed.
+   */
+  public void invalidatePrincipal(String email) {
+    principals.invalidate(email);
+    runAfterCompletion(() -> principals.invalidate(email));
+  }
+
+  public void invalidateCompany(long companyId) {
+    companies.invalidate(companyId);
+    runAfterCompletion(() -> companies.invalidate(companyId));
+  }
+
+  public void invalidateAll() {
+    principals.invalidateAll();
+    companies.invalidateAll();
+  }
+
+  private void runAfterCompletion(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        action.run();
+      }
+    });
+  }
+
+  public record CachedCompany(long id, Point location, boolean enterKeyEnabled) {
+
+    private static CachedCompany of(Company company) {
+      return new CachedCompany(company.getId(), company.getLocation(),
+          company.isEnterKeyEnabled());
+    }
+  }
+}
@@ -1,50 +1,148 @@
 package com.marceldev.ourcompanylunch.component;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import lombok.RequiredArgsConstructor;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
+/**
+ * Each request is timed by s3.requests, tagged with the operation and the result.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class S3Manager {
 
-  @Value("${s3.bucket-name}")
-  private String bucketName;
+  /**
+   * Limit of a DeleteObjects request.
+   */
+  public static final int MAX_DELETE_KEYS = 1000;
 
-  @Value("${cloudfront-url}")
-  private String cloudFrontUrl;
+  private final String bucketName;
+
+  private final String cloudFrontUrl;
 
   private final S3Client s3Client;
 
+  private final S3AsyncClient s3AsyncClient;
+
+  private final S3Presigner s3Presigner;
+
+  private final MeterRegistry meterRegistry;
+
+  public S3Manager(@Value("${s3.bucket-name}") String bucketName,
+      @Value("${cloudfront-url}") String cloudFrontUrl, S3Client s3Client,
+      S3AsyncClient s3AsyncClient, S3Presigner s3Presigner, MeterRegistry meterRegistry) {
+    this.bucketName = bucketName;
+    this.cloudFrontUrl = cloudFrontUrl;
+    this.s3Client = s3Client;
+    this.s3AsyncClient = s3AsyncClient;
+    this.s3Presigner = s3Presigner;
+    this.meterRegistry = meterRegistry;
+  }
+
   /**
-   * Upload file to an S3 bucket, receiving key and file inputstream.
+   * Upload without blocking. Above the multipart threshold of the async client, the upload is
+   * split into parts sent concurrently.
    */
-  public void uploadFile(String key, InputStream inputStream, long size) throws IOException {
-    // key: diner/1/images/567a3d2b-94db-4709-93b4-69771d8fdc54.png, filesize: 76120
-    log.debug("key: {}, filesize: {}", key, size);
+  public CompletableFuture<Void> uploadFileAsync(String key, byte[] bytes) {
+    log.debug("key: {}, filesize: {}", key, bytes.length);
+    return putObjectAsync(key, AsyncRequestBody.fromBytes(bytes));
+  }
+
+  /**
+   * Upload a file on disk without blocking. The SDK streams it, so it isn't loaded on heap.
+   */
+  public CompletableFuture<Void> uploadFileAsync(String key, Path file) {
+    return putObjectAsync(key, AsyncRequestBody.fromFile(file));
+  }
 
+  /**
+   * A URL the client PUTs the file to directly, with the Content-Type header. Signed locally,
+   * without a request to S3.
+   */
+  public String createUploadUrl(String key, String contentType, Duration expiration) {
     PutObjectRequest putObjectRequest = PutObjectRequest.builder()
         .bucket(bucketName)
         .key(key)
+        .contentType(contentType)
         .build();
 
-    PutObjectResponse response = s3Client.putObject(
-        putObjectRequest,
-        RequestBody.fromInputStream(inputStream, size)
-    );
+    PutObjectPresignRequest presignRequest = PutObjectPresignRequest.builder()
+        .signatureDuration(expiration)
+        .putObjectRequest(putObjectRequest)
+        .build();
 
-    log.info(response.toString());
+    return s3Presigner.presignPutObject(presignRequest).url().toString();
+  }
+
+  /**
+   * Size of the file, or empty if it doesn't exist.
+   */
+  public Optional<Long> getFileSize(String key) {
+    HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+        .bucket(bucketName)
+        .key(key)
+        .build();
+
+    try {
+      return Optional.of(timed("head", () -> s3Client.headObject(headObjectRequest))
+          .contentLength());
+    } catch (NoSuchKeyException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Download the file to the path, replacing it.
+   */
+  public void downloadFile(String key, Path file) throws IOException {
+    GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+        .bucket(bucketName)
+        .key(key)
+        .build();
+
+    Timer.Sample sample = Timer.start(meterRegistry);
+    boolean success = false;
+    try (InputStream inputStream = s3Client.getObject(getObjectRequest)) {
+      Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+      success = true;
+    } finally {
+      sample.stop(timer("get", success));
+    }
   }
 
   public void removeFile(String key) {
@@ -53,16 +151,116 @@ public class S3Manager {
         .key(key)
         .build();
 
-    DeleteObjectResponse response = s3Client.deleteObject(
+    DeleteObjectResponse response = timed("delete", () -> s3Client.deleteObject(
         deleteObjectRequest
-    );
+    ));
 
     log.info(response.toString());
   }
 
+  /**
+   * Delete the keys with DeleteObjects, up to 1000 keys a request. Returns the error of each key
+   * not deleted. A key that doesn't exist counts as deleted.
+   */
+  public Map<String, String> removeFiles(Collection<String> keys) {
+    List<String> distinctKeys = keys.stream().distinct().toList();
+    Map<String, String> errors = new HashMap<>();
+    for (int from = 0; from < distinctKeys.size(); from += MAX_DELETE_KEYS) {
+      List<ObjectIdentifier> objects = distinctKeys
+          .subList(from, Math.min(from + MAX_DELETE_KEYS, distinctKeys.size()))
+          .stream()
+          .map(key -> ObjectIdentifier.builder().key(key).build())
+          .toList();
+
+      // Quiet, so only the errors are returned.
+      DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+          .bucket(bucketName)
+          .delete(Delete.builder()
+              .objects(objects)
+              .quiet(true)
+              .build())
+          .build();
+
+      DeleteObjectsResponse response = timed("delete_batch", () -> s3Client.deleteObjects(
+          deleteObjectsRequest
+      ));
+      response.errors().forEach(error ->
+          errors.put(error.key(), error.code() + ": " + error.message()));
+    }
+    return errors;
+  }
+
+  /**
+   * Files under the prefix in key order. A page of 1000 files is requested when the stream reaches
+   * it, so the listing isn't held in memory.
+   */
+  public Stream<StoredFile> listFiles(String prefix) {
+    ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+        .bucket(bucketName)
+        .prefix(prefix)
+        .build();
+
+    return Stream.iterate(
+            timed("list", () -> s3Client.listObjectsV2(listObjectsV2Request)),
+            Objects::nonNull,
+            response -> response.isTruncated()
+                ? timed("list", () -> s3Client.listObjectsV2(listObjectsV2Request.toBuilder()
+                .continuationToken(response.nextContinuationToken())
+                .build()))
+                : null)
+        .flatMap(response -> response.contents().stream())
+        .map(object -> new StoredFile(object.key(), object.lastModified()));
+  }
+
   public List<String> getUrls(List<String> keys) {
     return keys.stream()
-        .map(key -> cloudFrontUrl + key)
+        .map(this::getUrl)
         .toList();
   }
+
+  public String getUrl(String key) {
+    return cloudFrontUrl + key;
+  }
+
+  private CompletableFuture<Void> putObjectAsync(String key, AsyncRequestBody body) {
+    PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+        .bucket(bucketName)
+        .key(key)
+        .build();
+
+    Timer.Sample sample = Timer.start(meterRegistry);
+    CompletableFuture<PutObjectResponse> response;
+    try {
+      response = s3AsyncClient.putObject(putObjectRequest, body);
+    } catch (RuntimeException e) {
+      response = CompletableFuture.failedFuture(e);
+    }
+    return response
+        .whenComplete((result, e) -> sample.stop(timer("put_async", e == null)))
+        .thenAccept(result -> log.info(result.toString()));
+  }
+
+  private <T> T timed(String operation, Supplier<T> request) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    boolean success = false;
+    try {
+      T result = request.get();
+      success = true;
+      return result;
+    } finally {
+      sample.stop(timer(operation, success));
+    }
+  }
+
+  private Timer timer(String operation, boolean success) {
+    return Timer.builder("s3.requests")
+        .description("Latency of S3 requests")
+        .tag("operation", operation)
+        .tag("result", success ? "success" : "failure")
+        .register(meterRegistry);
+  }
+
+  public record StoredFile(String key, Instant lastModified) {
+
+  }
 }
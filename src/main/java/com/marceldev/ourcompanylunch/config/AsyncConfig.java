@@ -0,0 +1,90 @@
+package com.marceldev.ourcompanylunch.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ForkJoinPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Slf4j
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+  public static final String COMMENT_EVENT_EXECUTOR = "commentEventExecutor";
+
+  public static final String THUMBNAIL_EXECUTOR = "thumbnailExecutor";
+
+  public static final String IMAGE_VARIANT_POOL = "imageVariantPool";
+
+  /**
+   * Bounded executor for comment events. When the queue is full, the event is dropped and
+   * counted. It's not run on the caller, because the caller is the request thread that just
+   * committed the comment.
+   */
+  @Bean(name = COMMENT_EVENT_EXECUTOR)
+  public ThreadPoolTaskExecutor commentEventExecutor(MeterRegistry meterRegistry,
+      @Value("${async.comment-event.pool-size:4}") int poolSize,
+      @Value("${async.comment-event.queue-capacity:1000}") int queueCapacity) {
+    Counter rejectedCounter = Counter.builder("comment.event.rejected")
+        .description("Comment events dropped because the queue was full")
+        .register(meterRegistry);
+
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("comment-event-");
+    executor.setRejectedExecutionHandler((task, pool) -> {
+      rejectedCounter.increment();
+      log.warn("Comment event dropped. Queue is full: {}", pool.getQueue().size());
+    });
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.initialize();
+
+    Gauge.builder("comment.event.queue.size", executor,
+            e -> e.getThreadPoolExecutor().getQueue().size())
+        .register(meterRegistry);
+    return executor;
+  }
+
+  /**
+   * Bounded executor for thumbnails. Decoding an image takes memory, so the pool is small. When the
+   * queue is full, execute throws TaskRejectedException and the caller marks the image failed.
+   */
+  @Bean(name = THUMBNAIL_EXECUTOR)
+  public ThreadPoolTaskExecutor thumbnailExecutor(MeterRegistry meterRegistry,
+      @Value("${async.thumbnail.pool-size:2}") int poolSize,
+      @Value("${async.thumbnail.queue-capacity:100}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("thumbnail-");
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.initialize();
+
+    Gauge.builder("diner.image.thumbnail.queue.size", executor,
+            e -> e.getThreadPoolExecutor().getQueue().size())
+        .register(meterRegistry);
+    Gauge.builder("diner.image.thumbnail.active", executor,
+            ThreadPoolTaskExecutor::getActiveCount)
+        .register(meterRegistry);
+    return executor;
+  }
+
+  /**
+   * Resizes the variants of one decoded image in parallel, for a thumbnail worker. Shared by the
+   * thumbnail workers, so the CPU used for resizing is bounded by the parallelism.
+   */
+  @Bean(name = IMAGE_VARIANT_POOL)
+  public ForkJoinPool imageVariantPool(
+      @Value("${async.image-variant.parallelism:2}") int parallelism) {
+    return new ForkJoinPool(parallelism);
+  }
+}
@@ -1,31 +1,91 @@
 package com.marceldev.ourcompanylunch.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import com.marceldev.ourcompanylunch.serializer.MessageCommentWriteV2Serializer;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 
 @Configuration
 public class KafkaProducerConfig {
 
   private static final String BOOTSTRAP_SERVER = "localhost:9092";
 
+  /**
+   * lz4 or zstd. Compressed per producer batch, so it pays off with linger.ms below.
+   */
+  @Value("${kafka.producer.compression-type:lz4}")
+  private String compressionType;
+
+  /**
+   * How long send() may block for the metadata or buffer space. The default 60s would hold the
+   * relay while the broker is down.
+   */
+  @Value("${kafka.producer.max-block-ms:2000}")
+  private long maxBlockMs;
+
+  /**
+   * binary(MessageCommentWriteV2Codec) or json.
+   */
+  @Value("${kafka.comment-write.v2-format:binary}")
+  private String commentWriteV2Format;
+
   @Bean
   public ProducerFactory<String, String> producerFactory() {
-    Map<String, Object> configProps = new HashMap<>();
-    configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVER);
-    configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-    configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-    return new DefaultKafkaProducerFactory<>(configProps);
+    return new DefaultKafkaProducerFactory<>(producerConfigs(), new StringSerializer(),
+        new StringSerializer());
   }
 
   @Bean
   public KafkaTemplate<String, String> kafkaTemplate() {
     return new KafkaTemplate<>(producerFactory());
   }
+
+  @Bean
+  public ProducerFactory<String, MessageCommentWriteV2> commentWriteV2ProducerFactory(
+      ObjectMapper objectMapper) {
+    return new DefaultKafkaProducerFactory<>(producerConfigs(), new StringSerializer(),
+        commentWriteV2Serializer(objectMapper));
+  }
+
+  @Bean
+  public KafkaTemplate<String, MessageCommentWriteV2> commentWriteV2KafkaTemplate(
+      ProducerFactory<String, MessageCommentWriteV2> commentWriteV2ProducerFactory) {
+    return new KafkaTemplate<>(commentWriteV2ProducerFactory);
+  }
+
+  private Serializer<MessageCommentWriteV2> commentWriteV2Serializer(ObjectMapper objectMapper) {
+    return switch (commentWriteV2Format) {
+      case "binary" -> new MessageCommentWriteV2Serializer();
+      case "json" -> new JsonSerializer<MessageCommentWriteV2>(objectMapper).noTypeInfo();
+      default -> throw new IllegalStateException(
+          "Unknown kafka.comment-write.v2-format: " + commentWriteV2Format);
+    };
+  }
+
+  private Map<String, Object> producerConfigs() {
+    Map<String, Object> configProps = new HashMap<>();
+    configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVER);
+    // OutboxRelay retries failed events, so a retried send must not duplicate or reorder.
+    configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+    configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+    configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+    // A relay batch is sent at once, so wait a little to fill the producer batches.
+    configProps.put(ProducerConfig.LINGER_MS_CONFIG, 10);
+    configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024);
+    configProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 20_000);
+    configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+    configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+    return configProps;
+  }
 }
@@ -0,0 +1,54 @@
+package com.marceldev.ourcompanylunch.config;
+
+import java.net.URI;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.regions.providers.AwsRegionProvider;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+
+/**
+ * The async S3 client, next to the S3Client of Spring Cloud AWS. It uses the same credentials,
+ * region and endpoint, so a local S3-compatible stand-in works for both.
+ */
+@Configuration
+public class S3AsyncConfig {
+
+  /**
+   * A larger upload is split into parts, sent concurrently.
+   */
+  @Value("${s3.multipart.threshold:16MB}")
+  private DataSize multipartThreshold;
+
+  @Value("${s3.multipart.part-size:8MB}")
+  private DataSize multipartPartSize;
+
+  @Value("${spring.cloud.aws.s3.endpoint:}")
+  private String endpoint;
+
+  @Value("${spring.cloud.aws.s3.path-style-access-enabled:false}")
+  private boolean pathStyleAccessEnabled;
+
+  @Bean
+  public S3AsyncClient s3AsyncClient(AwsCredentialsProvider credentialsProvider,
+      AwsRegionProvider regionProvider) {
+    S3AsyncClientBuilder builder = S3AsyncClient.builder()
+        .credentialsProvider(credentialsProvider)
+        .region(regionProvider.getRegion())
+        .forcePathStyle(pathStyleAccessEnabled)
+        .multipartEnabled(true)
+        .multipartConfiguration(MultipartConfiguration.builder()
+            .thresholdInBytes(multipartThreshold.toBytes())
+            .minimumPartSizeInBytes(multipartPartSize.toBytes())
+            .build());
+    if (StringUtils.hasText(endpoint)) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    return builder.build();
+  }
+}
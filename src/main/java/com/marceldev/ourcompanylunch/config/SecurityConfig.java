@@ -1,5 +1,8 @@
 package com.marceldev.ourcompanylunch.config;
 
+import com.marceldev.ourcompanylunch.security.MemberPrincipalFilter;
+import com.marceldev.ourcompanylunch.security.MemberPrincipalProvider;
+import com.marceldev.ourcompanylunch.type.Role;
 import com.marceldev.ourcompanylunchcommon.JwtAuthenticationFilter;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +25,8 @@ public class SecurityConfig {
 
   private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
+  private final MemberPrincipalProvider memberPrincipalProvider;
+
   @Bean
   public SecurityFilterChain configure(HttpSecurity http) throws Exception {
     return http
@@ -31,6 +36,8 @@ public class SecurityConfig {
         .sessionManagement(session ->
             session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .authorizeHttpRequests(authorization -> authorization
+            // Before the other actuator endpoints, which are open.
+            .requestMatchers("/actuator/commentsearchtokens").hasAuthority(Role.ADMIN.name())
             .requestMatchers(
                 "/v3/api-docs/**",
                 "/swagger-ui/**",
@@ -47,6 +54,9 @@ public class SecurityConfig {
             .anyRequest().authenticated()
         )
         .addFilterAfter(jwtAuthenticationFilter, BasicAuthenticationFilter.class)
+        // Not a bean, so it's not registered to the servlet filters again.
+        .addFilterAfter(new MemberPrincipalFilter(memberPrincipalProvider),
+            JwtAuthenticationFilter.class)
         .build();
   }
 
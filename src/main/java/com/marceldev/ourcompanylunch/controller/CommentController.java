@@ -5,9 +5,11 @@ import com.marceldev.ourcompanylunch.dto.comment.CreateCommentRequest;
 import com.marceldev.ourcompanylunch.dto.comment.CreateCommentResponse;
 import com.marceldev.ourcompanylunch.dto.comment.GetCommentListRequest;
 import com.marceldev.ourcompanylunch.dto.comment.UpdateCommentRequest;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.service.CommentService;
-import com.marceldev.ourcompanylunch.service.MessageProducerService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -29,8 +31,6 @@ public class CommentController {
 
   private final CommentService commentService;
 
-  private final MessageProducerService messageProducerService;
-
   @Operation(
       summary = "Write a comment on a diner",
       description = "A member can write a comment on a registered diner.<br>"
@@ -42,7 +42,6 @@ public class CommentController {
       @Validated @RequestBody CreateCommentRequest dto
   ) {
     CreateCommentResponse response = commentService.createComment(id, dto);
-    messageProducerService.produceForDinerSubscribers(id, dto.getContent());
     return ResponseEntity.ok(response);
   }
 
@@ -52,7 +51,7 @@ public class CommentController {
           "A member can get a list of comments on the diner that shared in the company.<br>"
               + "Query with author name, comment content text. Sort by created time."
   )
-  @GetMapping("/diners/{id}/comments")
+  @GetMapping(value = "/diners/{id}/comments", params = "!cursor")
   public ResponseEntity<Page<CommentOutputDto>> getCommentList(
       @PathVariable long id,
       @Validated @ModelAttribute GetCommentListRequest getCommentListRequest
@@ -63,6 +62,27 @@ public class CommentController {
     return ResponseEntity.ok(comments);
   }
 
+  @Operation(
+      summary = "Get a list of comments on the diner by cursor",
+      description = "Used when cursor parameter exists. No total count.<br>"
+          + "Send empty cursor for the first slice, then send nextCursor or prevCursor of the "
+          + "response.<br>Comments written meanwhile don't shift the slices."
+  )
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "OK"),
+      @ApiResponse(responseCode = "400", description = "errorCode: 8001 - Invalid cursor")
+  })
+  @GetMapping(value = "/diners/{id}/comments", params = "cursor")
+  public ResponseEntity<CursorSliceResponse<CommentOutputDto>> getCommentListByCursor(
+      @PathVariable long id,
+      @Validated @ModelAttribute GetCommentListRequest getCommentListRequest
+  ) {
+    CursorSliceResponse<CommentOutputDto> comments = commentService.getCommentListByCursor(
+        id, getCommentListRequest
+    );
+    return ResponseEntity.ok(comments);
+  }
+
   @Operation(
       summary = "Update the comment",
       description = "A member can update the comment that he/she wrote."
@@ -1,5 +1,6 @@
 package com.marceldev.ourcompanylunch.controller;
 
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.company.CompanyOutputDto;
 import com.marceldev.ourcompanylunch.dto.company.CreateCompanyRequest;
@@ -80,7 +81,7 @@ public class CompanyController {
   @Operation(
       summary = "Get company list"
   )
-  @GetMapping("/companies")
+  @GetMapping(value = "/companies", params = "!cursor")
   public ResponseEntity<Page<CompanyOutputDto>> getCompanyList(
       @Validated @ModelAttribute GetCompanyListRequest getCompanyListRequest
   ) {
@@ -88,6 +89,24 @@ public class CompanyController {
     return ResponseEntity.ok(companies);
   }
 
+  @Operation(
+      summary = "Get company list by cursor",
+      description = "Used when cursor parameter exists. No total count.<br>"
+          + "Send empty cursor for the first slice, then send nextCursor of the response."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "OK"),
+      @ApiResponse(responseCode = "400", description = "errorCode: 8001 - Invalid cursor")
+  })
+  @GetMapping(value = "/companies", params = "cursor")
+  public ResponseEntity<CursorSliceResponse<CompanyOutputDto>> getCompanyListByCursor(
+      @Validated @ModelAttribute GetCompanyListRequest getCompanyListRequest
+  ) {
+    CursorSliceResponse<CompanyOutputDto> companies = companyService.getCompanyListByCursor(
+        getCompanyListRequest);
+    return ResponseEntity.ok(companies);
+  }
+
   @Operation(
       summary = "Join a company",
       description = "A member choose a company.<br>"
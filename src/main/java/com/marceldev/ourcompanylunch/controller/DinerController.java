@@ -1,18 +1,26 @@
 package com.marceldev.ourcompanylunch.controller;
 
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.diner.AddDinerImageResponse;
 import com.marceldev.ourcompanylunch.dto.diner.AddDinerTagsRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerImageUploadUrlRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerImageUploadUrlResponse;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
 import com.marceldev.ourcompanylunch.dto.diner.DinerDetailOutputDto;
 import com.marceldev.ourcompanylunch.dto.diner.DinerOutputDto;
+import com.marceldev.ourcompanylunch.dto.diner.DinerTagFacetDto;
 import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
+import com.marceldev.ourcompanylunch.dto.diner.GetNearbyDinerListRequest;
 import com.marceldev.ourcompanylunch.dto.diner.RemoveDinerTagsRequest;
 import com.marceldev.ourcompanylunch.dto.diner.UpdateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.error.ErrorResponse;
+import com.marceldev.ourcompanylunch.exception.diner.DinerImageUploadNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerMaxImageCountExceedException;
 import com.marceldev.ourcompanylunch.exception.diner.DuplicateDinerTagException;
+import com.marceldev.ourcompanylunch.exception.diner.ImageNotUploadedException;
 import com.marceldev.ourcompanylunch.exception.diner.ImageWithNoExtensionException;
+import com.marceldev.ourcompanylunch.exception.diner.NotImageFileException;
 import com.marceldev.ourcompanylunch.service.DinerImageService;
 import com.marceldev.ourcompanylunch.service.DinerService;
 import com.marceldev.ourcompanylunch.service.DinerSubscribeService;
@@ -21,6 +29,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
@@ -64,9 +73,10 @@ public class DinerController {
   @Operation(
       summary = "Get a list of diner",
       description = "Distance is between the company's location and the diner's location.<br>"
-          + "Sort by diner name, distance, comments' count."
+          + "Sort by diner name, distance, comments' count.<br>"
+          + "Filter by tags. tagMatch ALL(default) or ANY."
   )
-  @GetMapping("/diners")
+  @GetMapping(value = "/diners", params = "!cursor")
   public ResponseEntity<Page<DinerOutputDto>> getDinerList(
       @Validated @ModelAttribute GetDinerListRequest getDinerListRequest
   ) {
@@ -74,6 +84,37 @@ public class DinerController {
     return ResponseEntity.ok(diners);
   }
 
+  @Operation(
+      summary = "Get a list of diner by cursor",
+      description = "Used when cursor parameter exists. No total count.<br>"
+          + "Send empty cursor for the first slice, then send nextCursor of the response."
+  )
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "OK"),
+      @ApiResponse(responseCode = "400", description = "errorCode: 8001 - Invalid cursor")
+  })
+  @GetMapping(value = "/diners", params = "cursor")
+  public ResponseEntity<CursorSliceResponse<DinerOutputDto>> getDinerListByCursor(
+      @Validated @ModelAttribute GetDinerListRequest getDinerListRequest
+  ) {
+    CursorSliceResponse<DinerOutputDto> diners = dinerService.getDinerListByCursor(
+        getDinerListRequest);
+    return ResponseEntity.ok(diners);
+  }
+
+  @Operation(
+      summary = "Get a list of diner near a point",
+      description = "Diners of the company within radius(meter) from lat, lng. Nearest first.<br>"
+          + "Distance is between the point and the diner's location."
+  )
+  @GetMapping("/diners/nearby")
+  public ResponseEntity<List<DinerOutputDto>> getNearbyDinerList(
+      @Validated @ModelAttribute GetNearbyDinerListRequest getNearbyDinerListRequest
+  ) {
+    List<DinerOutputDto> diners = dinerService.getNearbyDinerList(getNearbyDinerListRequest);
+    return ResponseEntity.ok(diners);
+  }
+
   @Operation(
       summary = "Get details of diner"
   )
@@ -138,6 +179,16 @@ public class DinerController {
     return ResponseEntity.ok().build();
   }
 
+  @Operation(
+      summary = "Get tag counts of the company",
+      description = "Number of diners having each tag. Most used tags first."
+  )
+  @GetMapping("/diners/tags/facets")
+  public ResponseEntity<List<DinerTagFacetDto>> getDinerTagFacets() {
+    List<DinerTagFacetDto> facets = dinerTagService.getTagFacets();
+    return ResponseEntity.ok(facets);
+  }
+
   @Operation(
       summary = "Add a diner image"
   )
@@ -156,6 +207,48 @@ public class DinerController {
     return ResponseEntity.ok(response);
   }
 
+  @Operation(
+      summary = "Get a URL to upload a diner image to directly",
+      description = "PUT the image to uploadUrl with the Content-Type header of contentType.<br>"
+          + "Then complete the upload with the key, before expirationAt.<br>"
+          + "The upload counts to the max image count until it expires."
+  )
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "OK"),
+      @ApiResponse(responseCode = "400", description =
+          "errorCode: 3001 - Max image count exceeded<br>"
+              + "errorCode: 3003 - No extension in file<br>"
+              + "errorCode: 3006 - Not an image file")
+  })
+  @PostMapping("/diners/{id}/images/upload-url")
+  public ResponseEntity<CreateDinerImageUploadUrlResponse> createDinerImageUploadUrl(
+      @PathVariable long id,
+      @Validated @RequestBody CreateDinerImageUploadUrlRequest dto
+  ) {
+    CreateDinerImageUploadUrlResponse response = dinerImageService.createUploadUrl(id, dto);
+    return ResponseEntity.ok(response);
+  }
+
+  @Operation(
+      summary = "Complete the upload of a diner image",
+      description = "The thumbnail is made afterwards."
+  )
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "OK"),
+      @ApiResponse(responseCode = "400", description =
+          "errorCode: 3001 - Max image count exceeded<br>"
+              + "errorCode: 3004 - No upload of the key<br>"
+              + "errorCode: 3005 - Image is not uploaded or is too large")
+  })
+  @PostMapping("/diners/{id}/images/{key}/complete")
+  public ResponseEntity<AddDinerImageResponse> completeDinerImageUpload(
+      @PathVariable long id,
+      @PathVariable String key
+  ) {
+    AddDinerImageResponse response = dinerImageService.completeUpload(id, key);
+    return ResponseEntity.ok(response);
+  }
+
   @Operation(
       summary = "Remove the diner image"
   )
@@ -203,4 +296,19 @@ public class DinerController {
   public ResponseEntity<ErrorResponse> handle(ImageWithNoExtensionException e) {
     return ErrorResponse.badRequest(3003, e.getMessage());
   }
+
+  @ExceptionHandler
+  public ResponseEntity<ErrorResponse> handle(DinerImageUploadNotFoundException e) {
+    return ErrorResponse.badRequest(3004, e.getMessage());
+  }
+
+  @ExceptionHandler
+  public ResponseEntity<ErrorResponse> handle(ImageNotUploadedException e) {
+    return ErrorResponse.badRequest(3005, e.getMessage());
+  }
+
+  @ExceptionHandler
+  public ResponseEntity<ErrorResponse> handle(NotImageFileException e) {
+    return ErrorResponse.badRequest(3006, e.getMessage());
+  }
 }
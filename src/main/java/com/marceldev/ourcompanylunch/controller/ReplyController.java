@@ -1,5 +1,6 @@
 package com.marceldev.ourcompanylunch.controller;
 
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.reply.CreateReplyRequest;
 import com.marceldev.ourcompanylunch.dto.reply.CreateReplyResponse;
 import com.marceldev.ourcompanylunch.dto.reply.GetReplyListRequest;
@@ -7,6 +8,8 @@ import com.marceldev.ourcompanylunch.dto.reply.ReplyOutputDto;
 import com.marceldev.ourcompanylunch.dto.reply.UpdateReplyRequest;
 import com.marceldev.ourcompanylunch.service.ReplyService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -45,7 +48,7 @@ public class ReplyController {
       summary = "Get a list of reply",
       description = "A member can get a list of reply on the comment."
   )
-  @GetMapping("/comments/{id}/replies")
+  @GetMapping(value = "/comments/{id}/replies", params = "!cursor")
   public ResponseEntity<Page<ReplyOutputDto>> getReplyList(
       @PathVariable long id,
       @Validated @ModelAttribute GetReplyListRequest getReplyListRequest
@@ -54,6 +57,26 @@ public class ReplyController {
     return ResponseEntity.ok(replies);
   }
 
+  @Operation(
+      summary = "Get a list of reply by cursor",
+      description = "Used when cursor parameter exists. Newest first, no total count.<br>"
+          + "Send empty cursor for the first slice, then send nextCursor or prevCursor of the "
+          + "response."
+  )
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "OK"),
+      @ApiResponse(responseCode = "400", description = "errorCode: 8001 - Invalid cursor")
+  })
+  @GetMapping(value = "/comments/{id}/replies", params = "cursor")
+  public ResponseEntity<CursorSliceResponse<ReplyOutputDto>> getReplyListByCursor(
+      @PathVariable long id,
+      @Validated @ModelAttribute GetReplyListRequest getReplyListRequest
+  ) {
+    CursorSliceResponse<ReplyOutputDto> replies = replyService.getReplyListByCursor(
+        id, getReplyListRequest);
+    return ResponseEntity.ok(replies);
+  }
+
   @Operation(
       summary = "Update a reply",
       description = "A member can change a reply that he/she wrote."
@@ -17,13 +17,18 @@ public class GetCommentListRequest {
   @PositiveOrZero
   private int page;
 
+  @Schema(description = "Cursor mode. Empty for the first slice, then nextCursor or prevCursor "
+      + "of the previous response. page is ignored.")
+  private String cursor;
+
   @Schema(example = "10")
   @Positive
   private int size;
 
   @NotNull
   @Schema(example = "CREATED_AT", allowableValues = {
-      "CREATED_AT"
+      "CREATED_AT",
+      "RELEVANCE"
   })
   private CommentSort sortBy;
 
@@ -38,9 +43,10 @@ public class GetCommentListRequest {
   private String commentedBy;
 
   @Builder
-  private GetCommentListRequest(int page, int size, CommentSort sortBy, SortDirection sortDirection,
-      String keyword, String commentedBy) {
+  private GetCommentListRequest(int page, String cursor, int size, CommentSort sortBy,
+      SortDirection sortDirection, String keyword, String commentedBy) {
     this.page = page;
+    this.cursor = cursor;
     this.size = size;
     this.sortBy = sortBy;
     this.sortDirection = sortDirection;
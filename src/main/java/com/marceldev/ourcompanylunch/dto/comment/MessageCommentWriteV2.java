@@ -0,0 +1,27 @@
+package com.marceldev.ourcompanylunch.dto.comment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One message per comment instead of one per receiver. A large receiver set is split into chunks,
+ * and each chunk repeats the comment. chunkIndex starts from 0.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageCommentWriteV2 {
+
+  private Long commentId;
+  private Long senderId;
+  private Long dinerId;
+  private String senderName;
+  private String dinerName;
+  private String content;
+  private long[] receiverIds;
+  private Integer chunkIndex;
+  private Integer chunkCount;
+}
@@ -0,0 +1,55 @@
+package com.marceldev.ourcompanylunch.dto.common;
+
+import com.marceldev.ourcompanylunch.exception.common.InvalidCursorException;
+import com.marceldev.ourcompanylunch.type.SortDirection;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Decoded cursor. value is the sort key of the row the cursor was made from, id is the
+ * tiebreaker. A backward cursor reads the rows before that row.
+ */
+@Getter
+@RequiredArgsConstructor
+public class Cursor {
+
+  private final boolean backward;
+  private final long id;
+  private final String value;
+
+  /**
+   * Direction to read rows in. Reversed from the requested direction when reading backward.
+   */
+  public static SortDirection readDirection(SortDirection direction, Cursor cursor) {
+    if (cursor == null || !cursor.isBackward()) {
+      return direction;
+    }
+    return direction == SortDirection.ASC ? SortDirection.DESC : SortDirection.ASC;
+  }
+
+  public long getLongValue() {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new InvalidCursorException();
+    }
+  }
+
+  public double getDoubleValue() {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new InvalidCursorException();
+    }
+  }
+
+  public LocalDateTime getDateTimeValue() {
+    try {
+      return LocalDateTime.parse(value);
+    } catch (DateTimeParseException e) {
+      throw new InvalidCursorException();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.marceldev.ourcompanylunch.dto.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A slice of a list read with a cursor. There is no total count. Pass nextCursor to get the next
+ * slice, prevCursor to get the previous slice. Each is null when there is nothing to read in that
+ * direction.
+ */
+@Getter
+@Builder
+public class CursorSliceResponse<T> {
+
+  private final List<T> content;
+  private final int size;
+  private final boolean hasNext;
+  private final boolean hasPrevious;
+  private final String nextCursor;
+  private final String prevCursor;
+
+  /**
+   * Build a slice from rows read with limit size + 1 in the read direction of the cursor. Rows read
+   * backward are reversed, so content is always in the requested order.
+   *
+   * @param encoder makes a cursor from a row. The boolean argument is true for a backward cursor.
+   */
+  public static <T> CursorSliceResponse<T> of(List<T> rows, int size, Cursor cursor,
+      BiFunction<T, Boolean, String> encoder) {
+    boolean backward = cursor != null && cursor.isBackward();
+    boolean more = rows.size() > size;
+
+    List<T> content = new ArrayList<>(more ? rows.subList(0, size) : rows);
+    if (backward) {
+      Collections.reverse(content);
+    }
+
+    // Reading forward, there are rows before unless it's the first slice.
+    // Reading backward, there are rows after the cursor row.
+    boolean hasNext = backward || more;
+    boolean hasPrevious = backward ? more : cursor != null;
+
+    String nextCursor = null;
+    String prevCursor = null;
+    if (!content.isEmpty()) {
+      nextCursor = hasNext ? encoder.apply(content.get(content.size() - 1), false) : null;
+      prevCursor = hasPrevious ? encoder.apply(content.get(0), true) : null;
+    }
+
+    return CursorSliceResponse.<T>builder()
+        .content(content)
+        .size(content.size())
+        .hasNext(nextCursor != null)
+        .hasPrevious(prevCursor != null)
+        .nextCursor(nextCursor)
+        .prevCursor(prevCursor)
+        .build();
+  }
+
+  public <R> CursorSliceResponse<R> map(Function<T, R> converter) {
+    return CursorSliceResponse.<R>builder()
+        .content(content.stream().map(converter).toList())
+        .size(size)
+        .hasNext(hasNext)
+        .hasPrevious(hasPrevious)
+        .nextCursor(nextCursor)
+        .prevCursor(prevCursor)
+        .build();
+  }
+}
@@ -17,6 +17,10 @@ public class GetCompanyListRequest {
   @PositiveOrZero
   private int page;
 
+  @Schema(description = "Cursor mode. Empty for the first slice, then nextCursor of the "
+      + "previous slice. page is ignored.")
+  private String cursor;
+
   @Schema(example = "10")
   @Positive
   private int size;
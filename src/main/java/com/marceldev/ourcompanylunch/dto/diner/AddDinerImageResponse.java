@@ -1,6 +1,7 @@
 package com.marceldev.ourcompanylunch.dto.diner;
 
 import com.marceldev.ourcompanylunch.entity.DinerImage;
+import com.marceldev.ourcompanylunch.type.ThumbnailStatus;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -9,17 +10,20 @@ public class AddDinerImageResponse {
 
   private final Long id;
   private final int orders;
+  private final ThumbnailStatus thumbnailStatus;
 
   @Builder
-  private AddDinerImageResponse(Long id, int orders) {
+  private AddDinerImageResponse(Long id, int orders, ThumbnailStatus thumbnailStatus) {
     this.id = id;
     this.orders = orders;
+    this.thumbnailStatus = thumbnailStatus;
   }
 
   public static AddDinerImageResponse of(DinerImage dinerImage) {
     return AddDinerImageResponse.builder()
         .id(dinerImage.getId())
         .orders(dinerImage.getOrders())
+        .thumbnailStatus(dinerImage.getThumbnailStatus())
         .build();
   }
 }
@@ -0,0 +1,21 @@
+package com.marceldev.ourcompanylunch.dto.diner;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@NoArgsConstructor
+public class CreateDinerImageUploadUrlRequest {
+
+  @NotBlank
+  @Schema(example = "food.jpg")
+  private String filename;
+
+  @Builder
+  private CreateDinerImageUploadUrlRequest(String filename) {
+    this.filename = filename;
+  }
+}
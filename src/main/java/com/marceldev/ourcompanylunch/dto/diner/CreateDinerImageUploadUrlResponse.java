@@ -0,0 +1,27 @@
+package com.marceldev.ourcompanylunch.dto.diner;
+
+import java.time.LocalDateTime;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * PUT the image to uploadUrl with the Content-Type header, then complete with the key before
+ * expirationAt.
+ */
+@Getter
+public class CreateDinerImageUploadUrlResponse {
+
+  private final String uploadUrl;
+  private final String contentType;
+  private final String key;
+  private final LocalDateTime expirationAt;
+
+  @Builder
+  private CreateDinerImageUploadUrlResponse(String uploadUrl, String contentType, String key,
+      LocalDateTime expirationAt) {
+    this.uploadUrl = uploadUrl;
+    this.contentType = contentType;
+    this.key = key;
+    this.expirationAt = expirationAt;
+  }
+}
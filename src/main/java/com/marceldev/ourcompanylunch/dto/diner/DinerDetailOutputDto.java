@@ -1,8 +1,8 @@
 package com.marceldev.ourcompanylunch.dto.diner;
 
-import com.marceldev.ourcompanylunch.entity.Diner;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import lombok.Builder;
 import lombok.Data;
@@ -20,11 +20,15 @@ public class DinerDetailOutputDto {
   private LinkedHashSet<String> tags;
   private List<String> thumbnailUrls;
   private List<String> imageUrls;
+  /**
+   * Width to URL of each image in imageUrls, like srcset.
+   */
+  private List<Map<Integer, String>> imageVariantUrls;
   private long commentCount;
   private Integer distanceInMeter;
 
-  public static DinerDetailOutputDto of(Diner diner, List<String> thumbnailUrls,
-      List<String> imageUrls, Integer distance) {
+  public static DinerDetailOutputDto of(DinerDetailQueryDto diner, List<String> thumbnailUrls,
+      List<String> imageUrls, List<Map<Integer, String>> imageVariantUrls) {
     return DinerDetailOutputDto.builder()
         .id(diner.getId())
         .name(diner.getName())
@@ -34,8 +38,11 @@ public class DinerDetailOutputDto {
         .tags(diner.getTags())
         .thumbnailUrls(thumbnailUrls)
         .imageUrls(imageUrls)
-        .commentCount(diner.getComments().size())
-        .distanceInMeter(distance)
+        .imageVariantUrls(imageVariantUrls)
+        .commentCount(diner.getCommentCount())
+        .distanceInMeter(Optional.ofNullable(diner.getDistanceInMeter())
+            .map(Double::intValue)
+            .orElse(null))
         .build();
   }
 }
@@ -0,0 +1,43 @@
+package com.marceldev.ourcompanylunch.dto.diner;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+import org.locationtech.jts.geom.Point;
+
+/**
+ * Diner detail read by a single projection query. Image keys are split into originals and
+ * thumbnails. The variant widths are of each original, in the same order.
+ */
+@Getter
+public class DinerDetailQueryDto {
+
+  private final Long id;
+  private final String name;
+  private final String link;
+  private final Point location;
+  private final LinkedHashSet<String> tags;
+  private final long commentCount;
+  private final Double distanceInMeter;
+  private final List<String> imageKeys;
+  private final List<String> thumbnailKeys;
+  private final List<List<Integer>> imageVariantWidths;
+
+  @Builder
+  private DinerDetailQueryDto(Long id, String name, String link, Point location,
+      LinkedHashSet<String> tags, long commentCount, Double distanceInMeter,
+      List<String> imageKeys, List<String> thumbnailKeys,
+      List<List<Integer>> imageVariantWidths) {
+    this.id = id;
+    this.name = name;
+    this.link = link;
+    this.location = location;
+    this.tags = tags;
+    this.commentCount = commentCount;
+    this.distanceInMeter = distanceInMeter;
+    this.imageKeys = imageKeys;
+    this.thumbnailKeys = thumbnailKeys;
+    this.imageVariantWidths = imageVariantWidths;
+  }
+}
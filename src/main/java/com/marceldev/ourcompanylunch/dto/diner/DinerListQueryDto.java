@@ -0,0 +1,33 @@
+package com.marceldev.ourcompanylunch.dto.diner;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import lombok.Getter;
+import org.locationtech.jts.geom.Point;
+
+/**
+ * Columns of a diner needed by the diner list. Read as a projection, so values come from DB even
+ * when the diner entity is already loaded in the persistence context.
+ */
+@Getter
+public class DinerListQueryDto {
+
+  private final Long id;
+  private final String name;
+  private final String link;
+  private final Point location;
+  private final LinkedHashSet<String> tags;
+  private final long commentCount;
+  private final double distanceInMeter;
+
+  public DinerListQueryDto(Long id, String name, String link, Point location, Set<String> tags,
+      long commentCount, double distanceInMeter) {
+    this.id = id;
+    this.name = name;
+    this.link = link;
+    this.location = location;
+    this.tags = tags != null ? new LinkedHashSet<>(tags) : new LinkedHashSet<>();
+    this.commentCount = commentCount;
+    this.distanceInMeter = distanceInMeter;
+  }
+}
@@ -0,0 +1,15 @@
+package com.marceldev.ourcompanylunch.dto.diner;
+
+import lombok.Getter;
+
+@Getter
+public class DinerTagFacetDto {
+
+  private final String tag;
+  private final int count;
+
+  public DinerTagFacetDto(String tag, int count) {
+    this.tag = tag;
+    this.count = count;
+  }
+}
@@ -2,10 +2,12 @@ package com.marceldev.ourcompanylunch.dto.diner;
 
 import com.marceldev.ourcompanylunch.type.DinerSort;
 import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.type.TagMatch;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
+import java.util.List;
 import lombok.Builder;
 import lombok.Data;
 
@@ -16,10 +18,21 @@ public class GetDinerListRequest {
   @Schema(example = "Noodle")
   private String keyword;
 
+  @Schema(example = "Korean,Spicy")
+  private List<String> tags;
+
+  @Schema(description = "ALL: diners having every tag. ANY: diners having one of the tags.",
+      example = "ALL", allowableValues = {"ALL", "ANY"})
+  private TagMatch tagMatch;
+
   @Schema
   @PositiveOrZero
   private int page;
 
+  @Schema(description = "Cursor mode. Empty for the first slice, then nextCursor of the "
+      + "previous slice. page is ignored.")
+  private String cursor;
+
   @Schema(example = "10")
   @Positive
   private int size;
@@ -28,7 +41,8 @@ public class GetDinerListRequest {
   @Schema(example = "DINER_NAME", allowableValues = {
       "DINER_NAME",
       "COMMENTS_COUNT",
-      "DISTANCE"
+      "DISTANCE",
+      "RELEVANCE"
   })
   private DinerSort sortBy;
 
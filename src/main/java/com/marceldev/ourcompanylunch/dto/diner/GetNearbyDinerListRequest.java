@@ -0,0 +1,46 @@
+package com.marceldev.ourcompanylunch.dto.diner;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.marceldev.ourcompanylunch.util.LocationUtil;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Builder;
+import lombok.Data;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+@Data
+@Builder
+public class GetNearbyDinerListRequest {
+
+  @NotNull
+  @Schema(example = "37.4989021")
+  private Double lat;
+
+  @NotNull
+  @Schema(example = "127.0276099")
+  private Double lng;
+
+  @NotNull
+  @Positive
+  @Max(10000)
+  @Schema(example = "500", description = "Radius in meter")
+  private Integer radius;
+
+  @Positive
+  @Max(100)
+  @Schema(example = "20")
+  private int size;
+
+  @JsonIgnore
+  public Point getCenter() {
+    return LocationUtil.createPoint(lat, lng);
+  }
+
+  @JsonIgnore
+  public Polygon getBoundingBox() {
+    return LocationUtil.createBoundingBox(lat, lng, radius);
+  }
+}
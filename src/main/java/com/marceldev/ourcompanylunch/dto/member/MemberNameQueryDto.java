@@ -0,0 +1,5 @@
+package com.marceldev.ourcompanylunch.dto.member;
+
+public record MemberNameQueryDto(Long id, String name) {
+
+}
@@ -13,13 +13,18 @@ public class GetReplyListRequest {
   @PositiveOrZero
   private int page;
 
+  @Schema(description = "Cursor mode. Empty for the first slice, then nextCursor or prevCursor "
+      + "of the previous response. page is ignored.")
+  private String cursor;
+
   @Schema(example = "10")
   @Positive
   private int size;
 
   @Builder
-  private GetReplyListRequest(int page, int size) {
+  private GetReplyListRequest(int page, String cursor, int size) {
     this.page = page;
+    this.cursor = cursor;
     this.size = size;
   }
 
@@ -0,0 +1,95 @@
+package com.marceldev.ourcompanylunch.entity;
+
+import com.marceldev.ourcompanylunch.util.NgramUtil;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.io.Serializable;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Bigram index of comment content. One row per (comment, bigram) with how many times the bigram
+ * appears. Maintained by CommentService when a comment is written.
+ * <p>
+ * The key is (commentId, token) instead of a generated id, so the rows of a comment can be
+ * inserted in a JDBC batch. On MariaDB, token is compared in binary (schema-mariadb.sql), as the
+ * default collation takes bigrams differing only in case or accents as the same key.
+ */
+@NoArgsConstructor
+@Getter
+@ToString
+@Entity
+@IdClass(CommentSearchToken.Key.class)
+@Table(indexes = @Index(name = "idx_comment_search_token_diner_token",
+    columnList = "dinerId, token"))
+public class CommentSearchToken implements Persistable<CommentSearchToken.Key> {
+
+  @Id
+  private Long commentId;
+
+  @Id
+  @Column(length = 8)
+  private String token;
+
+  @Column(nullable = false)
+  private Long dinerId;
+
+  @Setter
+  @Column(nullable = false)
+  private int frequency;
+
+  @Transient
+  private boolean isNew = true;
+
+  public CommentSearchToken(long commentId, String token, long dinerId, int frequency) {
+    this.commentId = commentId;
+    this.token = token;
+    this.dinerId = dinerId;
+    this.frequency = frequency;
+  }
+
+  public static List<CommentSearchToken> listOf(long commentId, long dinerId, String content) {
+    return NgramUtil.countGrams(content).entrySet().stream()
+        .map(entry -> new CommentSearchToken(commentId, entry.getKey(), dinerId,
+            entry.getValue()))
+        .toList();
+  }
+
+  @Override
+  public Key getId() {
+    return new Key(commentId, token);
+  }
+
+  @Override
+  public boolean isNew() {
+    return isNew;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() {
+    isNew = false;
+  }
+
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static class Key implements Serializable {
+
+    private Long commentId;
+    private String token;
+  }
+}
@@ -41,6 +41,7 @@ public class Company extends BaseEntity {
   @Setter
   private boolean enterKeyEnabled;
 
+  @Column(nullable = false)
   @Setter
   private Point location;
 
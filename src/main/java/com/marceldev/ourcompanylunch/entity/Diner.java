@@ -19,6 +19,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 import org.locationtech.jts.geom.Point;
@@ -44,6 +45,7 @@ public class Diner extends BaseEntity {
   @Setter
   private String link;
 
+  @Column(nullable = false)
   @Setter
   private Point location;
 
@@ -54,6 +56,22 @@ public class Diner extends BaseEntity {
   @OneToMany(mappedBy = "diner", fetch = FetchType.LAZY)
   private List<DinerImage> dinerImages;
 
+  /**
+   * Denormalized count of comments. Kept up to date by CommentService with single UPDATE
+   * statements, so listing diners doesn't need to aggregate the comment table.
+   */
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private long commentCount;
+
+  /**
+   * Distance to the company in meter. Recomputed in DB when the diner or the company moves, so
+   * reads don't compute ST_Distance_Sphere per row.
+   */
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private double distanceInMeter;
+
   @Setter
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "company_id", nullable = false)
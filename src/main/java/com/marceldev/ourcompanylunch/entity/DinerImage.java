@@ -1,20 +1,26 @@
 package com.marceldev.ourcompanylunch.entity;
 
+import com.marceldev.ourcompanylunch.type.ThumbnailStatus;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @NoArgsConstructor
@@ -30,7 +36,10 @@ public class DinerImage extends BaseEntity {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
 
-  @Column(length = 2048, nullable = false)
+  /**
+   * Unique, as removing an image deletes the object of the key.
+   */
+  @Column(length = 2048, nullable = false, unique = true)
   @Setter
   private String s3Key;
 
@@ -40,6 +49,24 @@ public class DinerImage extends BaseEntity {
   @Column(nullable = false)
   private boolean thumbnail;
 
+  /**
+   * Of an original image. Null for a thumbnail, and for an original added before thumbnails were
+   * made asynchronously.
+   */
+  @Column(length = 20)
+  @Enumerated(EnumType.STRING)
+  @Setter
+  private ThumbnailStatus thumbnailStatus;
+
+  /**
+   * Widths of the resized variants of an original, stored under diner/{id}/variants/{width}/. Set
+   * when the thumbnail is DONE.
+   */
+  @JdbcTypeCode(SqlTypes.JSON)
+  @Column(columnDefinition = "JSON")
+  @Setter
+  private List<Integer> variantWidths;
+
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "diner_id")
   private Diner diner;
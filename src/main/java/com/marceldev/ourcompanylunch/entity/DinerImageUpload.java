@@ -0,0 +1,45 @@
+package com.marceldev.ourcompanylunch.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * A presigned upload of a diner image that isn't completed yet. Counted as an image of the diner
+ * until it expires, so the max image count holds while the upload is in flight.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@ToString(exclude = "diner")
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+public class DinerImageUpload extends BaseEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(length = 2048, nullable = false, unique = true)
+  private String s3Key;
+
+  private LocalDateTime expirationAt;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "diner_id")
+  private Diner diner;
+}
@@ -0,0 +1,60 @@
+package com.marceldev.ourcompanylunch.entity;
+
+import com.marceldev.ourcompanylunch.type.OutboxType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * Event written in the same transaction as the change it describes. OutboxRelay sends it to
+ * Kafka after the commit and sets deliveredAt.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@ToString(exclude = "payload")
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Table(indexes = @Index(name = "idx_outbox_delivered_at", columnList = "deliveredAt, id"))
+public class Outbox extends BaseEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(length = 30, nullable = false)
+  @Enumerated(EnumType.STRING)
+  private OutboxType type;
+
+  /**
+   * Id of the entity the event is about. Diner id for a comment event.
+   */
+  @Column(nullable = false)
+  private Long aggregateId;
+
+  @Column(length = 2000, nullable = false)
+  private String payload;
+
+  private LocalDateTime deliveredAt;
+
+  /**
+   * Failed sends. The relay skips the event after the max attempts.
+   */
+  @Column(nullable = false)
+  private int attempts;
+}
@@ -0,0 +1,54 @@
+package com.marceldev.ourcompanylunch.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * A storage object to delete, written in the same transaction as the removal of its row.
+ * StorageDeletionRelay deletes the objects in batches after the commit.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@ToString
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Table(indexes = @Index(name = "idx_storage_deletion_next_attempt_at",
+    columnList = "nextAttemptAt, id"))
+public class StorageDeletion extends BaseEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(length = 2048, nullable = false)
+  private String s3Key;
+
+  /**
+   * Failed deletions. Moved to StorageDeletionDeadLetter after the max attempts.
+   */
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(nullable = false)
+  private LocalDateTime nextAttemptAt;
+
+  public void retryAt(LocalDateTime nextAttemptAt) {
+    this.attempts++;
+    this.nextAttemptAt = nextAttemptAt;
+  }
+}
@@ -0,0 +1,40 @@
+package com.marceldev.ourcompanylunch.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * A storage object not deleted after the max attempts. Kept to be looked into, not retried.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@ToString
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+public class StorageDeletionDeadLetter extends BaseEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(length = 2048, nullable = false)
+  private String s3Key;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(length = 1000)
+  private String lastError;
+}
@@ -0,0 +1,10 @@
+package com.marceldev.ourcompanylunch.event;
+
+/**
+ * Published by CommentService when a comment is written. Carries what the notifications need, so
+ * the handler doesn't read the member again.
+ */
+public record CommentCreatedEvent(long commentId, long dinerId, long senderId, String senderName,
+                                  String content) {
+
+}
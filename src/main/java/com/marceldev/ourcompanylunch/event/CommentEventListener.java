@@ -0,0 +1,27 @@
+package com.marceldev.ourcompanylunch.event;
+
+import com.marceldev.ourcompanylunch.config.AsyncConfig;
+import com.marceldev.ourcompanylunch.job.OutboxRelay;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Relays the outbox right after the comment is committed, instead of waiting for the next poll.
+ * Runs on the comment event executor, so the request returns without waiting for Kafka. A
+ * dropped or skipped relay only delays the notification until the next poll.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommentEventListener {
+
+  private final OutboxRelay outboxRelay;
+
+  @Async(AsyncConfig.COMMENT_EVENT_EXECUTOR)
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+  public void onCommentCreated(CommentCreatedEvent event) {
+    outboxRelay.relay();
+  }
+}
@@ -0,0 +1,8 @@
+package com.marceldev.ourcompanylunch.exception.common;
+
+public class InvalidCursorException extends CustomException {
+
+  public InvalidCursorException() {
+    super("Invalid cursor");
+  }
+}
@@ -0,0 +1,10 @@
+package com.marceldev.ourcompanylunch.exception.diner;
+
+import com.marceldev.ourcompanylunch.exception.common.CustomException;
+
+public class DinerImageUploadNotFoundException extends CustomException {
+
+  public DinerImageUploadNotFoundException(String key) {
+    super("No upload of the key: " + key);
+  }
+}
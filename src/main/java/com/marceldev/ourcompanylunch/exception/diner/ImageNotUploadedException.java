@@ -0,0 +1,10 @@
+package com.marceldev.ourcompanylunch.exception.diner;
+
+import com.marceldev.ourcompanylunch.exception.common.CustomException;
+
+public class ImageNotUploadedException extends CustomException {
+
+  public ImageNotUploadedException(String key) {
+    super("Image is not uploaded or is too large: " + key);
+  }
+}
@@ -0,0 +1,10 @@
+package com.marceldev.ourcompanylunch.exception.diner;
+
+import com.marceldev.ourcompanylunch.exception.common.CustomException;
+
+public class NotImageFileException extends CustomException {
+
+  public NotImageFileException(String filename) {
+    super("Not an image file: " + filename);
+  }
+}
@@ -2,6 +2,7 @@ package com.marceldev.ourcompanylunch.exception.handler;
 
 import com.marceldev.ourcompanylunch.dto.error.ErrorResponse;
 import com.marceldev.ourcompanylunch.exception.common.CustomException;
+import com.marceldev.ourcompanylunch.exception.common.InvalidCursorException;
 import com.marceldev.ourcompanylunch.exception.member.SignInFailException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +40,16 @@ public class GlobalExceptionHandler {
     return ErrorResponse.badRequest(1004, e.getMessage());
   }
 
+  @ExceptionHandler
+  public ResponseEntity<ErrorResponse> handler(
+      InvalidCursorException e,
+      HttpServletRequest request
+  ) {
+    log.error("InvalidCursorException, {}, {}", request.getRequestURI(), e.getMessage());
+
+    return ErrorResponse.badRequest(8001, e.getMessage());
+  }
+
   @ExceptionHandler
   public ResponseEntity<ErrorResponse> handleValidation(
       MethodArgumentNotValidException e,
@@ -0,0 +1,29 @@
+package com.marceldev.ourcompanylunch.job;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * POST /actuator/commentsearchtokens rebuilds the comment search tokens, for ADMIN only. A request
+ * while a rebuild is running returns at once, without a second rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "commentsearchtokens")
+public class CommentSearchTokenEndpoint {
+
+  private final RebuildCommentSearchTokenJob rebuildCommentSearchTokenJob;
+
+  @WriteOperation
+  public Map<String, Object> rebuild() {
+    OptionalLong indexed = rebuildCommentSearchTokenJob.rebuild();
+    if (indexed.isEmpty()) {
+      return Map.of("status", "RUNNING");
+    }
+    return Map.of("status", "DONE", "indexed", indexed.getAsLong());
+  }
+}
@@ -0,0 +1,228 @@
+package com.marceldev.ourcompanylunch.job;
+
+import com.marceldev.ourcompanylunch.component.KafkaCircuitBreaker;
+import com.marceldev.ourcompanylunch.entity.Outbox;
+import com.marceldev.ourcompanylunch.repository.outbox.OutboxRepository;
+import com.marceldev.ourcompanylunch.service.MessageProducerService;
+import com.marceldev.ourcompanylunch.service.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Sends the undelivered outbox events to Kafka in id order, a batch at a time. Every event of a
+ * batch is sent before waiting, so the producer batches the messages. Delivered events are marked
+ * in one update, and failed events are retried on the next poll up to the max attempts.
+ * <p>
+ * Runs on the schedule, and right after a comment is committed. Only one relay runs at a time in
+ * an instance.
+ * <p>
+ * When the broker is unavailable, the events are left as they are without counting the attempt,
+ * and KafkaCircuitBreaker stops the relay until the open duration passes.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+  private final OutboxRepository outboxRepository;
+
+  private final OutboxService outboxService;
+
+  private final MessageProducerService messageProducerService;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final KafkaCircuitBreaker circuitBreaker;
+
+  private final int batchSize;
+
+  private final int maxAttempts;
+
+  private final Duration sendTimeout;
+
+  private final Duration retention;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Counter deliveredCounter;
+
+  private final Counter failedCounter;
+
+  private final Counter unavailableCounter;
+
+  private final AtomicLong pending = new AtomicLong();
+
+  private final AtomicLong lagMillis = new AtomicLong();
+
+  public OutboxRelay(OutboxRepository outboxRepository, OutboxService outboxService,
+      MessageProducerService messageProducerService, TransactionTemplate transactionTemplate,
+      KafkaCircuitBreaker circuitBreaker, MeterRegistry meterRegistry,
+      @Value("${outbox.relay.batch-size:100}") int batchSize,
+      @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+      @Value("${outbox.relay.send-timeout:30s}") Duration sendTimeout,
+      @Value("${outbox.retention:7d}") Duration retention) {
+    this.outboxRepository = outboxRepository;
+    this.outboxService = outboxService;
+    this.messageProducerService = messageProducerService;
+    this.transactionTemplate = transactionTemplate;
+    this.circuitBreaker = circuitBreaker;
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.sendTimeout = sendTimeout;
+    this.retention = retention;
+    this.deliveredCounter = Counter.builder("outbox.relay.events")
+        .tag("result", "delivered")
+        .register(meterRegistry);
+    this.failedCounter = Counter.builder("outbox.relay.events")
+        .tag("result", "failed")
+        .register(meterRegistry);
+    this.unavailableCounter = Counter.builder("outbox.relay.events")
+        .tag("result", "unavailable")
+        .register(meterRegistry);
+    Gauge.builder("outbox.pending", pending, AtomicLong::get)
+        .description("Undelivered outbox events at the last relay")
+        .register(meterRegistry);
+    TimeGauge.builder("outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+        .description("Age of the oldest undelivered outbox event at the last relay")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+  public void relay() {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      // A full batch means there may be more.
+      while (circuitBreaker.allowRequest() && relayBatch() == batchSize) {
+        log.debug("Relaying next outbox batch");
+      }
+      updateLag();
+    } catch (RuntimeException e) {
+      // Such as a database error. A trial left half open would let nothing through again.
+      circuitBreaker.failTrial();
+      throw e;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Scheduled(cron = "${outbox.cleanup.cron:0 30 3 * * *}")
+  public void cleanUp() {
+    LocalDateTime before = LocalDateTime.now().minus(retention);
+    Integer deleted = transactionTemplate.execute(
+        status -> outboxRepository.deleteDeliveredBefore(before));
+    log.info("Deleted {} outbox events delivered before {}", deleted, before);
+  }
+
+  /**
+   * Returns the number of events delivered. Less than the batch size if any event failed, so the
+   * failed events wait for the next poll.
+   */
+  private int relayBatch() {
+    List<Outbox> events = outboxRepository.findAllByDeliveredAtIsNullAndAttemptsLessThanOrderByIdAsc(
+        maxAttempts, PageRequest.of(0, batchSize));
+    if (events.isEmpty()) {
+      circuitBreaker.cancelTrial();
+      return 0;
+    }
+
+    Map<Long, CompletableFuture<Void>> sends = new LinkedHashMap<>();
+    for (Outbox event : events) {
+      CompletableFuture<Void> send = send(event);
+      sends.put(event.getId(), send);
+      // Failed at once after waiting max.block.ms for the metadata. The rest would wait as long.
+      if (send.isCompletedExceptionally()
+          && KafkaCircuitBreaker.isBrokerFailure(send.exceptionNow())) {
+        break;
+      }
+    }
+
+    List<Long> delivered = new ArrayList<>();
+    List<Long> failed = new ArrayList<>();
+    List<Long> unavailable = new ArrayList<>();
+    sends.forEach((id, send) -> {
+      Throwable error = await(id, send);
+      if (error == null) {
+        delivered.add(id);
+      } else if (KafkaCircuitBreaker.isBrokerFailure(error)) {
+        unavailable.add(id);
+      } else {
+        failed.add(id);
+      }
+    });
+
+    transactionTemplate.executeWithoutResult(status -> {
+      if (!delivered.isEmpty()) {
+        outboxRepository.markDelivered(delivered, LocalDateTime.now());
+      }
+      if (!failed.isEmpty()) {
+        outboxRepository.increaseAttempts(failed);
+      }
+    });
+    deliveredCounter.increment(delivered.size());
+    failedCounter.increment(failed.size());
+    unavailableCounter.increment(unavailable.size());
+
+    if (unavailable.isEmpty()) {
+      circuitBreaker.recordSuccess();
+    } else {
+      circuitBreaker.recordFailure();
+    }
+    return failed.isEmpty() && unavailable.isEmpty() ? delivered.size() : 0;
+  }
+
+  private CompletableFuture<Void> send(Outbox event) {
+    try {
+      return switch (event.getType()) {
+        case COMMENT_CREATED -> messageProducerService.produceForDinerSubscribers(
+            outboxService.readCommentCreated(event));
+      };
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Returns null if delivered, or the error.
+   */
+  private Throwable await(long id, CompletableFuture<Void> send) {
+    try {
+      send.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+      return null;
+    } catch (ExecutionException | TimeoutException e) {
+      log.warn("Outbox event {} not delivered: {}", id, e.getMessage());
+      return e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return e;
+    }
+  }
+
+  private void updateLag() {
+    pending.set(outboxRepository.countByDeliveredAtIsNullAndAttemptsLessThan(maxAttempts));
+    lagMillis.set(outboxRepository.findFirstByDeliveredAtIsNullAndAttemptsLessThanOrderByIdAsc(
+            maxAttempts)
+        .map(event -> Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis())
+        .orElse(0L));
+  }
+}
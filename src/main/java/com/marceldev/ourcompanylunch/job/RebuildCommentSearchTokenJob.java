@@ -0,0 +1,86 @@
+package com.marceldev.ourcompanylunch.job;
+
+import com.marceldev.ourcompanylunch.entity.Comment;
+import com.marceldev.ourcompanylunch.entity.CommentSearchToken;
+import com.marceldev.ourcompanylunch.repository.comment.CommentRepository;
+import com.marceldev.ourcompanylunch.repository.comment.CommentSearchTokenRepository;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Rebuilds the comment search tokens from the comment content. Run it on start with
+ * job.rebuild-comment-search-token.enabled=true, or without a restart through
+ * CommentSearchTokenEndpoint. Comments are re-indexed in id ranges, each in its own transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RebuildCommentSearchTokenJob implements ApplicationRunner {
+
+  private static final long CHUNK_SIZE = 500;
+
+  @Value("${job.rebuild-comment-search-token.enabled:false}")
+  private boolean enabledOnStart;
+
+  private final CommentRepository commentRepository;
+
+  private final CommentSearchTokenRepository commentSearchTokenRepository;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (enabledOnStart) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Returns the number of comments re-indexed, or empty if a rebuild is running already.
+   */
+  public OptionalLong rebuild() {
+    if (!lock.tryLock()) {
+      return OptionalLong.empty();
+    }
+    try {
+      return OptionalLong.of(rebuildAll());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long rebuildAll() {
+    Long maxId = commentRepository.findMaxId();
+    if (maxId == null) {
+      log.info("No comment to rebuild search tokens");
+      return 0;
+    }
+
+    long indexed = 0;
+    for (long fromId = 1; fromId <= maxId; fromId += CHUNK_SIZE) {
+      long from = fromId;
+      long to = fromId + CHUNK_SIZE - 1;
+      Integer count = transactionTemplate.execute(status -> {
+        commentSearchTokenRepository.deleteByCommentIdBetween(from, to);
+        List<Comment> comments = commentRepository.findAllByIdBetween(from, to);
+        comments.forEach(comment -> commentSearchTokenRepository.saveAll(
+            CommentSearchToken.listOf(comment.getId(), comment.getDiner().getId(),
+                comment.getContent())));
+        return comments.size();
+      });
+      indexed += count != null ? count : 0;
+    }
+    log.info("Rebuilt search tokens of {} comments", indexed);
+    return indexed;
+  }
+}
@@ -0,0 +1,48 @@
+package com.marceldev.ourcompanylunch.job;
+
+import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One-time job that fills Diner.commentCount from the comment table. Enable it with
+ * job.rebuild-diner-comment-count.enabled=true for a single start, then turn it off again.
+ * Diners are recounted in id ranges, each in its own transaction, to keep row locks short.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "job.rebuild-diner-comment-count.enabled", havingValue = "true")
+public class RebuildDinerCommentCountJob implements ApplicationRunner {
+
+  private static final long CHUNK_SIZE = 1000;
+
+  private final DinerRepository dinerRepository;
+
+  private final TransactionTemplate transactionTemplate;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    Long maxId = dinerRepository.findMaxId();
+    if (maxId == null) {
+      log.info("No diner to rebuild comment count");
+      return;
+    }
+
+    long updated = 0;
+    for (long fromId = 1; fromId <= maxId; fromId += CHUNK_SIZE) {
+      long from = fromId;
+      long to = fromId + CHUNK_SIZE - 1;
+      Integer count = transactionTemplate.execute(
+          status -> dinerRepository.rebuildCommentCount(from, to)
+      );
+      updated += count != null ? count : 0;
+    }
+    log.info("Rebuilt comment count of {} diners", updated);
+  }
+}
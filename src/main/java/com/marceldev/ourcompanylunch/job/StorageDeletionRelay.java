@@ -0,0 +1,180 @@
+package com.marceldev.ourcompanylunch.job;
+
+import com.marceldev.ourcompanylunch.component.S3Manager;
+import com.marceldev.ourcompanylunch.entity.StorageDeletion;
+import com.marceldev.ourcompanylunch.entity.StorageDeletionDeadLetter;
+import com.marceldev.ourcompanylunch.repository.storage.StorageDeletionDeadLetterRepository;
+import com.marceldev.ourcompanylunch.repository.storage.StorageDeletionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes the queued storage objects in id order, a DeleteObjects request per batch. A key not
+ * deleted is retried with a doubling backoff, and moved to the dead letter table after the max
+ * attempts. When the whole request fails, every key of the batch is retried the same way.
+ * <p>
+ * Only one relay runs at a time in an instance.
+ */
+@Slf4j
+@Component
+public class StorageDeletionRelay {
+
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  private final StorageDeletionRepository storageDeletionRepository;
+
+  private final StorageDeletionDeadLetterRepository deadLetterRepository;
+
+  private final S3Manager s3Manager;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final int batchSize;
+
+  private final int maxAttempts;
+
+  private final Duration retryBackoff;
+
+  private final Duration maxRetryBackoff;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Counter deletedCounter;
+
+  private final Counter retriedCounter;
+
+  private final Counter deadCounter;
+
+  private final AtomicLong pending = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  public StorageDeletionRelay(StorageDeletionRepository storageDeletionRepository,
+      StorageDeletionDeadLetterRepository deadLetterRepository, S3Manager s3Manager,
+      TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+      @Value("${storage.deletion.batch-size:1000}") int batchSize,
+      @Value("${storage.deletion.max-attempts:8}") int maxAttempts,
+      @Value("${storage.deletion.retry-backoff:1m}") Duration retryBackoff,
+      @Value("${storage.deletion.max-retry-backoff:6h}") Duration maxRetryBackoff) {
+    this.storageDeletionRepository = storageDeletionRepository;
+    this.deadLetterRepository = deadLetterRepository;
+    this.s3Manager = s3Manager;
+    this.transactionTemplate = transactionTemplate;
+    this.batchSize = Math.min(batchSize, S3Manager.MAX_DELETE_KEYS);
+    this.maxAttempts = maxAttempts;
+    this.retryBackoff = retryBackoff;
+    this.maxRetryBackoff = maxRetryBackoff;
+    this.deletedCounter = Counter.builder("storage.deletion.keys")
+        .tag("result", "deleted")
+        .register(meterRegistry);
+    this.retriedCounter = Counter.builder("storage.deletion.keys")
+        .tag("result", "retried")
+        .register(meterRegistry);
+    this.deadCounter = Counter.builder("storage.deletion.keys")
+        .tag("result", "dead")
+        .register(meterRegistry);
+    Gauge.builder("storage.deletion.pending", pending, AtomicLong::get)
+        .description("Queued storage deletions at the last relay")
+        .register(meterRegistry);
+    Gauge.builder("storage.deletion.failed", failed, AtomicLong::get)
+        .description("Storage deletions in the dead letter table at the last relay")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${storage.deletion.interval-ms:10000}")
+  public void relay() {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      // A full batch means there may be more.
+      while (relayBatch() == batchSize) {
+        log.debug("Relaying next storage deletion batch");
+      }
+      pending.set(storageDeletionRepository.count());
+      failed.set(deadLetterRepository.count());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of keys taken off the queue, or 0 if any key failed. So the relay stops
+   * when the storage is failing.
+   */
+  private int relayBatch() {
+    LocalDateTime now = LocalDateTime.now();
+    List<StorageDeletion> deletions = storageDeletionRepository
+        .findAllByNextAttemptAtLessThanEqualOrderByIdAsc(now, PageRequest.of(0, batchSize));
+    if (deletions.isEmpty()) {
+      return 0;
+    }
+
+    Map<String, String> errors;
+    try {
+      errors = s3Manager.removeFiles(deletions.stream().map(StorageDeletion::getS3Key).toList());
+    } catch (RuntimeException e) {
+      log.warn("Storage deletion batch failed: {}", e.getMessage());
+      String error = String.valueOf(e.getMessage());
+      errors = deletions.stream()
+          .collect(Collectors.toMap(StorageDeletion::getS3Key, deletion -> error,
+              (first, second) -> first));
+    }
+
+    List<StorageDeletion> dequeued = new ArrayList<>();
+    List<StorageDeletion> retried = new ArrayList<>();
+    List<StorageDeletionDeadLetter> dead = new ArrayList<>();
+    for (StorageDeletion deletion : deletions) {
+      String error = errors.get(deletion.getS3Key());
+      if (error == null) {
+        dequeued.add(deletion);
+      } else if (deletion.getAttempts() + 1 >= maxAttempts) {
+        log.error("Storage deletion of {} failed {} times: {}", deletion.getS3Key(),
+            deletion.getAttempts() + 1, error);
+        dequeued.add(deletion);
+        dead.add(StorageDeletionDeadLetter.builder()
+            .s3Key(deletion.getS3Key())
+            .attempts(deletion.getAttempts() + 1)
+            .lastError(error.length() > MAX_ERROR_LENGTH
+                ? error.substring(0, MAX_ERROR_LENGTH) : error)
+            .build());
+      } else {
+        deletion.retryAt(now.plus(getBackoff(deletion.getAttempts())));
+        retried.add(deletion);
+      }
+    }
+
+    transactionTemplate.executeWithoutResult(status -> {
+      storageDeletionRepository.deleteAllInBatch(dequeued);
+      storageDeletionRepository.saveAll(retried);
+      deadLetterRepository.saveAll(dead);
+    });
+    deletedCounter.increment(dequeued.size() - dead.size());
+    retriedCounter.increment(retried.size());
+    deadCounter.increment(dead.size());
+    return errors.isEmpty() ? dequeued.size() : 0;
+  }
+
+  /**
+   * Doubled on each failed attempt, up to the max.
+   */
+  private Duration getBackoff(int attempts) {
+    Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts, 30));
+    return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+  }
+}
@@ -0,0 +1,358 @@
+package com.marceldev.ourcompanylunch.job;
+
+import com.marceldev.ourcompanylunch.component.S3Manager;
+import com.marceldev.ourcompanylunch.component.S3Manager.StoredFile;
+import com.marceldev.ourcompanylunch.entity.DinerImage;
+import com.marceldev.ourcompanylunch.repository.diner.DinerImageRepository;
+import com.marceldev.ourcompanylunch.service.StorageDeletionService;
+import com.marceldev.ourcompanylunch.util.DinerImageKeyUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Finds the files in storage without a DinerImage, and the DinerImages without their file. Both
+ * sides are read in key order, the files a listing page at a time and the images a chunk at a
+ * time, and merged by the diner/{id}/ prefix. So only the keys of one diner are held at a time.
+ * <p>
+ * A file without an image is deleted through the storage deletion queue, and an image without its
+ * file is deleted. A missing variant is only reported. In dry run, nothing is deleted.
+ * <p>
+ * The images are deleted at the end of the run, and the run stops without deleting any if no file
+ * was listed or the images without file exceed the max ratio of all images. A wrong bucket, prefix
+ * or credentials would list few files, and every image would look like one without its file.
+ * <p>
+ * Files newer than the min age are skipped, since an upload is stored before its image is saved.
+ * So are the images changed after the run started. The run stops if either side isn't in key
+ * order, as the merge would find orphans that aren't.
+ */
+@Slf4j
+@Component
+public class StorageReconciler {
+
+  private static final String PREFIX = "diner/";
+
+  private final DinerImageRepository dinerImageRepository;
+
+  private final StorageDeletionService storageDeletionService;
+
+  private final S3Manager s3Manager;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final int chunkSize;
+
+  private final boolean dryRun;
+
+  private final Duration minAge;
+
+  private final double maxOrphanImageRatio;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final MeterRegistry meterRegistry;
+
+  private final AtomicLong scannedFiles = new AtomicLong();
+
+  private final AtomicLong scannedImages = new AtomicLong();
+
+  public StorageReconciler(DinerImageRepository dinerImageRepository,
+      StorageDeletionService storageDeletionService, S3Manager s3Manager,
+      TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+      @Value("${storage.reconciler.chunk-size:1000}") int chunkSize,
+      @Value("${storage.reconciler.dry-run:true}") boolean dryRun,
+      @Value("${storage.reconciler.min-age:1d}") Duration minAge,
+      @Value("${storage.reconciler.max-orphan-image-ratio:0.1}") double maxOrphanImageRatio) {
+    this.dinerImageRepository = dinerImageRepository;
+    this.storageDeletionService = storageDeletionService;
+    this.s3Manager = s3Manager;
+    this.transactionTemplate = transactionTemplate;
+    this.meterRegistry = meterRegistry;
+    this.chunkSize = chunkSize;
+    this.dryRun = dryRun;
+    this.minAge = minAge;
+    this.maxOrphanImageRatio = maxOrphanImageRatio;
+    Gauge.builder("storage.reconciler.scanned", scannedFiles, AtomicLong::get)
+        .description("Files scanned by the running or the last reconciliation")
+        .tag("side", "storage")
+        .register(meterRegistry);
+    Gauge.builder("storage.reconciler.scanned", scannedImages, AtomicLong::get)
+        .description("Images scanned by the running or the last reconciliation")
+        .tag("side", "database")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(cron = "${storage.reconciler.cron:0 0 4 * * *}")
+  public void reconcile() {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      new Run().execute();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * State of one reconciliation. The files without image are deleted a chunk at a time, and the
+   * images without file at the end.
+   */
+  private class Run {
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private final Instant storedBefore = Instant.now().minus(minAge);
+
+    private final List<String> orphanFiles = new ArrayList<>();
+
+    private final List<Long> orphanImages = new ArrayList<>();
+
+    private final long maxOrphanImages = (long) (dinerImageRepository.count()
+        * maxOrphanImageRatio);
+
+    private void execute() {
+      log.info("Reconciling storage under {}, dry run: {}", PREFIX, dryRun);
+      scannedFiles.set(0);
+      scannedImages.set(0);
+
+      try (Stream<StoredFile> files = s3Manager.listFiles(PREFIX)) {
+        Iterator<Group<StoredFile>> fileGroups = new PrefixGroups<>(
+            files.peek(file -> scannedFiles.incrementAndGet()).iterator(), StoredFile::key);
+        Iterator<Group<DinerImage>> imageGroups = new PrefixGroups<>(new ImageChunks(),
+            DinerImage::getS3Key);
+
+        Group<StoredFile> fileGroup = nextOrNull(fileGroups);
+        Group<DinerImage> imageGroup = nextOrNull(imageGroups);
+        while (fileGroup != null || imageGroup != null) {
+          int compare = fileGroup == null ? 1
+              : imageGroup == null ? -1
+                  : fileGroup.prefix().compareTo(imageGroup.prefix());
+          reconcile(compare <= 0 ? fileGroup.items() : List.of(),
+              compare >= 0 ? imageGroup.items() : List.of());
+          if (compare <= 0) {
+            fileGroup = nextOrNull(fileGroups);
+          }
+          if (compare >= 0) {
+            imageGroup = nextOrNull(imageGroups);
+          }
+        }
+      }
+      flushFiles();
+      if (!dryRun && scannedFiles.get() == 0 && scannedImages.get() > 0) {
+        throw new IllegalStateException("No files under " + PREFIX + " but "
+            + scannedImages.get() + " images. Check the bucket and the credentials");
+      }
+      deleteImages();
+      log.info("Reconciled storage: {} files, {} images scanned", scannedFiles.get(),
+          scannedImages.get());
+    }
+
+    /**
+     * The files and the images of a diner.
+     */
+    private void reconcile(List<StoredFile> files, List<DinerImage> images) {
+      Set<String> stored = files.stream()
+          .map(StoredFile::key)
+          .collect(Collectors.toSet());
+      Set<String> expected = new HashSet<>();
+      Set<String> changed = new HashSet<>();
+      for (DinerImage image : images) {
+        Set<String> keys = isChanged(image) ? changed : expected;
+        DinerImageKeyUtil.storageKeys(image.getS3Key(), image.getVariantWidths())
+            .forEach(keys::add);
+      }
+
+      for (StoredFile file : files) {
+        if (!expected.contains(file.key()) && !changed.contains(file.key())
+            && file.lastModified().isBefore(storedBefore)) {
+          log.info("File without image: {}", file.key());
+          orphanFiles.add(file.key());
+        }
+      }
+      for (DinerImage image : images) {
+        if (isChanged(image)) {
+          continue;
+        }
+        if (!stored.contains(image.getS3Key())) {
+          log.info("Image {} without file: {}", image.getId(), image.getS3Key());
+          addOrphanImage(image);
+        } else {
+          DinerImageKeyUtil.storageKeys(image.getS3Key(), image.getVariantWidths())
+              .filter(key -> !stored.contains(key))
+              .forEach(key -> {
+                log.warn("Image {} without variant: {}", image.getId(), key);
+                count("variant", false, 1);
+              });
+        }
+      }
+
+      if (orphanFiles.size() >= chunkSize) {
+        flushFiles();
+      }
+    }
+
+    private void addOrphanImage(DinerImage image) {
+      if (dryRun) {
+        count("database", false, 1);
+        return;
+      }
+      orphanImages.add(image.getId());
+      if (orphanImages.size() > maxOrphanImages) {
+        throw new IllegalStateException("Images without file exceed " + maxOrphanImages
+            + ", the max ratio " + maxOrphanImageRatio + " of all images. Check the bucket");
+      }
+    }
+
+    private boolean isChanged(DinerImage image) {
+      return image.getUpdatedAt() != null && image.getUpdatedAt().isAfter(startedAt);
+    }
+
+    private void flushFiles() {
+      if (!dryRun && !orphanFiles.isEmpty()) {
+        transactionTemplate.executeWithoutResult(
+            status -> storageDeletionService.enqueue(orphanFiles));
+      }
+      count("storage", !dryRun, orphanFiles.size());
+      orphanFiles.clear();
+    }
+
+    private void deleteImages() {
+      for (int from = 0; from < orphanImages.size(); from += chunkSize) {
+        List<Long> chunk = orphanImages.subList(from,
+            Math.min(from + chunkSize, orphanImages.size()));
+        transactionTemplate.executeWithoutResult(
+            status -> dinerImageRepository.deleteAllByIdInBatch(chunk));
+        count("database", true, chunk.size());
+      }
+      orphanImages.clear();
+    }
+  }
+
+  private void count(String side, boolean deleted, int amount) {
+    Counter.builder("storage.reconciler.orphans")
+        .description("Files without an image, images without a file, and missing variants")
+        .tag("side", side)
+        .tag("action", deleted ? "deleted" : "reported")
+        .register(meterRegistry)
+        .increment(amount);
+  }
+
+  /**
+   * Images in key order, read a chunk at a time as the iteration reaches it.
+   */
+  private class ImageChunks implements Iterator<DinerImage> {
+
+    private Iterator<DinerImage> chunk = Collections.emptyIterator();
+
+    private DinerImage last;
+
+    private boolean lastChunk;
+
+    @Override
+    public boolean hasNext() {
+      while (!chunk.hasNext() && !lastChunk) {
+        List<DinerImage> images = last == null
+            ? dinerImageRepository.findChunkAfter("", 0, PageRequest.of(0, chunkSize))
+            : dinerImageRepository.findChunkAfter(last.getS3Key(), last.getId(),
+                PageRequest.of(0, chunkSize));
+        lastChunk = images.size() < chunkSize;
+        if (!images.isEmpty()) {
+          last = images.get(images.size() - 1);
+        }
+        chunk = images.iterator();
+      }
+      return chunk.hasNext();
+    }
+
+    @Override
+    public DinerImage next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      scannedImages.incrementAndGet();
+      return chunk.next();
+    }
+  }
+
+  private record Group<T>(String prefix, List<T> items) {
+
+  }
+
+  /**
+   * Consecutive items with the same diner prefix. Throws if the keys aren't in order, as a prefix
+   * could then come more than once.
+   */
+  private static class PrefixGroups<T> implements Iterator<Group<T>> {
+
+    private final Iterator<T> sorted;
+
+    private final Function<T, String> key;
+
+    private T next;
+
+    private String lastKey;
+
+    private PrefixGroups(Iterator<T> sorted, Function<T, String> key) {
+      this.sorted = sorted;
+      this.key = key;
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Group<T> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      String prefix = DinerImageKeyUtil.getDinerPrefix(key.apply(next));
+      List<T> items = new ArrayList<>();
+      while (next != null && DinerImageKeyUtil.getDinerPrefix(key.apply(next)).equals(prefix)) {
+        items.add(next);
+        advance();
+      }
+      return new Group<>(prefix, items);
+    }
+
+    private void advance() {
+      next = sorted.hasNext() ? sorted.next() : null;
+      if (next == null) {
+        return;
+      }
+      String nextKey = key.apply(next);
+      if (lastKey != null && nextKey.compareTo(lastKey) < 0) {
+        throw new IllegalStateException("Keys not in order: " + lastKey + ", " + nextKey);
+      }
+      lastKey = nextKey;
+    }
+  }
+
+  private static <T> Group<T> nextOrNull(Iterator<Group<T>> groups) {
+    return groups.hasNext() ? groups.next() : null;
+  }
+}
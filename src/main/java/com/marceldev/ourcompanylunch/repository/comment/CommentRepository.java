@@ -1,11 +1,18 @@
 package com.marceldev.ourcompanylunch.repository.comment;
 
 import com.marceldev.ourcompanylunch.entity.Comment;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface CommentRepository extends JpaRepository<Comment, Long>,
     CommentRepositoryCustom {
 
-  Optional<Comment> findByIdAndMember_Email(long commentId, String email);
+  Optional<Comment> findByIdAndMember_Id(long commentId, long memberId);
+
+  List<Comment> findAllByIdBetween(long fromId, long toId);
+
+  @Query("select max(c.id) from Comment c")
+  Long findMaxId();
 }
@@ -1,6 +1,7 @@
 package com.marceldev.ourcompanylunch.repository.comment;
 
 import com.marceldev.ourcompanylunch.dto.comment.GetCommentListRequest;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.entity.Comment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,4 +10,10 @@ public interface CommentRepositoryCustom {
 
   Page<Comment> getList(GetCommentListRequest dto, long myMemberId, long dinerId,
       Pageable pageable);
+
+  /**
+   * Get a slice before or after the cursor of the request, ordered by (createdAt, id). No count
+   * query.
+   */
+  CursorSliceResponse<Comment> getSlice(GetCommentListRequest dto, long myMemberId, long dinerId);
 }
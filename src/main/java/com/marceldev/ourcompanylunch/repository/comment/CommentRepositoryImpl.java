@@ -1,19 +1,29 @@
 package com.marceldev.ourcompanylunch.repository.comment;
 
 import static com.marceldev.ourcompanylunch.entity.QComment.comment;
+import static com.marceldev.ourcompanylunch.entity.QCommentSearchToken.commentSearchToken;
 import static com.marceldev.ourcompanylunch.entity.QMember.member;
 
 import com.marceldev.ourcompanylunch.dto.comment.GetCommentListRequest;
+import com.marceldev.ourcompanylunch.dto.common.Cursor;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.entity.Comment;
 import com.marceldev.ourcompanylunch.type.CommentSort;
 import com.marceldev.ourcompanylunch.type.ShareStatus;
 import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.util.CursorUtil;
+import com.marceldev.ourcompanylunch.util.NgramUtil;
 import com.querydsl.core.types.Order;
 import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -34,7 +44,7 @@ public class CommentRepositoryImpl implements CommentRepositoryCustom {
                 .where(
                     dinerEq(dinerId),
                     myComments(myMemberId).or(companyShared()),
-                    contentContains(dto),
+                    keywordMatches(dto, dinerId),
                     commentedByEq(dto)
                 )
                 .fetchOne())
@@ -47,10 +57,13 @@ public class CommentRepositoryImpl implements CommentRepositoryCustom {
         .where(
             dinerEq(dinerId),
             myComments(myMemberId).or(companyShared()),
-            contentContains(dto),
+            keywordMatches(dto, dinerId),
             commentedByEq(dto)
         )
-        .orderBy(getOrder(dto.getSortBy(), dto.getSortDirection()))
+        .orderBy(
+            getOrder(dto, dto.getSortDirection()),
+            getIdOrder(dto.getSortDirection())
+        )
         .offset(pageable.getOffset())
         .limit(pageable.getPageSize())
         .fetch();
@@ -58,6 +71,35 @@ public class CommentRepositoryImpl implements CommentRepositoryCustom {
     return new PageImpl<>(content, pageable, total);
   }
 
+  @Override
+  public CursorSliceResponse<Comment> getSlice(GetCommentListRequest dto, long myMemberId,
+      long dinerId) {
+    Cursor cursor = CursorUtil.decode(dto.getCursor());
+    SortDirection readDirection = Cursor.readDirection(dto.getSortDirection(), cursor);
+
+    // Read one more row to know if there is more in the read direction.
+    List<Comment> content = queryFactory
+        .select(comment)
+        .from(comment)
+        .leftJoin(comment.member, member).fetchJoin()
+        .where(
+            dinerEq(dinerId),
+            myComments(myMemberId).or(companyShared()),
+            keywordMatches(dto, dinerId),
+            commentedByEq(dto),
+            afterCursor(dto, readDirection, cursor)
+        )
+        .orderBy(
+            getOrder(dto, readDirection),
+            getIdOrder(readDirection)
+        )
+        .limit(dto.getSize() + 1)
+        .fetch();
+
+    return CursorSliceResponse.of(content, dto.getSize(), cursor,
+        (row, backward) -> CursorUtil.encode(getSortKey(dto, row), row.getId(), backward));
+  }
+
   private BooleanExpression dinerEq(long dinerId) {
     return comment.diner.id.eq(dinerId);
   }
@@ -70,19 +112,95 @@ public class CommentRepositoryImpl implements CommentRepositoryCustom {
     return comment.shareStatus.eq(ShareStatus.COMPANY);
   }
 
-  private BooleanExpression contentContains(GetCommentListRequest dto) {
-    return dto.getKeyword() != null ? comment.content.contains(dto.getKeyword()) : null;
+  /**
+   * Comments having every bigram of the keyword are found with the search token index, then
+   * checked with contains. Without a bigram in the keyword, only contains is used.
+   */
+  private BooleanExpression keywordMatches(GetCommentListRequest dto, long dinerId) {
+    if (dto.getKeyword() == null) {
+      return null;
+    }
+    BooleanExpression contains = comment.content.contains(dto.getKeyword());
+    Set<String> grams = NgramUtil.grams(dto.getKeyword());
+    if (grams.isEmpty()) {
+      return contains;
+    }
+    return comment.id.in(
+        JPAExpressions.select(commentSearchToken.commentId)
+            .from(commentSearchToken)
+            .where(
+                commentSearchToken.dinerId.eq(dinerId),
+                commentSearchToken.token.in(grams)
+            )
+            .groupBy(commentSearchToken.commentId)
+            .having(commentSearchToken.count().eq((long) grams.size()))
+    ).and(contains);
+  }
+
+  /**
+   * How many times the bigrams of the keyword appear in the comment.
+   */
+  private NumberExpression<Long> relevance(Set<String> grams) {
+    return Expressions.numberTemplate(Long.class, "coalesce({0}, 0)",
+        JPAExpressions.select(commentSearchToken.frequency.sum())
+            .from(commentSearchToken)
+            .where(
+                commentSearchToken.commentId.eq(comment.id),
+                commentSearchToken.token.in(grams)
+            ));
+  }
+
+  /**
+   * RELEVANCE without a bigram in the keyword falls back to CREATED_AT.
+   */
+  private CommentSort getSort(GetCommentListRequest dto) {
+    if (dto.getSortBy() == CommentSort.RELEVANCE && NgramUtil.grams(dto.getKeyword()).isEmpty()) {
+      return CommentSort.CREATED_AT;
+    }
+    return dto.getSortBy();
   }
 
   private BooleanExpression commentedByEq(GetCommentListRequest dto) {
     return dto.getCommentedBy() != null ? comment.member.name.eq(dto.getCommentedBy()) : null;
   }
 
-  private OrderSpecifier<?> getOrder(CommentSort sort, SortDirection direction) {
+  private OrderSpecifier<?> getOrder(GetCommentListRequest dto, SortDirection direction) {
     Order order = direction == SortDirection.ASC ? Order.ASC : Order.DESC;
 
-    return switch (sort) {
+    return switch (getSort(dto)) {
       case CREATED_AT -> new OrderSpecifier<>(order, comment.createdAt);
+      case RELEVANCE -> new OrderSpecifier<>(order, relevance(NgramUtil.grams(dto.getKeyword())));
+    };
+  }
+
+  private OrderSpecifier<?> getIdOrder(SortDirection direction) {
+    return direction == SortDirection.ASC ? comment.id.asc() : comment.id.desc();
+  }
+
+  private Object getSortKey(GetCommentListRequest dto, Comment row) {
+    return switch (getSort(dto)) {
+      case CREATED_AT -> row.getCreatedAt();
+      // Same as the relevance in DB, since the tokens are made from the content the same way.
+      case RELEVANCE -> {
+        Map<String, Integer> counts = NgramUtil.countGrams(row.getContent());
+        yield NgramUtil.grams(dto.getKeyword()).stream()
+            .mapToLong(gram -> counts.getOrDefault(gram, 0))
+            .sum();
+      }
+    };
+  }
+
+  private BooleanExpression afterCursor(GetCommentListRequest dto, SortDirection direction,
+      Cursor cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    boolean asc = direction == SortDirection.ASC;
+    return switch (getSort(dto)) {
+      case CREATED_AT -> CursorUtil.after(comment.createdAt, cursor.getDateTimeValue(),
+          comment.id, cursor.getId(), asc);
+      case RELEVANCE -> CursorUtil.after(relevance(NgramUtil.grams(dto.getKeyword())),
+          cursor.getLongValue(), comment.id, cursor.getId(), asc);
     };
   }
 }
@@ -0,0 +1,21 @@
+package com.marceldev.ourcompanylunch.repository.comment;
+
+import com.marceldev.ourcompanylunch.entity.CommentSearchToken;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface CommentSearchTokenRepository extends
+    JpaRepository<CommentSearchToken, CommentSearchToken.Key> {
+
+  List<CommentSearchToken> findAllByCommentId(long commentId);
+
+  @Modifying
+  @Query("delete from CommentSearchToken t where t.commentId = :commentId")
+  int deleteByCommentId(long commentId);
+
+  @Modifying
+  @Query("delete from CommentSearchToken t where t.commentId between :fromId and :toId")
+  int deleteByCommentIdBetween(long fromId, long toId);
+}
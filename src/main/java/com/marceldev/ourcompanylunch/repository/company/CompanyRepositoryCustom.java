@@ -0,0 +1,13 @@
+package com.marceldev.ourcompanylunch.repository.company;
+
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
+import com.marceldev.ourcompanylunch.dto.company.CompanyOutputDto;
+import com.marceldev.ourcompanylunch.dto.company.GetCompanyListRequest;
+
+public interface CompanyRepositoryCustom {
+
+  /**
+   * Get a slice after the cursor of the request. No count query.
+   */
+  CursorSliceResponse<CompanyOutputDto> getSlice(GetCompanyListRequest dto);
+}
@@ -0,0 +1,75 @@
+package com.marceldev.ourcompanylunch.repository.company;
+
+import static com.marceldev.ourcompanylunch.entity.QCompany.company;
+
+import com.marceldev.ourcompanylunch.dto.common.Cursor;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
+import com.marceldev.ourcompanylunch.dto.company.CompanyOutputDto;
+import com.marceldev.ourcompanylunch.dto.company.GetCompanyListRequest;
+import com.marceldev.ourcompanylunch.entity.Company;
+import com.marceldev.ourcompanylunch.type.CompanySort;
+import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.util.CursorUtil;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class CompanyRepositoryImpl implements CompanyRepositoryCustom {
+
+  private final JPAQueryFactory queryFactory;
+
+  @Override
+  public CursorSliceResponse<CompanyOutputDto> getSlice(GetCompanyListRequest dto) {
+    Cursor cursor = CursorUtil.decode(dto.getCursor());
+    SortDirection readDirection = Cursor.readDirection(dto.getSortDirection(), cursor);
+
+    // Read one more row to know if there is a next slice.
+    List<Company> companies = queryFactory.selectFrom(company)
+        .where(afterCursor(dto.getSortBy(), readDirection, cursor))
+        .orderBy(
+            getOrder(dto.getSortBy(), readDirection),
+            getIdOrder(readDirection)
+        )
+        .limit(dto.getSize() + 1)
+        .fetch();
+
+    return CursorSliceResponse.of(companies, dto.getSize(), cursor,
+            (row, backward) -> CursorUtil.encode(getSortKey(dto.getSortBy(), row), row.getId(),
+                backward))
+        .map(CompanyOutputDto::of);
+  }
+
+  private OrderSpecifier<?> getOrder(CompanySort sort, SortDirection direction) {
+    final Order order = direction == SortDirection.ASC ? Order.ASC : Order.DESC;
+
+    return switch (sort) {
+      case COMPANY_NAME -> new OrderSpecifier<>(order, company.name);
+    };
+  }
+
+  private OrderSpecifier<?> getIdOrder(SortDirection direction) {
+    return direction == SortDirection.ASC ? company.id.asc() : company.id.desc();
+  }
+
+  private Object getSortKey(CompanySort sort, Company row) {
+    return switch (sort) {
+      case COMPANY_NAME -> row.getName();
+    };
+  }
+
+  private BooleanExpression afterCursor(CompanySort sort, SortDirection direction,
+      Cursor cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    boolean asc = direction == SortDirection.ASC;
+    return switch (sort) {
+      case COMPANY_NAME -> CursorUtil.after(company.name, cursor.getValue(),
+          company.id, cursor.getId(), asc);
+    };
+  }
+}
@@ -2,8 +2,11 @@ package com.marceldev.ourcompanylunch.repository.diner;
 
 import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.DinerImage;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface DinerImageRepository extends JpaRepository<DinerImage, Long> {
 
@@ -17,8 +20,21 @@ public interface DinerImageRepository extends JpaRepository<DinerImage, Long> {
    */
   int countByDinerAndThumbnail(Diner diner, boolean thumbnail);
 
+  /**
+   * Remove the thumbnail of an original. It has the order of the original.
+   */
+  void deleteByDinerAndOrdersAndThumbnail(Diner diner, int orders, boolean thumbnail);
+
   /**
    * Remove all DinerImages that has same diner id.
    */
   void deleteByDinerId(Long dinerId);
+
+  /**
+   * A chunk of images in key order, after the image of the key and the id.
+   */
+  @Query("select d from DinerImage d"
+      + " where d.s3Key > :s3Key or (d.s3Key = :s3Key and d.id > :id)"
+      + " order by d.s3Key, d.id")
+  List<DinerImage> findChunkAfter(String s3Key, long id, Pageable pageable);
 }
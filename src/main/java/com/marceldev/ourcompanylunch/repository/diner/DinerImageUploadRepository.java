@@ -0,0 +1,37 @@
+package com.marceldev.ourcompanylunch.repository.diner;
+
+import com.marceldev.ourcompanylunch.entity.Diner;
+import com.marceldev.ourcompanylunch.entity.DinerImageUpload;
+import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface DinerImageUploadRepository extends JpaRepository<DinerImageUpload, Long> {
+
+  Optional<DinerImageUpload> findByS3Key(String s3Key);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select u from DinerImageUpload u where u.s3Key = :s3Key")
+  Optional<DinerImageUpload> findByS3KeyForUpdate(String s3Key);
+
+  /**
+   * Uploads not expired yet, except the one being completed.
+   */
+  @Query("select count(u) from DinerImageUpload u"
+      + " where u.diner = :diner and u.expirationAt > :now and u.s3Key <> :exceptKey")
+  int countInFlight(Diner diner, LocalDateTime now, String exceptKey);
+
+  @Modifying
+  @Query("delete from DinerImageUpload u where u.diner = :diner and u.expirationAt < :now")
+  int deleteExpired(Diner diner, LocalDateTime now);
+
+  @Query("select u.s3Key from DinerImageUpload u where u.diner.id = :dinerId")
+  List<String> findS3KeysByDinerId(Long dinerId);
+
+  void deleteByDinerId(Long dinerId);
+}
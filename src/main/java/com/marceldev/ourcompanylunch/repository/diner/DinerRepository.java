@@ -1,8 +1,77 @@
 package com.marceldev.ourcompanylunch.repository.diner;
 
 import com.marceldev.ourcompanylunch.entity.Diner;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.locationtech.jts.geom.Point;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface DinerRepository extends JpaRepository<Diner, Long>, DinerRepositoryCustom {
 
+  @Query("select d.name from Diner d where d.id = :dinerId")
+  Optional<String> findNameById(long dinerId);
+
+  /**
+   * Lock the diner until the transaction ends. Adding images of a diner is serialized by this, so
+   * the max image count holds.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select d from Diner d where d.id = :dinerId")
+  Optional<Diner> findByIdForUpdate(long dinerId);
+
+  /**
+   * Increase comment count in DB directly. Concurrent comments don't lose an update.
+   */
+  @Modifying
+  @Query("update Diner d set d.commentCount = d.commentCount + 1 where d.id = :dinerId")
+  int increaseCommentCount(long dinerId);
+
+  /**
+   * Decrease comment count in DB directly. The count never goes below zero.
+   */
+  @Modifying
+  @Query("update Diner d set d.commentCount = d.commentCount - 1"
+      + " where d.id = :dinerId and d.commentCount > 0")
+  int decreaseCommentCount(long dinerId);
+
+  /**
+   * Recount comments of the diners whose id is between fromId and toId.
+   */
+  @Modifying
+  @Query("update Diner d set d.commentCount ="
+      + " (select count(c) from Comment c where c.diner.id = d.id)"
+      + " where d.id between :fromId and :toId")
+  int rebuildCommentCount(long fromId, long toId);
+
+  /**
+   * Recompute the distance between the diner and the company location.
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("update Diner d set d.distanceInMeter = ST_Distance_Sphere(d.location, :companyLocation)"
+      + " where d.id = :dinerId")
+  int updateDistance(long dinerId, Point companyLocation);
+
+  /**
+   * Recompute the distances of all diners of the company in one statement.
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("update Diner d set d.distanceInMeter = ST_Distance_Sphere(d.location, :companyLocation)"
+      + " where d.company.id = :companyId")
+  int updateDistanceByCompanyId(long companyId, Point companyLocation);
+
+  /**
+   * Recompute the distances of the diners whose id is between fromId and toId.
+   */
+  @Modifying
+  @Query("update Diner d set d.distanceInMeter ="
+      + " (select ST_Distance_Sphere(d.location, c.location) from Company c"
+      + " where c.id = d.company.id)"
+      + " where d.id between :fromId and :toId")
+  int rebuildDistance(long fromId, long toId);
+
+  @Query("select max(d.id) from Diner d")
+  Long findMaxId();
 }
@@ -1,13 +1,28 @@
 package com.marceldev.ourcompanylunch.repository.diner;
 
+import com.marceldev.ourcompanylunch.dto.diner.DinerDetailQueryDto;
+import com.marceldev.ourcompanylunch.dto.diner.DinerListQueryDto;
 import com.marceldev.ourcompanylunch.dto.diner.DinerOutputDto;
-import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.marceldev.ourcompanylunch.dto.diner.GetNearbyDinerListRequest;
+import java.util.List;
+import java.util.Optional;
 
 public interface DinerRepositoryCustom {
 
-  Page<DinerOutputDto> getList(long companyId, GetDinerListRequest dto, Pageable pageable);
+  /**
+   * All diners of the company, for building DinerSnapshot.
+   */
+  List<DinerListQueryDto> getAllForList(long companyId);
 
-  Integer getDistance(long companyId, long dinerId);
+  /**
+   * Diners within the radius from the point of the request, nearest first. Prefiltered by the
+   * bounding box with the spatial index.
+   */
+  List<DinerOutputDto> getNearbyList(long companyId, GetNearbyDinerListRequest dto);
+
+  /**
+   * Diner detail with its image keys and distance in one query. At most imageLimit images are
+   * read.
+   */
+  Optional<DinerDetailQueryDto> getDetail(long companyId, long dinerId, int imageLimit);
 }
@@ -1,29 +1,26 @@
 package com.marceldev.ourcompanylunch.repository.diner;
 
-import static com.marceldev.ourcompanylunch.entity.QComment.comment;
-import static com.marceldev.ourcompanylunch.entity.QCompany.company;
 import static com.marceldev.ourcompanylunch.entity.QDiner.diner;
+import static com.marceldev.ourcompanylunch.entity.QDinerImage.dinerImage;
 
+import com.marceldev.ourcompanylunch.dto.diner.DinerDetailQueryDto;
+import com.marceldev.ourcompanylunch.dto.diner.DinerListQueryDto;
 import com.marceldev.ourcompanylunch.dto.diner.DinerOutputDto;
-import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
-import com.marceldev.ourcompanylunch.type.DinerSort;
-import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.dto.diner.GetNearbyDinerListRequest;
 import com.querydsl.core.Tuple;
-import com.querydsl.core.types.Order;
-import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.core.types.dsl.ComparablePath;
 import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.locationtech.jts.geom.Point;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
 
 @RequiredArgsConstructor
 public class DinerRepositoryImpl implements DinerRepositoryCustom {
@@ -31,86 +28,119 @@ public class DinerRepositoryImpl implements DinerRepositoryCustom {
   private final JPAQueryFactory queryFactory;
 
   @Override
-  public Page<DinerOutputDto> getList(long companyId, GetDinerListRequest dto, Pageable pageable) {
+  public List<DinerListQueryDto> getAllForList(long companyId) {
+    return queryFactory.select(
+            Projections.constructor(DinerListQueryDto.class,
+                diner.id,
+                diner.name,
+                diner.link,
+                diner.location,
+                diner.tags,
+                diner.commentCount,
+                diner.distanceInMeter
+            ))
+        .from(diner)
+        .where(companyEq(companyId))
+        .orderBy(diner.id.asc())
+        .fetch();
+  }
 
-    long total = Optional.ofNullable(
-            queryFactory.select(diner.count())
-                .from(diner)
-                .where(
-                    companyEq(companyId),
-                    nameContains(dto)
-                )
-                .fetchOne())
-        .orElse(0L);
+  @Override
+  public List<DinerOutputDto> getNearbyList(long companyId, GetNearbyDinerListRequest dto) {
+    NumberExpression<Double> distance = distance(diner.location, dto.getCenter());
 
-    List<DinerOutputDto> content = queryFactory.select(
+    return queryFactory.select(
             Projections.constructor(DinerOutputDto.class,
                 diner.id,
                 diner.name,
                 diner.link,
                 diner.location,
                 diner.tags,
-                comment.count().as("commentsCount"),
-                distance(diner.location, company.location).as("distanceInMeter")
+                diner.commentCount,
+                distance.as("distanceInMeter")
             ))
         .from(diner)
-        .leftJoin(diner.comments, comment)
-        .leftJoin(diner.company, company)
         .where(
             companyEq(companyId),
-            nameContains(dto)
+            // Uses the spatial index. Exact distance is computed only for the rows in the box.
+            Expressions.booleanTemplate("MBRContains({0}, {1}) = true",
+                dto.getBoundingBox(), diner.location),
+            distance.loe(dto.getRadius().doubleValue())
         )
-        .groupBy(diner.id)
-        .orderBy(getOrder(dto.getSortBy(), dto.getSortDirection()))
-        .offset(pageable.getOffset())
-        .limit(pageable.getPageSize())
+        .orderBy(distance.asc(), diner.id.asc())
+        .limit(dto.getSize())
         .fetch();
-
-    return new PageImpl<>(content, pageable, total);
   }
 
   @Override
-  public Integer getDistance(long companyId, long dinerId) {
-    Tuple result = queryFactory.select(
+  public Optional<DinerDetailQueryDto> getDetail(long companyId, long dinerId, int imageLimit) {
+    // One row per image. A diner without image still has one row with null image columns.
+    List<Tuple> rows = queryFactory.select(
             diner.id,
-            distance(diner.location, company.location)
+            diner.name,
+            diner.link,
+            diner.location,
+            diner.tags,
+            diner.commentCount,
+            diner.distanceInMeter,
+            dinerImage.s3Key,
+            dinerImage.thumbnail,
+            dinerImage.variantWidths
         )
         .from(diner)
-        .join(diner.company, company)
+        .leftJoin(diner.dinerImages, dinerImage)
         .where(
             diner.id.eq(dinerId),
-            company.id.eq(companyId)
+            companyEq(companyId)
         )
-        .fetchOne();
+        .orderBy(dinerImage.orders.asc())
+        .limit(imageLimit)
+        .fetch();
 
-    if (result == null) {
-      return null;
+    if (rows.isEmpty()) {
+      return Optional.empty();
     }
-    Number number = result.get(distance(diner.location, company.location));
-    return number != null ? number.intValue() : null;
+
+    List<String> imageKeys = new ArrayList<>();
+    List<String> thumbnailKeys = new ArrayList<>();
+    List<List<Integer>> imageVariantWidths = new ArrayList<>();
+    for (Tuple row : rows) {
+      String key = row.get(dinerImage.s3Key);
+      if (key == null) {
+        continue;
+      }
+      if (Boolean.TRUE.equals(row.get(dinerImage.thumbnail))) {
+        thumbnailKeys.add(key);
+      } else {
+        List<Integer> variantWidths = row.get(dinerImage.variantWidths);
+        imageKeys.add(key);
+        imageVariantWidths.add(variantWidths != null ? variantWidths : List.of());
+      }
+    }
+
+    Tuple first = rows.get(0);
+    Long commentCount = first.get(diner.commentCount);
+    Set<String> tags = first.get(diner.tags);
+    return Optional.of(DinerDetailQueryDto.builder()
+        .id(first.get(diner.id))
+        .name(first.get(diner.name))
+        .link(first.get(diner.link))
+        .location(first.get(diner.location))
+        .tags(tags != null ? new LinkedHashSet<>(tags) : new LinkedHashSet<>())
+        .commentCount(commentCount != null ? commentCount : 0)
+        .distanceInMeter(first.get(diner.distanceInMeter))
+        .imageKeys(imageKeys)
+        .thumbnailKeys(thumbnailKeys)
+        .imageVariantWidths(imageVariantWidths)
+        .build());
   }
 
   private BooleanExpression companyEq(long companyId) {
     return diner.company.id.eq(companyId);
   }
 
-  private BooleanExpression nameContains(GetDinerListRequest dto) {
-    return dto.getKeyword() != null ? diner.name.contains(dto.getKeyword()) : null;
-  }
-
-  private NumberExpression<?> distance(ComparablePath<Point> location1,
-      ComparablePath<Point> location2) {
+  private NumberExpression<Double> distance(ComparablePath<Point> location, Point point) {
     return Expressions.numberTemplate(Double.class,
-        "ST_Distance_Sphere({0}, {1})", location1, location2);
-  }
-
-  private OrderSpecifier<?> getOrder(DinerSort sort, SortDirection direction) {
-    final Order order = direction == SortDirection.ASC ? Order.ASC : Order.DESC;
-
-    return switch (sort) {
-      case DINER_NAME -> new OrderSpecifier<>(order, diner.name);
-      case COMMENTS_COUNT -> new OrderSpecifier<>(order, comment.count());
-      case DISTANCE -> new OrderSpecifier<>(order, distance(diner.location, company.location));
-    };
+        "ST_Distance_Sphere({0}, {1})", location, point);
   }
 }
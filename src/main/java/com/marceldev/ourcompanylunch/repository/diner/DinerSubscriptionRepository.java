@@ -3,8 +3,8 @@ package com.marceldev.ourcompanylunch.repository.diner;
 import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.DinerSubscription;
 import com.marceldev.ourcompanylunch.entity.Member;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -12,10 +12,8 @@ public interface DinerSubscriptionRepository extends JpaRepository<DinerSubscrip
 
   Optional<DinerSubscription> findByDinerAndMember(Diner diner, Member member);
 
-  @Query("select ds from DinerSubscription ds"
-      + " join fetch ds.member"
-      + " where ds.diner.id = :dinerId")
-  Set<DinerSubscription> findDinerSubscriptionByDinerId(long dinerId);
+  @Query("select ds.member.id from DinerSubscription ds where ds.diner.id = :dinerId")
+  List<Long> findMemberIdsByDinerId(long dinerId);
 
   boolean existsByDinerAndMember(Diner diner, Member member);
 }
@@ -1,8 +1,14 @@
 package com.marceldev.ourcompanylunch.repository.member;
 
+import com.marceldev.ourcompanylunch.dto.member.MemberNameQueryDto;
 import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.security.MemberPrincipal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface MemberRepository extends JpaRepository<Member, Long> {
 
@@ -10,7 +16,15 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
 
   Optional<Member> findByEmail(String email);
 
-  Optional<Member> findByIdAndEmail(long id, String email);
+  @Query("select new com.marceldev.ourcompanylunch.security.MemberPrincipal("
+      + "m.id, m.email, m.name, c.id, m.role) "
+      + "from Member m "
+      + "left join m.company c "
+      + "where m.email = :email")
+  Optional<MemberPrincipal> findPrincipalByEmail(@Param("email") String email);
 
-  Optional<Member> findByEmailAndCompanyId(String email, long companyId);
+  @Query("select new com.marceldev.ourcompanylunch.dto.member.MemberNameQueryDto(m.id, m.name) "
+      + "from Member m "
+      + "where m.id in :ids")
+  List<MemberNameQueryDto> findNamesByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,32 @@
+package com.marceldev.ourcompanylunch.repository.outbox;
+
+import com.marceldev.ourcompanylunch.entity.Outbox;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface OutboxRepository extends JpaRepository<Outbox, Long> {
+
+  List<Outbox> findAllByDeliveredAtIsNullAndAttemptsLessThanOrderByIdAsc(int maxAttempts,
+      Pageable pageable);
+
+  Optional<Outbox> findFirstByDeliveredAtIsNullAndAttemptsLessThanOrderByIdAsc(int maxAttempts);
+
+  long countByDeliveredAtIsNullAndAttemptsLessThan(int maxAttempts);
+
+  @Modifying
+  @Query("update Outbox o set o.deliveredAt = :deliveredAt where o.id in :ids")
+  int markDelivered(List<Long> ids, LocalDateTime deliveredAt);
+
+  @Modifying
+  @Query("update Outbox o set o.attempts = o.attempts + 1 where o.id in :ids")
+  int increaseAttempts(List<Long> ids);
+
+  @Modifying
+  @Query("delete from Outbox o where o.deliveredAt < :before")
+  int deleteDeliveredBefore(LocalDateTime before);
+}
@@ -5,7 +5,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface ReplyRepository extends JpaRepository<Reply, Long> {
+public interface ReplyRepository extends JpaRepository<Reply, Long>, ReplyRepositoryCustom {
 
   Page<Reply> findByCommentIdOrderByCreatedAtDesc(long commentId, Pageable pageable);
 }
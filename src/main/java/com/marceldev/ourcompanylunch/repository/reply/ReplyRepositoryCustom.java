@@ -0,0 +1,14 @@
+package com.marceldev.ourcompanylunch.repository.reply;
+
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
+import com.marceldev.ourcompanylunch.dto.reply.GetReplyListRequest;
+import com.marceldev.ourcompanylunch.entity.Reply;
+
+public interface ReplyRepositoryCustom {
+
+  /**
+   * Get a slice before or after the cursor of the request, newest first by (createdAt, id). No
+   * count query.
+   */
+  CursorSliceResponse<Reply> getSlice(long commentId, GetReplyListRequest dto);
+}
@@ -0,0 +1,59 @@
+package com.marceldev.ourcompanylunch.repository.reply;
+
+import static com.marceldev.ourcompanylunch.entity.QMember.member;
+import static com.marceldev.ourcompanylunch.entity.QReply.reply;
+
+import com.marceldev.ourcompanylunch.dto.common.Cursor;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
+import com.marceldev.ourcompanylunch.dto.reply.GetReplyListRequest;
+import com.marceldev.ourcompanylunch.entity.Reply;
+import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.util.CursorUtil;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class ReplyRepositoryImpl implements ReplyRepositoryCustom {
+
+  private final JPAQueryFactory queryFactory;
+
+  @Override
+  public CursorSliceResponse<Reply> getSlice(long commentId, GetReplyListRequest dto) {
+    Cursor cursor = CursorUtil.decode(dto.getCursor());
+    // Replies are always newest first.
+    SortDirection readDirection = Cursor.readDirection(SortDirection.DESC, cursor);
+
+    // Read one more row to know if there is more in the read direction.
+    List<Reply> content = queryFactory
+        .select(reply)
+        .from(reply)
+        .leftJoin(reply.member, member).fetchJoin()
+        .where(
+            reply.comment.id.eq(commentId),
+            afterCursor(readDirection, cursor)
+        )
+        .orderBy(getOrders(readDirection))
+        .limit(dto.getSize() + 1)
+        .fetch();
+
+    return CursorSliceResponse.of(content, dto.getSize(), cursor,
+        (row, backward) -> CursorUtil.encode(row.getCreatedAt(), row.getId(), backward));
+  }
+
+  private OrderSpecifier<?>[] getOrders(SortDirection direction) {
+    return direction == SortDirection.ASC
+        ? new OrderSpecifier<?>[]{reply.createdAt.asc(), reply.id.asc()}
+        : new OrderSpecifier<?>[]{reply.createdAt.desc(), reply.id.desc()};
+  }
+
+  private BooleanExpression afterCursor(SortDirection direction, Cursor cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    return CursorUtil.after(reply.createdAt, cursor.getDateTimeValue(),
+        reply.id, cursor.getId(), direction == SortDirection.ASC);
+  }
+}
@@ -0,0 +1,9 @@
+package com.marceldev.ourcompanylunch.repository.storage;
+
+import com.marceldev.ourcompanylunch.entity.StorageDeletionDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StorageDeletionDeadLetterRepository extends
+    JpaRepository<StorageDeletionDeadLetter, Long> {
+
+}
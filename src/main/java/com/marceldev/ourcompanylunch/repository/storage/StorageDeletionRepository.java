@@ -0,0 +1,13 @@
+package com.marceldev.ourcompanylunch.repository.storage;
+
+import com.marceldev.ourcompanylunch.entity.StorageDeletion;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StorageDeletionRepository extends JpaRepository<StorageDeletion, Long> {
+
+  List<StorageDeletion> findAllByNextAttemptAtLessThanEqualOrderByIdAsc(LocalDateTime now,
+      Pageable pageable);
+}
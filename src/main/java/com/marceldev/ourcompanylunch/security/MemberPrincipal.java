@@ -0,0 +1,20 @@
+package com.marceldev.ourcompanylunch.security;
+
+import com.marceldev.ourcompanylunch.type.Role;
+import java.security.Principal;
+
+/**
+ * The authenticated member, resolved from the email of the jwt token. companyId is null until the
+ * member chooses a company.
+ * <p>
+ * getName() is the email, so Authentication.getName() stays the email after the principal is
+ * resolved.
+ */
+public record MemberPrincipal(Long memberId, String email, String name, Long companyId,
+                              Role role) implements Principal {
+
+  @Override
+  public String getName() {
+    return email;
+  }
+}
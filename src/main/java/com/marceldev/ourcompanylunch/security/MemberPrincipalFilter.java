@@ -0,0 +1,40 @@
+package com.marceldev.ourcompanylunch.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Runs after JwtAuthenticationFilter. Replaces the email principal with a MemberPrincipal, so
+ * services read the member and company ids without querying DB. A member who hasn't signed up yet
+ * keeps the email principal.
+ */
+@RequiredArgsConstructor
+public class MemberPrincipalFilter extends OncePerRequestFilter {
+
+  private final MemberPrincipalProvider memberPrincipalProvider;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth != null && !(auth instanceof AnonymousAuthenticationToken)
+        && auth.getPrincipal() instanceof String email) {
+      memberPrincipalProvider.resolve(email).ifPresent(principal -> {
+        UsernamePasswordAuthenticationToken resolved = new UsernamePasswordAuthenticationToken(
+            principal, auth.getCredentials(), auth.getAuthorities());
+        resolved.setDetails(auth.getDetails());
+        SecurityContextHolder.getContext().setAuthentication(resolved);
+      });
+    }
+    filterChain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,57 @@
+package com.marceldev.ourcompanylunch.security;
+
+import com.marceldev.ourcompanylunch.component.MemberCache;
+import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
+import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
+import com.marceldev.ourcompanylunch.exception.member.MemberUnauthorizedException;
+import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives the member of the current request. MemberPrincipalFilter resolves the principal once per
+ * request, so it doesn't query DB. If the principal is not resolved, such as for a member who
+ * signed up in the same request, it's resolved by the email. Resolving reads MemberCache first.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberPrincipalProvider {
+
+  private final MemberRepository memberRepository;
+
+  private final MemberCache memberCache;
+
+  public MemberPrincipal get() {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    if (auth == null || auth.getPrincipal() == null) {
+      throw new MemberUnauthorizedException();
+    }
+    if (auth.getPrincipal() instanceof MemberPrincipal principal) {
+      return principal;
+    }
+    return resolve(auth.getName())
+        .orElseThrow(MemberNotFoundException::new);
+  }
+
+  public long getMemberId() {
+    return get().memberId();
+  }
+
+  /**
+   * Get company id. Check if the member can access a company.
+   */
+  public long getCompanyId() {
+    Long companyId = get().companyId();
+    if (companyId == null) {
+      throw new CompanyNotFoundException();
+    }
+    return companyId;
+  }
+
+  public Optional<MemberPrincipal> resolve(String email) {
+    return memberCache.getPrincipal(email, memberRepository::findPrincipalByEmail);
+  }
+}
@@ -0,0 +1,201 @@
+package com.marceldev.ourcompanylunch.serializer;
+
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * Binary encoding of comment.write.v2.
+ * <pre>
+ * byte    format version (1)
+ * varint  commentId, senderId, dinerId
+ * string  senderName, dinerName, content   (varint length + 1 then UTF-8 bytes, 0 is null)
+ * varint  chunkIndex, chunkCount
+ * varint  receiver count, then receiver ids as deltas from the previous one
+ * </pre>
+ * Receiver ids are sorted by MessageProducerService, so the deltas stay small. JSON messages start
+ * with '{', so a consumer can tell the two formats apart by the first byte.
+ */
+public final class MessageCommentWriteV2Codec {
+
+  public static final byte FORMAT_VERSION = 1;
+
+  private MessageCommentWriteV2Codec() {
+  }
+
+  public static byte[] encode(MessageCommentWriteV2 message) {
+    byte[] senderName = toBytes(message.getSenderName());
+    byte[] dinerName = toBytes(message.getDinerName());
+    byte[] content = toBytes(message.getContent());
+    long[] receiverIds = message.getReceiverIds() == null ? new long[0] : message.getReceiverIds();
+
+    Writer writer = new Writer(1 + 10 * 6 + 5 * 3 + length(senderName) + length(dinerName)
+        + length(content) + 10 * receiverIds.length);
+    writer.writeByte(FORMAT_VERSION);
+    writer.writeVarLong(required(message.getCommentId(), "commentId"));
+    writer.writeVarLong(required(message.getSenderId(), "senderId"));
+    writer.writeVarLong(required(message.getDinerId(), "dinerId"));
+    writer.writeBytes(senderName);
+    writer.writeBytes(dinerName);
+    writer.writeBytes(content);
+    writer.writeVarLong(message.getChunkIndex() == null ? 0 : message.getChunkIndex());
+    writer.writeVarLong(message.getChunkCount() == null ? 1 : message.getChunkCount());
+    writer.writeVarLong(receiverIds.length);
+    long previous = 0;
+    for (long receiverId : receiverIds) {
+      if (receiverId < previous) {
+        throw new SerializationException("receiverIds must be sorted");
+      }
+      writer.writeVarLong(receiverId - previous);
+      previous = receiverId;
+    }
+    return writer.toByteArray();
+  }
+
+  public static MessageCommentWriteV2 decode(byte[] data) {
+    Reader reader = new Reader(data);
+    byte version = reader.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new SerializationException("Unknown comment.write.v2 format version: " + version);
+    }
+
+    MessageCommentWriteV2 message = MessageCommentWriteV2.builder()
+        .commentId(reader.readVarLong())
+        .senderId(reader.readVarLong())
+        .dinerId(reader.readVarLong())
+        .senderName(reader.readString())
+        .dinerName(reader.readString())
+        .content(reader.readString())
+        .chunkIndex((int) reader.readVarLong())
+        .chunkCount((int) reader.readVarLong())
+        .build();
+
+    long[] receiverIds = new long[reader.readCount()];
+    long previous = 0;
+    for (int i = 0; i < receiverIds.length; i++) {
+      previous += reader.readVarLong();
+      receiverIds[i] = previous;
+    }
+    message.setReceiverIds(receiverIds);
+    return message;
+  }
+
+  private static byte[] toBytes(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int length(byte[] bytes) {
+    return bytes == null ? 0 : bytes.length;
+  }
+
+  private static long required(Long value, String name) {
+    if (value == null) {
+      throw new SerializationException(name + " is required");
+    }
+    return value;
+  }
+
+  private static class Writer {
+
+    private byte[] buffer;
+    private int position;
+
+    Writer(int capacity) {
+      buffer = new byte[capacity];
+    }
+
+    void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+      if (value < 0) {
+        throw new SerializationException("Negative value can't be written: " + value);
+      }
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    void writeBytes(byte[] bytes) {
+      if (bytes == null) {
+        writeVarLong(0);
+        return;
+      }
+      writeVarLong(bytes.length + 1L);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    byte[] toByteArray() {
+      return position == buffer.length ? buffer : Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int size) {
+      if (position + size > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + size));
+      }
+    }
+  }
+
+  private static class Reader {
+
+    private final byte[] buffer;
+    private int position;
+
+    Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    byte readByte() {
+      checkRemaining(1);
+      return buffer[position++];
+    }
+
+    long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new SerializationException("Malformed varint");
+    }
+
+    /**
+     * A count of varints, each at least one byte. So a count over the remaining bytes is malformed,
+     * and is rejected before an array of it is allocated.
+     */
+    int readCount() {
+      long count = readVarLong();
+      checkRemaining(count);
+      return (int) count;
+    }
+
+    String readString() {
+      long length = readVarLong();
+      if (length == 0) {
+        return null;
+      }
+      checkRemaining(length - 1);
+      int size = (int) (length - 1);
+      String value = new String(buffer, position, size, StandardCharsets.UTF_8);
+      position += size;
+      return value;
+    }
+
+    private void checkRemaining(long size) {
+      if (size < 0 || size > buffer.length - position) {
+        throw new SerializationException("Truncated comment.write.v2 message");
+      }
+    }
+  }
+}
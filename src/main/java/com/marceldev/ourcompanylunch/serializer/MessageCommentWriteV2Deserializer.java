@@ -0,0 +1,15 @@
+package com.marceldev.ourcompanylunch.serializer;
+
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * For consumers of comment.write.v2 in the binary format.
+ */
+public class MessageCommentWriteV2Deserializer implements Deserializer<MessageCommentWriteV2> {
+
+  @Override
+  public MessageCommentWriteV2 deserialize(String topic, byte[] data) {
+    return data == null ? null : MessageCommentWriteV2Codec.decode(data);
+  }
+}
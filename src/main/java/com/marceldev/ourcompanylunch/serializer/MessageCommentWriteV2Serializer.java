@@ -0,0 +1,12 @@
+package com.marceldev.ourcompanylunch.serializer;
+
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class MessageCommentWriteV2Serializer implements Serializer<MessageCommentWriteV2> {
+
+  @Override
+  public byte[] serialize(String topic, MessageCommentWriteV2 data) {
+    return data == null ? null : MessageCommentWriteV2Codec.encode(data);
+  }
+}
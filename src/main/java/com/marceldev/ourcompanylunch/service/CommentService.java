@@ -1,24 +1,34 @@
 package com.marceldev.ourcompanylunch.service;
 
+import com.marceldev.ourcompanylunch.component.DinerSnapshotCache;
 import com.marceldev.ourcompanylunch.dto.comment.CommentOutputDto;
 import com.marceldev.ourcompanylunch.dto.comment.CreateCommentRequest;
 import com.marceldev.ourcompanylunch.dto.comment.CreateCommentResponse;
 import com.marceldev.ourcompanylunch.dto.comment.GetCommentListRequest;
 import com.marceldev.ourcompanylunch.dto.comment.UpdateCommentRequest;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.entity.Comment;
+import com.marceldev.ourcompanylunch.entity.CommentSearchToken;
 import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.event.CommentCreatedEvent;
 import com.marceldev.ourcompanylunch.exception.comment.CommentNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
 import com.marceldev.ourcompanylunch.repository.comment.CommentRepository;
+import com.marceldev.ourcompanylunch.repository.comment.CommentSearchTokenRepository;
 import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
 import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
+import com.marceldev.ourcompanylunch.security.MemberPrincipal;
+import com.marceldev.ourcompanylunch.security.MemberPrincipalProvider;
+import com.marceldev.ourcompanylunch.util.NgramUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,18 +39,31 @@ public class CommentService {
 
   private final CommentRepository commentRepository;
 
+  private final CommentSearchTokenRepository commentSearchTokenRepository;
+
   private final DinerRepository dinerRepository;
 
+  private final DinerSnapshotCache dinerSnapshotCache;
+
+  private final MemberPrincipalProvider memberPrincipalProvider;
+
   private final MemberRepository memberRepository;
 
+  private final OutboxService outboxService;
+
+  private final ApplicationEventPublisher eventPublisher;
+
   @Transactional
   public CreateCommentResponse createComment(long dinerId, CreateCommentRequest dto) {
-    Member member = getMember();
+    MemberPrincipal principal = memberPrincipalProvider.get();
 
     Diner diner = dinerRepository.findById(dinerId)
-        .filter((d) -> d.getCompany().getId().equals(member.getCompany().getId()))
+        .filter((d) -> d.getCompany().getId().equals(principal.companyId()))
         .orElseThrow(() -> new DinerNotFoundException(dinerId));
 
+    // Reference of the member. Doesn't query DB.
+    Member member = memberRepository.getReferenceById(principal.memberId());
+
     Comment comment = Comment.builder()
         .content(dto.getContent())
         .shareStatus(dto.getShareStatus())
@@ -49,6 +72,14 @@ public class CommentService {
         .build();
 
     comment = commentRepository.save(comment);
+    commentSearchTokenRepository.saveAll(
+        CommentSearchToken.listOf(comment.getId(), dinerId, comment.getContent()));
+    dinerRepository.increaseCommentCount(dinerId);
+    dinerSnapshotCache.changeCommentCount(diner.getCompany().getId(), dinerId, 1);
+    CommentCreatedEvent event = new CommentCreatedEvent(comment.getId(), dinerId,
+        principal.memberId(), principal.name(), comment.getContent());
+    outboxService.appendCommentCreated(event);
+    eventPublisher.publishEvent(event);
     return CreateCommentResponse.builder().id(comment.getId()).build();
   }
 
@@ -58,40 +89,59 @@ public class CommentService {
         dto.getPage(),
         dto.getSize()
     );
-    Member member = getMember();
-    return commentRepository.getList(dto, member.getId(), dinerId, pageable)
+    long memberId = memberPrincipalProvider.getMemberId();
+    return commentRepository.getList(dto, memberId, dinerId, pageable)
+        .map(c -> CommentOutputDto.of(c, c.getMember().getName()));
+  }
+
+  public CursorSliceResponse<CommentOutputDto> getCommentListByCursor(long dinerId,
+      GetCommentListRequest dto) {
+    long memberId = memberPrincipalProvider.getMemberId();
+    return commentRepository.getSlice(dto, memberId, dinerId)
         .map(c -> CommentOutputDto.of(c, c.getMember().getName()));
   }
 
   @Transactional
   public void updateComment(long commentId, UpdateCommentRequest dto) {
-    String email = getMemberEmail();
-    Comment comment = commentRepository.findByIdAndMember_Email(commentId, email)
+    long memberId = memberPrincipalProvider.getMemberId();
+    Comment comment = commentRepository.findByIdAndMember_Id(commentId, memberId)
         .orElseThrow(CommentNotFoundException::new);
     comment.setContent(dto.getContent());
     comment.setShareStatus(dto.getShareStatus());
+    updateSearchTokens(comment);
   }
 
   @Transactional
   public void deleteComment(long commentId) {
-    String email = getMemberEmail();
-    Comment comment = commentRepository.findByIdAndMember_Email(commentId, email)
+    long memberId = memberPrincipalProvider.getMemberId();
+    Comment comment = commentRepository.findByIdAndMember_Id(commentId, memberId)
         .orElseThrow(CommentNotFoundException::new);
     commentRepository.delete(comment);
-  }
-
-  private Member getMember() {
-    String email = getMemberEmail();
-    return memberRepository.findByEmail(email)
-        .orElseThrow(MemberNotFoundException::new);
+    commentSearchTokenRepository.deleteByCommentId(commentId);
+    Diner diner = comment.getDiner();
+    dinerRepository.decreaseCommentCount(diner.getId());
+    dinerSnapshotCache.changeCommentCount(diner.getCompany().getId(), diner.getId(), -1);
   }
 
   /**
-   * Doesn't query DB. SecurityContextHolder principal has email(username)
+   * Change only the tokens that differ from the new content. Kept tokens are updated in place.
    */
-  private String getMemberEmail() {
-    return (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
+  private void updateSearchTokens(Comment comment) {
+    Map<String, Integer> counts = NgramUtil.countGrams(comment.getContent());
+    List<CommentSearchToken> removed = new ArrayList<>();
+    for (CommentSearchToken token : commentSearchTokenRepository.findAllByCommentId(
+        comment.getId())) {
+      Integer frequency = counts.remove(token.getToken());
+      if (frequency == null) {
+        removed.add(token);
+      } else {
+        token.setFrequency(frequency);
+      }
+    }
+    commentSearchTokenRepository.deleteAll(removed);
+    commentSearchTokenRepository.saveAll(counts.entrySet().stream()
+        .map(entry -> new CommentSearchToken(comment.getId(), entry.getKey(),
+            comment.getDiner().getId(), entry.getValue()))
+        .toList());
   }
 }
@@ -1,6 +1,10 @@
 package com.marceldev.ourcompanylunch.service;
 
+import com.marceldev.ourcompanylunch.component.DinerSnapshotCache;
 import com.marceldev.ourcompanylunch.component.EmailSender;
+import com.marceldev.ourcompanylunch.component.MemberCache;
+import com.marceldev.ourcompanylunch.component.MemberCache.CachedCompany;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.company.CompanyOutputDto;
 import com.marceldev.ourcompanylunch.dto.company.CreateCompanyRequest;
@@ -17,15 +21,17 @@ import com.marceldev.ourcompanylunch.exception.company.SameCompanyNameExistExcep
 import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
 import com.marceldev.ourcompanylunch.exception.member.VerificationCodeNotFoundException;
 import com.marceldev.ourcompanylunch.repository.company.CompanyRepository;
+import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
 import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
 import com.marceldev.ourcompanylunch.repository.verification.VerificationRepository;
+import com.marceldev.ourcompanylunch.security.MemberPrincipal;
+import com.marceldev.ourcompanylunch.security.MemberPrincipalProvider;
 import com.marceldev.ourcompanylunch.util.GenerateVerificationCodeUtil;
 import java.time.LocalDateTime;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -40,10 +46,18 @@ public class CompanyService {
 
   private final CompanyRepository companyRepository;
 
+  private final DinerRepository dinerRepository;
+
+  private final DinerSnapshotCache dinerSnapshotCache;
+
+  private final MemberCache memberCache;
+
   private final VerificationRepository verificationRepository;
 
   private final MemberRepository memberRepository;
 
+  private final MemberPrincipalProvider memberPrincipalProvider;
+
   private final EmailSender emailSender;
 
   @Transactional
@@ -68,15 +82,15 @@ public class CompanyService {
    */
   @Transactional
   public void updateCompany(long id, UpdateCompanyRequest dto) {
-    String email = getMemberEmail();
+    MemberPrincipal principal = memberPrincipalProvider.get();
 
     // Check if company exists.
-    Company company = memberRepository.findByEmailAndCompanyId(email, id)
-        .map(Member::getCompany)
+    Company company = companyRepository.findById(id)
+        .filter((c) -> c.getId().equals(principal.companyId()))
         .orElseThrow(CompanyNotFoundException::new);
 
     // Check verification code.
-    Verification verification = verificationRepository.findByEmail(email)
+    Verification verification = verificationRepository.findByEmail(principal.email())
         .filter((v) -> v.getCode().equals(dto.getVerificationCode()))
         .filter((v) -> v.getExpirationAt().isAfter(dto.getNow()))
         .orElseThrow(VerificationCodeNotFoundException::new);
@@ -86,6 +100,9 @@ public class CompanyService {
     company.setLocation(dto.getLocation());
     company.setEnterKey(dto.getEnterKey());
     company.setEnterKeyEnabled(dto.getEnterKeyEnabled());
+    dinerRepository.updateDistanceByCompanyId(company.getId(), company.getLocation());
+    dinerSnapshotCache.invalidate(company.getId());
+    memberCache.invalidateCompany(company.getId());
 
     verificationRepository.delete(verification);
   }
@@ -99,21 +116,27 @@ public class CompanyService {
         .map(CompanyOutputDto::of);
   }
 
+  public CursorSliceResponse<CompanyOutputDto> getCompanyListByCursor(GetCompanyListRequest dto) {
+    return companyRepository.getSlice(dto);
+  }
+
   @Transactional
   public void chooseCompany(long companyId, ChooseCompanyRequest dto) {
-    String email = getMemberEmail();
-    Member member = memberRepository.findByEmail(email)
+    Member member = memberRepository.findById(memberPrincipalProvider.getMemberId())
         .orElseThrow(MemberNotFoundException::new);
 
-    Company company = companyRepository.findById(companyId)
+    CachedCompany company = memberCache.getCompany(companyId, companyRepository::findById)
         .orElseThrow(CompanyNotFoundException::new);
 
-    if (company.isEnterKeyEnabled() &&
-        !company.getEnterKey().equals(dto.getEnterKey())) {
+    // The enter key is not cached. Only a company with the key enabled is read.
+    if (company.enterKeyEnabled() &&
+        !companyRepository.getReferenceById(companyId).getEnterKey()
+            .equals(dto.getEnterKey())) {
       throw new CompanyEnterKeyNotMatchException();
     }
 
-    member.setCompany(company);
+    member.setCompany(companyRepository.getReferenceById(companyId));
+    memberCache.invalidatePrincipal(member.getEmail());
   }
 
   private void sendVerificationCodeEmail(String email, String code) {
@@ -134,13 +157,4 @@ public class CompanyService {
 
     verificationRepository.save(verification);
   }
-
-  /**
-   * Doesn't query DB. SecurityContextHolder principal has email(username)
-   */
-  private String getMemberEmail() {
-    return (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
-  }
 }
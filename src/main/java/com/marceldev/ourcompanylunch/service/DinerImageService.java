@@ -2,30 +2,44 @@ package com.marceldev.ourcompanylunch.service;
 
 import com.marceldev.ourcompanylunch.component.S3Manager;
 import com.marceldev.ourcompanylunch.dto.diner.AddDinerImageResponse;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerImageUploadUrlRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerImageUploadUrlResponse;
 import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.DinerImage;
+import com.marceldev.ourcompanylunch.entity.DinerImageUpload;
 import com.marceldev.ourcompanylunch.exception.common.InternalServerErrorException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerImageNotFoundException;
+import com.marceldev.ourcompanylunch.exception.diner.DinerImageUploadNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerMaxImageCountExceedException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.ImageDeleteFailException;
+import com.marceldev.ourcompanylunch.exception.diner.ImageNotUploadedException;
 import com.marceldev.ourcompanylunch.exception.diner.ImageUploadFailException;
 import com.marceldev.ourcompanylunch.exception.diner.ImageWithNoExtensionException;
+import com.marceldev.ourcompanylunch.exception.diner.NotImageFileException;
 import com.marceldev.ourcompanylunch.repository.diner.DinerImageRepository;
+import com.marceldev.ourcompanylunch.repository.diner.DinerImageUploadRepository;
 import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
+import com.marceldev.ourcompanylunch.type.ThumbnailStatus;
+import com.marceldev.ourcompanylunch.util.DinerImageKeyUtil;
 import com.marceldev.ourcompanylunch.util.FileUtil;
 import com.marceldev.ourcompanylunch.util.MakeThumbnailUtil;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.UUID;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 @Slf4j
@@ -37,60 +51,154 @@ public class DinerImageService {
   @Value("${s3.diner-max-image-count}")
   private int dinerMaxImageCount;
 
+  @Value("${image.spool-dir:${java.io.tmpdir}}")
+  private Path spoolDirectory;
+
+  @Value("${image.upload-url-expiration:10m}")
+  private Duration uploadUrlExpiration;
+
+  /**
+   * Also the limit of a direct upload, which doesn't pass the multipart parser.
+   */
+  @Value("${spring.servlet.multipart.max-file-size:20MB}")
+  private DataSize maxFileSize;
+
   private final DinerRepository dinerRepository;
 
   private final DinerImageRepository dinerImageRepository;
 
+  private final DinerImageUploadRepository dinerImageUploadRepository;
+
   private final S3Manager s3Manager;
 
+  private final DinerThumbnailService dinerThumbnailService;
+
+  private final StorageDeletionService storageDeletionService;
+
+  private final TransactionTemplate transactionTemplate;
+
   /**
-   * Order value of image is defined by the most value of an existing image's order + 100. Create a
-   * thumbnail and save it in S3.
+   * Order value of image is defined by the most value of an existing image's order + 100. The
+   * original is saved in S3 and DB with the PENDING thumbnail status, and the thumbnail is made by
+   * DinerThumbnailService after the commit, with its variants. The thumbnail has the order of its
+   * original.
+   * <p>
+   * The upload is spooled to a temp file, and both the S3 upload and the thumbnail read from the
+   * file. So the image is never held on heap as a whole. DinerThumbnailService deletes the file.
+   * <p>
+   * The upload runs without a transaction, so no connection or lock is held while it's sent.
+   * The image is then saved in a short transaction, which locks the diner before any other read
+   * and checks the max image count again. If that fails, the uploaded file is queued for deletion.
    */
-  // TODO: Fix that thumbnail is included in order.
-  @Transactional
+  @Transactional(propagation = Propagation.SUPPORTS)
   public AddDinerImageResponse addDinerImage(long dinerId, MultipartFile image) {
-    Diner diner = getDiner(dinerId);
-    checkMaxImageCount(diner);
+    // Fail before uploading. Checked again under the lock.
+    checkMaxImageCount(getDiner(dinerId), null);
     String extension = FileUtil.getExtension(image)
         .orElseThrow(ImageWithNoExtensionException::new);
 
-    // Use BufferedInputStream to reuse. (Normally, input stream is used once.)
-    try (BufferedInputStream bufferedInputStream = new BufferedInputStream(
-        image.getInputStream())) {
-      // Set a large read limit to prevent the mark from being invalidated.
-      // Thus, I can call reset. (If the mark is invalidated, I can't call reset.)
-      bufferedInputStream.mark(Integer.MAX_VALUE);
-
-      // Create a thumbnail
-      bufferedInputStream.reset();
-      ByteArrayOutputStream resizedOutputStream = MakeThumbnailUtil.resizeFile(
-          bufferedInputStream, extension
-      );
-      InputStream thumbnailInputStream = new ByteArrayInputStream(
-          resizedOutputStream.toByteArray()
-      );
-
-      // Upload original and thumbnail image in S3.
-      bufferedInputStream.reset();
-      String keyImage = genDinerImageKey(dinerId, extension, false);
-      uploadDinerImageToStorage(
-          keyImage, bufferedInputStream, extension, image.getSize()
-      );
-      String keyThumbnail = genDinerImageKey(dinerId, extension, true);
-      uploadDinerImageToStorage(
-          keyThumbnail, thumbnailInputStream, extension, resizedOutputStream.size()
-      );
+    Path spooled = spool(image, extension);
+    try {
+      // Decoding is left to the thumbnail worker. Only check that it's an image.
+      MakeThumbnailUtil.checkReadable(spooled);
+
+      // Upload original image in S3.
+      String keyImage = DinerImageKeyUtil.genImageKey(dinerId, extension);
+      uploadDinerImageToStorage(keyImage, spooled);
 
       // Save image info in DB.
-      DinerImage dinerImageOriginal = saveDinerImage(diner, keyImage, false);
-      DinerImage dinerImageThumbnail = saveDinerImage(diner, keyThumbnail, true);
+      DinerImage dinerImageOriginal;
+      try {
+        dinerImageOriginal = transactionTemplate.execute(status -> {
+          DinerImage saved = registerDinerImage(dinerId, keyImage);
+          dinerThumbnailService.requestAfterCommit(saved.getId(), keyImage, spooled, extension);
+          return saved;
+        });
+      } catch (RuntimeException e) {
+        try {
+          transactionTemplate.executeWithoutResult(
+              status -> storageDeletionService.enqueue(List.of(keyImage)));
+        } catch (RuntimeException enqueueFailure) {
+          // The reconciler finds the file later.
+          e.addSuppressed(enqueueFailure);
+        }
+        throw e;
+      }
       return AddDinerImageResponse.of(dinerImageOriginal);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    } catch (RuntimeException e) {
+      FileUtil.deleteQuietly(spooled);
+      throw e;
     }
   }
 
+  /**
+   * Reserve an image of the diner, and sign a URL the client uploads the image to directly. So
+   * the image doesn't pass through this server. The reservation counts to the max image count until
+   * it expires.
+   */
+  @Transactional
+  public CreateDinerImageUploadUrlResponse createUploadUrl(long dinerId,
+      CreateDinerImageUploadUrlRequest dto) {
+    String filename = dto.getFilename();
+    String extension = FileUtil.getExtension(filename)
+        .orElseThrow(ImageWithNoExtensionException::new);
+    String contentType = MediaTypeFactory.getMediaType(filename)
+        .filter(mediaType -> "image".equals(mediaType.getType()))
+        .map(MediaType::toString)
+        .orElseThrow(() -> new NotImageFileException(filename));
+
+    Diner diner = lockDiner(dinerId);
+    LocalDateTime now = LocalDateTime.now();
+    dinerImageUploadRepository.deleteExpired(diner, now);
+    checkMaxImageCount(diner, null);
+
+    String key = DinerImageKeyUtil.genImageKey(dinerId, extension);
+    LocalDateTime expirationAt = now.plus(uploadUrlExpiration);
+    dinerImageUploadRepository.save(DinerImageUpload.builder()
+        .s3Key(key)
+        .expirationAt(expirationAt)
+        .diner(diner)
+        .build());
+
+    return CreateDinerImageUploadUrlResponse.builder()
+        .uploadUrl(s3Manager.createUploadUrl(key, contentType, uploadUrlExpiration))
+        .contentType(contentType)
+        .key(DinerImageKeyUtil.getName(key))
+        .expirationAt(expirationAt)
+        .build();
+  }
+
+  /**
+   * Register the image uploaded with the URL of createUploadUrl, after checking it's in storage.
+   * Its thumbnail is made after the commit, from the image downloaded from storage. An expired
+   * reservation can still be completed if the max image count allows.
+   * <p>
+   * The reservation is read under the lock of the diner. So a retried complete waits for the first
+   * one, and then doesn't find the reservation.
+   */
+  @Transactional
+  public AddDinerImageResponse completeUpload(long dinerId, String name) {
+    String key = DinerImageKeyUtil.imageKey(dinerId, name)
+        .orElseThrow(() -> new DinerImageUploadNotFoundException(name));
+    String extension = FileUtil.getExtension(name)
+        .orElseThrow(ImageWithNoExtensionException::new);
+
+    Diner diner = lockDiner(dinerId);
+    DinerImageUpload upload = dinerImageUploadRepository.findByS3KeyForUpdate(key)
+        .orElseThrow(() -> new DinerImageUploadNotFoundException(name));
+
+    s3Manager.getFileSize(key)
+        .filter(size -> size <= maxFileSize.toBytes())
+        .orElseThrow(() -> new ImageNotUploadedException(name));
+
+    checkMaxImageCount(diner, key);
+    DinerImage dinerImageOriginal = saveDinerImage(diner, key);
+    dinerImageUploadRepository.delete(upload);
+    dinerThumbnailService.requestFromStorageAfterCommit(dinerImageOriginal.getId(), key,
+        extension);
+    return AddDinerImageResponse.of(dinerImageOriginal);
+  }
+
   @Transactional
   public void removeDinerImage(long imageId) {
     DinerImage dinerImage = dinerImageRepository.findById(imageId)
@@ -98,7 +206,13 @@ public class DinerImageService {
     String key = dinerImage.getS3Key();
 
     deleteDinerImageFromStorage(key);
+    Optional.ofNullable(dinerImage.getVariantWidths()).orElse(List.of())
+        .forEach(width -> deleteDinerImageFromStorage(DinerImageKeyUtil.variantKey(key, width)));
     try {
+      if (!dinerImage.isThumbnail()) {
+        dinerImageRepository.deleteByDinerAndOrdersAndThumbnail(dinerImage.getDiner(),
+            dinerImage.getOrders(), true);
+      }
       dinerImageRepository.delete(dinerImage);
     } catch (RuntimeException e) {
       // What if the image in S3 is removed and the image info remains in DB?
@@ -108,11 +222,19 @@ public class DinerImageService {
     }
   }
 
-  private void uploadDinerImageToStorage(String key, InputStream inputStream, String extension,
-      long size) {
+  private Path spool(MultipartFile image, String extension) {
     try {
-      s3Manager.uploadFile(key, inputStream, size);
+      return FileUtil.spool(image, spoolDirectory, extension);
     } catch (IOException e) {
+      log.error(e.getMessage());
+      throw new InternalServerErrorException("Fail to read the uploaded image");
+    }
+  }
+
+  private void uploadDinerImageToStorage(String key, Path file) {
+    try {
+      s3Manager.uploadFileAsync(key, file).join();
+    } catch (RuntimeException e) {
       log.error(e.getMessage());
       throw new ImageUploadFailException(key);
     }
@@ -127,13 +249,14 @@ public class DinerImageService {
     }
   }
 
-  private DinerImage saveDinerImage(Diner diner, String key, boolean thumbnail) {
+  private DinerImage saveDinerImage(Diner diner, String key) {
     try {
       DinerImage dinerImage = DinerImage.builder()
           .s3Key(key)
           .orders(getNextImageOrder(diner))
           .diner(diner)
-          .thumbnail(thumbnail)
+          .thumbnail(false)
+          .thumbnailStatus(ThumbnailStatus.PENDING)
           .build();
       return dinerImageRepository.save(dinerImage);
     } catch (RuntimeException e) {
@@ -151,18 +274,25 @@ public class DinerImageService {
         .orElse(orderStep);
   }
 
-  private void checkMaxImageCount(Diner diner) {
-    int count = dinerImageRepository.countByDinerAndThumbnail(diner, false);
-    if (count >= dinerMaxImageCount) {
-      throw new DinerMaxImageCountExceedException();
-    }
+  /**
+   * Save the original under the lock of the diner, taken first in the transaction. So concurrent
+   * uploads can't exceed the max image count or take the same order.
+   */
+  private DinerImage registerDinerImage(long dinerId, String key) {
+    Diner diner = lockDiner(dinerId);
+    checkMaxImageCount(diner, null);
+    return saveDinerImage(diner, key);
   }
 
-  private String genDinerImageKey(long dinerId, String extension, boolean thumbnail) {
-    if (thumbnail) {
-      return "diner/" + dinerId + "/thumbnails/" + UUID.randomUUID() + "." + extension;
-    } else {
-      return "diner/" + dinerId + "/images/" + UUID.randomUUID() + "." + extension;
+  /**
+   * Images and the uploads in flight, except the upload of exceptKey being completed.
+   */
+  private void checkMaxImageCount(Diner diner, String exceptKey) {
+    int count = dinerImageRepository.countByDinerAndThumbnail(diner, false)
+        + dinerImageUploadRepository.countInFlight(diner, LocalDateTime.now(),
+        exceptKey != null ? exceptKey : "");
+    if (count >= dinerMaxImageCount) {
+      throw new DinerMaxImageCountExceedException();
     }
   }
 
@@ -170,4 +300,13 @@ public class DinerImageService {
     return dinerRepository.findById(id)
         .orElseThrow(() -> new DinerNotFoundException(id));
   }
+
+  /**
+   * Taken first in a transaction that checks the max image count. A lock doesn't start the snapshot
+   * of REPEATABLE READ, so the reads after it see what the previous holder committed.
+   */
+  private Diner lockDiner(long id) {
+    return dinerRepository.findByIdForUpdate(id)
+        .orElseThrow(() -> new DinerNotFoundException(id));
+  }
 }
@@ -1,85 +1,110 @@
 package com.marceldev.ourcompanylunch.service;
 
+import com.marceldev.ourcompanylunch.component.DinerSnapshotCache;
+import com.marceldev.ourcompanylunch.component.DinerSubscriberIndex;
+import com.marceldev.ourcompanylunch.component.MemberCache;
+import com.marceldev.ourcompanylunch.component.MemberCache.CachedCompany;
 import com.marceldev.ourcompanylunch.component.S3Manager;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
 import com.marceldev.ourcompanylunch.dto.diner.DinerDetailOutputDto;
+import com.marceldev.ourcompanylunch.dto.diner.DinerDetailQueryDto;
 import com.marceldev.ourcompanylunch.dto.diner.DinerOutputDto;
 import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
+import com.marceldev.ourcompanylunch.dto.diner.GetNearbyDinerListRequest;
 import com.marceldev.ourcompanylunch.dto.diner.UpdateDinerRequest;
-import com.marceldev.ourcompanylunch.entity.Company;
 import com.marceldev.ourcompanylunch.entity.Diner;
-import com.marceldev.ourcompanylunch.entity.DinerImage;
-import com.marceldev.ourcompanylunch.entity.Member;
 import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberUnauthorizedException;
+import com.marceldev.ourcompanylunch.repository.company.CompanyRepository;
 import com.marceldev.ourcompanylunch.repository.diner.DinerImageRepository;
+import com.marceldev.ourcompanylunch.repository.diner.DinerImageUploadRepository;
 import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
-import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
+import com.marceldev.ourcompanylunch.security.MemberPrincipalProvider;
+import com.marceldev.ourcompanylunch.util.DinerImageKeyUtil;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import lombok.AllArgsConstructor;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Slf4j
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class DinerService {
 
+  @Value("${s3.diner-max-image-count}")
+  private int dinerMaxImageCount;
+
   private final S3Manager s3Manager;
 
+  private final DinerSnapshotCache dinerSnapshotCache;
+
+  private final DinerSubscriberIndex dinerSubscriberIndex;
+
+  private final MemberCache memberCache;
+
   private final DinerImageRepository dinerImageRepository;
 
-  private final MemberRepository memberRepository;
+  private final DinerImageUploadRepository dinerImageUploadRepository;
+
+  private final StorageDeletionService storageDeletionService;
+
+  private final MemberPrincipalProvider memberPrincipalProvider;
+
+  private final CompanyRepository companyRepository;
 
   private final DinerRepository dinerRepository;
 
   @Transactional
   public CreateDinerResponse createDiner(CreateDinerRequest dto) {
-    Company company = getCompany();
+    CachedCompany company = getCompany();
     Diner diner = dto.toEntity();
-    diner.setCompany(company);
+    diner.setCompany(companyRepository.getReferenceById(company.id()));
     diner = dinerRepository.save(diner);
+    dinerRepository.updateDistance(diner.getId(), company.location());
+    dinerSnapshotCache.invalidate(company.id());
     return CreateDinerResponse.of(diner);
   }
 
   public Page<DinerOutputDto> getDinerList(GetDinerListRequest dto) {
-    Company company = getCompany();
-    Pageable pageable = PageRequest.of(
-        dto.getPage(),
-        dto.getSize()
-    );
-    return dinerRepository.getList(company.getId(), dto, pageable);
+    long companyId = memberPrincipalProvider.getCompanyId();
+    return dinerSnapshotCache.get(companyId).getPage(dto);
   }
 
-  public DinerDetailOutputDto getDinerDetail(long id) {
-    Diner diner = getDiner(id);
-    List<String> dinerImageKeys = Optional.ofNullable(diner.getDinerImages())
-        .orElse(Collections.emptyList()).stream()
-        .filter(dinerImage -> !dinerImage.isThumbnail())
-        .map(DinerImage::getS3Key)
-        .toList();
-    List<String> dinerThumbnailKeys = Optional.ofNullable(diner.getDinerImages())
-        .orElse(Collections.emptyList()).stream()
-        .filter(DinerImage::isThumbnail)
-        .map(DinerImage::getS3Key)
-        .toList();
-    List<String> imageUrls = getImageUrls(dinerImageKeys);
-    List<String> thumbnailUrls = getImageUrls(dinerThumbnailKeys);
+  public CursorSliceResponse<DinerOutputDto> getDinerListByCursor(GetDinerListRequest dto) {
+    long companyId = memberPrincipalProvider.getCompanyId();
+    return dinerSnapshotCache.get(companyId).getSlice(dto);
+  }
 
-    Integer distance = dinerRepository.getDistance(diner.getCompany().getId(), diner.getId());
-    return DinerDetailOutputDto.of(diner, thumbnailUrls, imageUrls, distance);
+  public List<DinerOutputDto> getNearbyDinerList(GetNearbyDinerListRequest dto) {
+    long companyId = memberPrincipalProvider.getCompanyId();
+    return dinerRepository.getNearbyList(companyId, dto);
+  }
+
+  public DinerDetailOutputDto getDinerDetail(long id) {
+    long companyId = memberPrincipalProvider.getCompanyId();
+
+    // Each image has an original and a thumbnail.
+    DinerDetailQueryDto diner = dinerRepository.getDetail(companyId, id,
+            dinerMaxImageCount * 2)
+        .orElseThrow(() -> new DinerNotFoundException(id));
+    List<String> imageUrls = getImageUrls(diner.getImageKeys());
+    List<String> thumbnailUrls = getImageUrls(diner.getThumbnailKeys());
+    List<Map<Integer, String>> imageVariantUrls = getImageVariantUrls(diner.getImageKeys(),
+        diner.getImageVariantWidths());
+
+    return DinerDetailOutputDto.of(diner, thumbnailUrls, imageUrls, imageVariantUrls);
   }
 
   @Transactional
@@ -87,27 +112,33 @@ public class DinerService {
     Diner diner = getDiner(id);
     diner.setLink(dto.getLink());
     diner.setLocation(dto.getLocation());
+    dinerRepository.updateDistance(id, getCompany().location());
+    dinerSnapshotCache.invalidate(diner.getCompany().getId());
   }
 
   @Transactional
   public void removeDiner(long id) {
     Diner diner = getDiner(id);
-    List<String> dinerImageKeys = Optional.ofNullable(diner.getDinerImages())
-        .orElse(Collections.emptyList())
-        .stream()
-        .map(DinerImage::getS3Key)
+    // Uploads in flight may have been put in storage already.
+    List<String> storageKeys = Stream.concat(
+            Optional.ofNullable(diner.getDinerImages())
+                .orElse(Collections.emptyList())
+                .stream()
+                .flatMap(dinerImage -> DinerImageKeyUtil.storageKeys(dinerImage.getS3Key(),
+                    dinerImage.getVariantWidths())),
+            dinerImageUploadRepository.findS3KeysByDinerId(id).stream())
+        .distinct()
         .toList();
 
     dinerImageRepository.deleteByDinerId(id);
+    dinerImageUploadRepository.deleteByDinerId(id);
     dinerRepository.delete(diner);
+    dinerSnapshotCache.invalidate(diner.getCompany().getId());
+    dinerSubscriberIndex.invalidate(id);
 
-    // After removing diner and dinerImage, remove the image stored in S3.
-    // Even if removing the S3 image failed, if the diner is removed from DB, it succeeds without exception.
-    try {
-      dinerImageKeys.forEach(s3Manager::removeFile);
-    } catch (Exception e) {
-      log.error(e.getMessage());
-    }
+    // The images stored in S3 are deleted by StorageDeletionRelay after the commit, retried if it
+    // fails. So the diner is removed without waiting for S3.
+    storageDeletionService.enqueue(storageKeys);
   }
 
   private List<String> getImageUrls(List<String> s3Keys) {
@@ -120,35 +151,39 @@ public class DinerService {
     return imageUrls;
   }
 
+  /**
+   * Width to URL of each image, like srcset. Empty for an image whose variants aren't made yet.
+   */
+  private List<Map<Integer, String>> getImageVariantUrls(List<String> imageKeys,
+      List<List<Integer>> imageVariantWidths) {
+    List<Map<Integer, String>> imageVariantUrls = new ArrayList<>();
+    for (int i = 0; i < imageKeys.size(); i++) {
+      Map<Integer, String> variantUrls = new LinkedHashMap<>();
+      for (int width : imageVariantWidths.get(i)) {
+        variantUrls.put(width,
+            s3Manager.getUrl(DinerImageKeyUtil.variantKey(imageKeys.get(i), width)));
+      }
+      imageVariantUrls.add(variantUrls);
+    }
+    return imageVariantUrls;
+  }
+
   /**
    * Get diner. Check if the member can access the diner.
    */
   private Diner getDiner(long dinerId) {
-    Company company = getCompany();
+    long companyId = memberPrincipalProvider.getCompanyId();
     return dinerRepository.findById(dinerId)
-        .filter((diner) -> diner.getCompany().equals(company))
+        .filter((diner) -> diner.getCompany().getId().equals(companyId))
         .orElseThrow(() -> new DinerNotFoundException(dinerId));
   }
 
   /**
    * Get company. Check if the member can access the company.
    */
-  private Company getCompany() {
-    Member member = getMember();
-    if (member.getCompany() == null) {
-      throw new CompanyNotFoundException();
-    }
-    return member.getCompany();
-  }
-
-  private Member getMember() {
-    String email = (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
-    if (email == null) {
-      throw new MemberUnauthorizedException();
-    }
-    return memberRepository.findByEmail(email)
-        .orElseThrow(MemberNotFoundException::new);
+  private CachedCompany getCompany() {
+    return memberCache.getCompany(memberPrincipalProvider.getCompanyId(),
+            companyRepository::findById)
+        .orElseThrow(CompanyNotFoundException::new);
   }
 }
@@ -1,21 +1,18 @@
 package com.marceldev.ourcompanylunch.service;
 
-import com.marceldev.ourcompanylunch.entity.Company;
+import com.marceldev.ourcompanylunch.component.DinerSubscriberIndex;
 import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.DinerSubscription;
 import com.marceldev.ourcompanylunch.entity.Member;
-import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.AlreadySubscribedException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerSubscriptionNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberUnauthorizedException;
 import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
 import com.marceldev.ourcompanylunch.repository.diner.DinerSubscriptionRepository;
 import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
+import com.marceldev.ourcompanylunch.security.MemberPrincipalProvider;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,12 +22,16 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional(readOnly = true)
 public class DinerSubscribeService {
 
+  private final MemberPrincipalProvider memberPrincipalProvider;
+
   private final MemberRepository memberRepository;
 
   private final DinerRepository dinerRepository;
 
   private final DinerSubscriptionRepository dinerSubscriptionRepository;
 
+  private final DinerSubscriberIndex dinerSubscriberIndex;
+
   @Transactional
   public void subscribeDiner(long id) {
     Diner diner = getDiner(id);
@@ -44,6 +45,7 @@ public class DinerSubscribeService {
         .diner(diner)
         .member(member)
         .build());
+    dinerSubscriberIndex.addAfterCommit(diner.getId(), member.getId());
   }
 
   @Transactional
@@ -56,37 +58,23 @@ public class DinerSubscribeService {
         .orElseThrow(DinerSubscriptionNotFoundException::new);
 
     dinerSubscriptionRepository.delete(dinerSubscription);
+    dinerSubscriberIndex.removeAfterCommit(diner.getId(), member.getId());
   }
 
   /**
    * Get diner. Check if the member can access the diner.
    */
   private Diner getDiner(long dinerId) {
-    Company company = getCompany();
+    long companyId = memberPrincipalProvider.getCompanyId();
     return dinerRepository.findById(dinerId)
-        .filter((diner) -> diner.getCompany().equals(company))
+        .filter((diner) -> diner.getCompany().getId().equals(companyId))
         .orElseThrow(() -> new DinerNotFoundException(dinerId));
   }
 
   /**
-   * Get company. Check if the member can access the company.
+   * Reference of the member. Doesn't query DB.
    */
-  private Company getCompany() {
-    Member member = getMember();
-    if (member.getCompany() == null) {
-      throw new CompanyNotFoundException();
-    }
-    return member.getCompany();
-  }
-
   private Member getMember() {
-    String email = (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
-    if (email == null) {
-      throw new MemberUnauthorizedException();
-    }
-    return memberRepository.findByEmail(email)
-        .orElseThrow(MemberNotFoundException::new);
+    return memberRepository.getReferenceById(memberPrincipalProvider.getMemberId());
   }
 }
@@ -1,19 +1,16 @@
 package com.marceldev.ourcompanylunch.service;
 
+import com.marceldev.ourcompanylunch.component.DinerSnapshotCache;
 import com.marceldev.ourcompanylunch.dto.diner.AddDinerTagsRequest;
+import com.marceldev.ourcompanylunch.dto.diner.DinerTagFacetDto;
 import com.marceldev.ourcompanylunch.dto.diner.RemoveDinerTagsRequest;
-import com.marceldev.ourcompanylunch.entity.Company;
 import com.marceldev.ourcompanylunch.entity.Diner;
-import com.marceldev.ourcompanylunch.entity.Member;
-import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberUnauthorizedException;
 import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
-import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
+import com.marceldev.ourcompanylunch.security.MemberPrincipalProvider;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,51 +20,38 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional(readOnly = true)
 public class DinerTagService {
 
-  private final MemberRepository memberRepository;
+  private final MemberPrincipalProvider memberPrincipalProvider;
 
   private final DinerRepository dinerRepository;
 
+  private final DinerSnapshotCache dinerSnapshotCache;
+
   @Transactional
   public void addDinerTag(long id, AddDinerTagsRequest dto) {
     Diner diner = getDiner(id);
     dto.getTags().forEach(diner::addTag);
+    dinerSnapshotCache.invalidate(diner.getCompany().getId());
   }
 
   @Transactional
   public void removeDinerTag(long id, RemoveDinerTagsRequest dto) {
     Diner diner = getDiner(id);
     dto.getTags().forEach(diner::removeTag);
+    dinerSnapshotCache.invalidate(diner.getCompany().getId());
+  }
+
+  public List<DinerTagFacetDto> getTagFacets() {
+    long companyId = memberPrincipalProvider.getCompanyId();
+    return dinerSnapshotCache.get(companyId).getTagFacets();
   }
 
   /**
    * Get diner. Check if the member can access the diner.
    */
   private Diner getDiner(long dinerId) {
-    Company company = getCompany();
+    long companyId = memberPrincipalProvider.getCompanyId();
     return dinerRepository.findById(dinerId)
-        .filter((diner) -> diner.getCompany().equals(company))
+        .filter((diner) -> diner.getCompany().getId().equals(companyId))
         .orElseThrow(() -> new DinerNotFoundException(dinerId));
   }
-
-  /**
-   * Get company. Check if the member can access the company.
-   */
-  private Company getCompany() {
-    Member member = getMember();
-    if (member.getCompany() == null) {
-      throw new CompanyNotFoundException();
-    }
-    return member.getCompany();
-  }
-
-  private Member getMember() {
-    String email = (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
-    if (email == null) {
-      throw new MemberUnauthorizedException();
-    }
-    return memberRepository.findByEmail(email)
-        .orElseThrow(MemberNotFoundException::new);
-  }
 }
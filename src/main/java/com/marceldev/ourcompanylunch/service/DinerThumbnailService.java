@@ -0,0 +1,282 @@
+package com.marceldev.ourcompanylunch.service;
+
+import com.marceldev.ourcompanylunch.component.S3Manager;
+import com.marceldev.ourcompanylunch.config.AsyncConfig;
+import com.marceldev.ourcompanylunch.entity.DinerImage;
+import com.marceldev.ourcompanylunch.exception.diner.ImageReadFailException;
+import com.marceldev.ourcompanylunch.repository.diner.DinerImageRepository;
+import com.marceldev.ourcompanylunch.type.ThumbnailStatus;
+import com.marceldev.ourcompanylunch.util.DinerImageKeyUtil;
+import com.marceldev.ourcompanylunch.util.FileUtil;
+import com.marceldev.ourcompanylunch.util.MakeThumbnailUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Makes the variants of an original image on the thumbnail executor, after the original is
+ * committed with the PENDING status. The variants are resized from one decode on the image variant
+ * pool, and uploaded concurrently under diner/{id}/variants/{width}/. The variant of the thumbnail
+ * width is saved as the thumbnail with the order of its original, and the original becomes DONE
+ * with its variant widths. A failed attempt is retried with a doubling backoff, and the original
+ * becomes FAILED after the max attempts, or when the image can't be decoded.
+ * <p>
+ * The image is read from the spooled upload file, which is deleted once the thumbnail is done or
+ * failed, or when the transaction rolls back. An image the client uploaded to storage directly is
+ * downloaded to a spool file first.
+ */
+@Slf4j
+@Service
+public class DinerThumbnailService {
+
+  private final DinerImageRepository dinerImageRepository;
+
+  private final S3Manager s3Manager;
+
+  private final ThreadPoolTaskExecutor thumbnailExecutor;
+
+  private final ForkJoinPool imageVariantPool;
+
+  /**
+   * Always has the thumbnail width.
+   */
+  private final SortedSet<Integer> variantWidths;
+
+  private final TransactionTemplate transactionTemplate;
+
+  /**
+   * For marking the image failed in afterCompletion, where the finished transaction is still bound.
+   */
+  private final TransactionTemplate newTransactionTemplate;
+
+  private final Path spoolDirectory;
+
+  private final int maxAttempts;
+
+  private final Duration retryBackoff;
+
+  private final Timer processTimer;
+
+  private final Counter doneCounter;
+
+  private final Counter failedCounter;
+
+  private final Counter rejectedCounter;
+
+  public DinerThumbnailService(DinerImageRepository dinerImageRepository, S3Manager s3Manager,
+      @Qualifier(AsyncConfig.THUMBNAIL_EXECUTOR) ThreadPoolTaskExecutor thumbnailExecutor,
+      @Qualifier(AsyncConfig.IMAGE_VARIANT_POOL) ForkJoinPool imageVariantPool,
+      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+      @Value("${image.variant-widths:150,300,720,1280}") List<Integer> variantWidths,
+      @Value("${image.spool-dir:${java.io.tmpdir}}") Path spoolDirectory,
+      @Value("${image.thumbnail.max-attempts:3}") int maxAttempts,
+      @Value("${image.thumbnail.retry-backoff:1s}") Duration retryBackoff) {
+    this.dinerImageRepository = dinerImageRepository;
+    this.s3Manager = s3Manager;
+    this.thumbnailExecutor = thumbnailExecutor;
+    this.imageVariantPool = imageVariantPool;
+    this.variantWidths = new TreeSet<>(variantWidths);
+    this.variantWidths.add(MakeThumbnailUtil.FIXED_WIDTH);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.newTransactionTemplate.setPropagationBehavior(
+        TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.spoolDirectory = spoolDirectory;
+    this.maxAttempts = maxAttempts;
+    this.retryBackoff = retryBackoff;
+    this.processTimer = Timer.builder("diner.image.thumbnail.process")
+        .description("Time to make, upload and save the variants, including retries")
+        .register(meterRegistry);
+    this.doneCounter = Counter.builder("diner.image.thumbnail.results")
+        .tag("result", "done")
+        .register(meterRegistry);
+    this.failedCounter = Counter.builder("diner.image.thumbnail.results")
+        .tag("result", "failed")
+        .register(meterRegistry);
+    this.rejectedCounter = Counter.builder("diner.image.thumbnail.results")
+        .tag("result", "rejected")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Submit the variants of the original image after the transaction commits. Takes over the
+   * image file.
+   */
+  public void requestAfterCommit(long originalImageId, String originalKey, Path image,
+      String extension) {
+    Runnable task = () -> process(originalImageId, originalKey, image, extension);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      submit(originalImageId, task, image);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        if (status == STATUS_COMMITTED) {
+          submit(originalImageId, task, image);
+        } else {
+          FileUtil.deleteQuietly(image);
+        }
+      }
+    });
+  }
+
+  /**
+   * Submit the variants of an original that's only in storage, uploaded by the client directly,
+   * after the transaction commits. The worker downloads it to the spool directory first.
+   */
+  public void requestFromStorageAfterCommit(long originalImageId, String originalKey,
+      String extension) {
+    Runnable task = () -> processFromStorage(originalImageId, originalKey, extension);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      submit(originalImageId, task, null);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        submit(originalImageId, task, null);
+      }
+    });
+  }
+
+  /**
+   * Make the variants on the caller thread, and delete the image file. Joins the transaction of
+   * the caller, if any.
+   */
+  public void process(long originalImageId, String originalKey, Path image, String extension) {
+    try {
+      processTimer.record(() -> processWithRetry(originalImageId, originalKey, image, extension));
+    } finally {
+      FileUtil.deleteQuietly(image);
+    }
+  }
+
+  private void processWithRetry(long originalImageId, String originalKey, Path image,
+      String extension) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        makeThumbnail(originalImageId, originalKey, image, extension);
+        return;
+      } catch (ImageReadFailException e) {
+        fail(transactionTemplate, originalImageId, e);
+        return;
+      } catch (RuntimeException e) {
+        if (attempt >= maxAttempts || !sleep(retryBackoff.multipliedBy(1L << (attempt - 1)))) {
+          fail(transactionTemplate, originalImageId, e);
+          return;
+        }
+        log.warn("Thumbnail of image {} failed, attempt {}: {}", originalImageId, attempt,
+            e.getMessage());
+      }
+    }
+  }
+
+  private void processFromStorage(long originalImageId, String originalKey, String extension) {
+    Path image = null;
+    try {
+      image = Files.createTempFile(spoolDirectory, "download-", "." + extension);
+      s3Manager.downloadFile(originalKey, image);
+    } catch (IOException | RuntimeException e) {
+      if (image != null) {
+        FileUtil.deleteQuietly(image);
+      }
+      fail(transactionTemplate, originalImageId, e);
+      return;
+    }
+    process(originalImageId, originalKey, image, extension);
+  }
+
+  /**
+   * The image file, if any, is deleted when the task is rejected.
+   */
+  private void submit(long originalImageId, Runnable task, Path image) {
+    try {
+      thumbnailExecutor.execute(task);
+    } catch (TaskRejectedException e) {
+      rejectedCounter.increment();
+      if (image != null) {
+        FileUtil.deleteQuietly(image);
+      }
+      fail(newTransactionTemplate, originalImageId, e);
+    }
+  }
+
+  private void makeThumbnail(long originalImageId, String originalKey, Path image,
+      String extension) {
+    SortedMap<Integer, ByteArrayOutputStream> variants = MakeThumbnailUtil.resizeFile(image,
+        extension, variantWidths, imageVariantPool);
+    CompletableFuture.allOf(variants.entrySet().stream()
+        .map(variant -> s3Manager.uploadFileAsync(
+            DinerImageKeyUtil.variantKey(originalKey, variant.getKey()),
+            variant.getValue().toByteArray()))
+        .toArray(CompletableFuture[]::new)).join();
+
+    // The thumbnail width, or the image width if it's narrower.
+    int thumbnailWidth = variants.headMap(MakeThumbnailUtil.FIXED_WIDTH + 1).lastKey();
+    String thumbnailKey = DinerImageKeyUtil.variantKey(originalKey, thumbnailWidth);
+    boolean saved = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+      Optional<DinerImage> original = dinerImageRepository.findById(originalImageId);
+      original.ifPresent(dinerImage -> {
+        dinerImageRepository.save(DinerImage.builder()
+            .s3Key(thumbnailKey)
+            .orders(dinerImage.getOrders())
+            .diner(dinerImage.getDiner())
+            .thumbnail(true)
+            .build());
+        dinerImage.setThumbnailStatus(ThumbnailStatus.DONE);
+        dinerImage.setVariantWidths(new ArrayList<>(variants.keySet()));
+      });
+      return original.isPresent();
+    }));
+
+    if (saved) {
+      doneCounter.increment();
+    } else {
+      // The original was removed meanwhile.
+      variants.keySet().forEach(width ->
+          s3Manager.removeFile(DinerImageKeyUtil.variantKey(originalKey, width)));
+    }
+  }
+
+  private void fail(TransactionTemplate template, long originalImageId, Exception e) {
+    log.error("Thumbnail of image {} failed: {}", originalImageId, e.getMessage());
+    failedCounter.increment();
+    template.executeWithoutResult(status -> dinerImageRepository.findById(originalImageId)
+        .ifPresent(dinerImage -> dinerImage.setThumbnailStatus(ThumbnailStatus.FAILED)));
+  }
+
+  private boolean sleep(Duration duration) {
+    try {
+      Thread.sleep(duration);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.marceldev.ourcompanylunch.service;
 
+import com.marceldev.ourcompanylunch.component.MemberCache;
 import com.marceldev.ourcompanylunch.dto.member.SignUpDto;
 import com.marceldev.ourcompanylunch.dto.member.UpdateMemberRequest;
 import com.marceldev.ourcompanylunch.entity.Member;
@@ -22,6 +23,8 @@ public class MemberService {
 
   private final MemberRepository memberRepository;
 
+  private final MemberCache memberCache;
+
   /**
    * Update member information
    */
@@ -29,6 +32,7 @@ public class MemberService {
   public void updateMember(long id, UpdateMemberRequest dto) {
     Member member = getMemberOf(id);
     member.setName(dto.getName());
+    memberCache.invalidatePrincipal(member.getEmail());
   }
 
   /**
@@ -54,10 +58,9 @@ public class MemberService {
    * Get member from db id and see if email from authentication is correct.
    */
   private Member getMemberOf(long id) {
-    String email = (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
-    return memberRepository.findByIdAndEmail(id, email)
+    String email = getEmail();
+    return memberRepository.findById(id)
+        .filter((m) -> m.getEmail().equals(email))
         .orElseThrow(MemberUnauthorizedException::new);
   }
 
@@ -2,101 +2,169 @@ package com.marceldev.ourcompanylunch.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marceldev.ourcompanylunch.component.DinerSubscriberIndex;
+import com.marceldev.ourcompanylunch.component.KafkaCircuitBreaker;
 import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV1;
-import com.marceldev.ourcompanylunch.entity.Company;
-import com.marceldev.ourcompanylunch.entity.Diner;
-import com.marceldev.ourcompanylunch.entity.DinerSubscription;
-import com.marceldev.ourcompanylunch.entity.Member;
-import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import com.marceldev.ourcompanylunch.event.CommentCreatedEvent;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
 import com.marceldev.ourcompanylunch.repository.diner.DinerRepository;
-import com.marceldev.ourcompanylunch.repository.diner.DinerSubscriptionRepository;
 import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
-import java.util.Set;
-import lombok.RequiredArgsConstructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MessageProducerService {
 
   private final static String COMMENT_WRITE_TOPIC_NAME = "comment.write.v1";
 
+  private final static String COMMENT_WRITE_V2_TOPIC_NAME = "comment.write.v2";
+
   private final KafkaTemplate<String, String> kafkaTemplate;
 
-  private final MemberRepository memberRepository;
+  private final KafkaTemplate<String, MessageCommentWriteV2> commentWriteV2KafkaTemplate;
 
   private final DinerRepository dinerRepository;
 
-  private final DinerSubscriptionRepository dinerSubscriptionRepository;
+  private final DinerSubscriberIndex dinerSubscriberIndex;
+
+  private final MemberRepository memberRepository;
 
   private final ObjectMapper objectMapper;
 
   /**
-   * Produce messages to kafka for the diner subscriptions.
+   * Also send v1 messages, one per receiver, while v1 consumers are migrated.
    */
-  public void produceForDinerSubscribers(long dinerId, String messageContent) {
-    Member sender = getMember();
-    Diner diner = getDiner(dinerId);
+  private final boolean v1Enabled;
+
+  private final int maxReceiversPerMessage;
+
+  public MessageProducerService(KafkaTemplate<String, String> kafkaTemplate,
+      KafkaTemplate<String, MessageCommentWriteV2> commentWriteV2KafkaTemplate,
+      DinerRepository dinerRepository, DinerSubscriberIndex dinerSubscriberIndex,
+      MemberRepository memberRepository, ObjectMapper objectMapper,
+      @Value("${kafka.comment-write.v1-enabled:true}") boolean v1Enabled,
+      @Value("${kafka.comment-write.max-receivers-per-message:1000}") int maxReceiversPerMessage) {
+    this.kafkaTemplate = kafkaTemplate;
+    this.commentWriteV2KafkaTemplate = commentWriteV2KafkaTemplate;
+    this.dinerRepository = dinerRepository;
+    this.dinerSubscriberIndex = dinerSubscriberIndex;
+    this.memberRepository = memberRepository;
+    this.objectMapper = objectMapper;
+    this.v1Enabled = v1Enabled;
+    this.maxReceiversPerMessage = maxReceiversPerMessage;
+  }
 
-    Set<DinerSubscription> subscriptions = dinerSubscriptionRepository.findDinerSubscriptionByDinerId(
-        dinerId);
+  /**
+   * Produce messages to kafka for the diner subscribers. Called by OutboxRelay after the comment
+   * is committed, so the member already had access to the diner. Completes when every message is
+   * acknowledged.
+   * <p>
+   * Receivers are read from DinerSubscriberIndex, and no entity is loaded. Sending stops at the
+   * first message the broker fails at once, as each of the rest would block for max.block.ms too.
+   */
+  public CompletableFuture<Void> produceForDinerSubscribers(CommentCreatedEvent event) {
+    String dinerName = dinerRepository.findNameById(event.dinerId())
+        .orElseThrow(() -> new DinerNotFoundException(event.dinerId()));
 
     // No need to send message to self.
-    subscriptions.removeIf(s -> s.getMember().getId().equals(sender.getId()));
-
-    subscriptions.stream()
-        .map(s -> MessageCommentWriteV1.builder()
-            .senderId(sender.getId())
-            .receiverId(s.getMember().getId())
-            .dinerId(diner.getId())
-            .senderName(sender.getName())
-            .receiverName(s.getMember().getName())
-            .dinerName(diner.getName())
-            .content(messageContent)
-            .build())
-        .map(this::convertMessageToString)
-        .forEach(m -> kafkaTemplate.send(COMMENT_WRITE_TOPIC_NAME, m));
-  }
+    long[] receiverIds = Arrays.stream(dinerSubscriberIndex.getSubscriberIds(event.dinerId()))
+        .filter(id -> id != event.senderId())
+        .toArray();
+    if (receiverIds.length == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
 
-  private String convertMessageToString(MessageCommentWriteV1 dto) {
-    try {
-      return objectMapper.writeValueAsString(dto);
-    } catch (JsonProcessingException e) {
-      log.error(e.getMessage());
-      throw new RuntimeException();
+    List<Supplier<CompletableFuture<?>>> messages = new ArrayList<>(
+        produceV2(event, dinerName, receiverIds));
+    if (v1Enabled) {
+      messages.addAll(produceV1(event, dinerName, receiverIds));
     }
+    return sendAll(messages);
   }
 
-  private String getEmail() {
-    return (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
+  private CompletableFuture<Void> sendAll(List<Supplier<CompletableFuture<?>>> messages) {
+    List<CompletableFuture<?>> sends = new ArrayList<>();
+    for (Supplier<CompletableFuture<?>> message : messages) {
+      CompletableFuture<?> send;
+      try {
+        send = message.get();
+      } catch (RuntimeException e) {
+        send = CompletableFuture.failedFuture(e);
+      }
+      sends.add(send);
+      if (send.isCompletedExceptionally()
+          && KafkaCircuitBreaker.isBrokerFailure(send.exceptionNow())) {
+        break;
+      }
+    }
+    return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
   }
 
-  private Diner getDiner(long dinerId) {
-    Company company = getCompany();
-    return dinerRepository.findById(dinerId)
-        .filter((diner) -> diner.getCompany().equals(company))
-        .orElseThrow(() -> new DinerNotFoundException(dinerId));
+  /**
+   * Keyed by diner id, so the messages of a diner stay in order in one partition. The value is
+   * encoded by the serializer of commentWriteV2ProducerFactory. receiverIds are sorted.
+   */
+  private List<Supplier<CompletableFuture<?>>> produceV2(CommentCreatedEvent event,
+      String dinerName, long[] receiverIds) {
+    String key = String.valueOf(event.dinerId());
+    int chunkCount = (receiverIds.length + maxReceiversPerMessage - 1) / maxReceiversPerMessage;
+    List<Supplier<CompletableFuture<?>>> messages = new ArrayList<>();
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      int from = chunk * maxReceiversPerMessage;
+      int to = Math.min(from + maxReceiversPerMessage, receiverIds.length);
+      MessageCommentWriteV2 message = MessageCommentWriteV2.builder()
+          .commentId(event.commentId())
+          .senderId(event.senderId())
+          .dinerId(event.dinerId())
+          .senderName(event.senderName())
+          .dinerName(dinerName)
+          .content(event.content())
+          .receiverIds(Arrays.copyOfRange(receiverIds, from, to))
+          .chunkIndex(chunk)
+          .chunkCount(chunkCount)
+          .build();
+      messages.add(() -> commentWriteV2KafkaTemplate.send(COMMENT_WRITE_V2_TOPIC_NAME, key,
+          message));
+    }
+    return messages;
   }
 
-  private Member getMember() {
-    String email = getEmail();
-    return memberRepository.findByEmail(email)
-        .orElseThrow(MemberNotFoundException::new);
+  /**
+   * v1 has the receiver name, so only v1 reads the members.
+   */
+  private List<Supplier<CompletableFuture<?>>> produceV1(CommentCreatedEvent event,
+      String dinerName, long[] receiverIds) {
+    List<Long> ids = Arrays.stream(receiverIds).boxed().toList();
+    return memberRepository.findNamesByIdIn(ids).stream()
+        .map(receiver -> MessageCommentWriteV1.builder()
+            .senderId(event.senderId())
+            .receiverId(receiver.id())
+            .dinerId(event.dinerId())
+            .senderName(event.senderName())
+            .receiverName(receiver.name())
+            .dinerName(dinerName)
+            .content(event.content())
+            .build())
+        .<Supplier<CompletableFuture<?>>>map(m -> () -> kafkaTemplate.send(
+            COMMENT_WRITE_TOPIC_NAME, convertMessageToString(m)))
+        .toList();
   }
 
-  private Company getCompany() {
-    Member member = getMember();
-    if (member.getCompany() == null) {
-      throw new CompanyNotFoundException();
+  private String convertMessageToString(Object dto) {
+    try {
+      return objectMapper.writeValueAsString(dto);
+    } catch (JsonProcessingException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException();
     }
-    return member.getCompany();
   }
 }
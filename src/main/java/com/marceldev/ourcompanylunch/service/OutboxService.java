@@ -0,0 +1,53 @@
+package com.marceldev.ourcompanylunch.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marceldev.ourcompanylunch.entity.Outbox;
+import com.marceldev.ourcompanylunch.event.CommentCreatedEvent;
+import com.marceldev.ourcompanylunch.repository.outbox.OutboxRepository;
+import com.marceldev.ourcompanylunch.type.OutboxType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+  private final OutboxRepository outboxRepository;
+
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Must join the transaction of the comment, so the event commits or rolls back with it.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void appendCommentCreated(CommentCreatedEvent event) {
+    outboxRepository.save(Outbox.builder()
+        .type(OutboxType.COMMENT_CREATED)
+        .aggregateId(event.dinerId())
+        .payload(write(event))
+        .build());
+  }
+
+  public CommentCreatedEvent readCommentCreated(Outbox outbox) {
+    try {
+      return objectMapper.readValue(outbox.getPayload(), CommentCreatedEvent.class);
+    } catch (JsonProcessingException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+
+  private String write(Object event) {
+    try {
+      return objectMapper.writeValueAsString(event);
+    } catch (JsonProcessingException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+}
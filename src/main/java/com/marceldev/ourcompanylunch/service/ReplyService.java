@@ -1,5 +1,6 @@
 package com.marceldev.ourcompanylunch.service;
 
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.reply.CreateReplyRequest;
 import com.marceldev.ourcompanylunch.dto.reply.CreateReplyResponse;
 import com.marceldev.ourcompanylunch.dto.reply.GetReplyListRequest;
@@ -11,18 +12,17 @@ import com.marceldev.ourcompanylunch.entity.Member;
 import com.marceldev.ourcompanylunch.entity.Reply;
 import com.marceldev.ourcompanylunch.exception.comment.CommentNotFoundException;
 import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
-import com.marceldev.ourcompanylunch.exception.member.MemberNotFoundException;
 import com.marceldev.ourcompanylunch.exception.member.MemberUnauthorizedException;
 import com.marceldev.ourcompanylunch.exception.reply.ReplyNotFoundException;
 import com.marceldev.ourcompanylunch.repository.comment.CommentRepository;
 import com.marceldev.ourcompanylunch.repository.company.CompanyRepository;
 import com.marceldev.ourcompanylunch.repository.member.MemberRepository;
 import com.marceldev.ourcompanylunch.repository.reply.ReplyRepository;
+import com.marceldev.ourcompanylunch.security.MemberPrincipalProvider;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,11 +39,14 @@ public class ReplyService {
 
   private final CompanyRepository companyRepository;
 
+  private final MemberPrincipalProvider memberPrincipalProvider;
+
   @Transactional
   public CreateReplyResponse createReply(long commentId, CreateReplyRequest dto) {
     checkDinerByCommentId(commentId);
 
-    Member member = getMember();
+    // Reference of the member. Doesn't query DB.
+    Member member = memberRepository.getReferenceById(memberPrincipalProvider.getMemberId());
 
     Comment comment = commentRepository.findById(commentId)
         .orElseThrow(CommentNotFoundException::new);
@@ -59,27 +62,22 @@ public class ReplyService {
   }
 
   public Page<ReplyOutputDto> getReplyList(long commentId, GetReplyListRequest dto) {
-    checkDinerByCommentId(commentId);
+    checkReadableComment(commentId);
 
     Pageable pageable = PageRequest.of(
         dto.getPage(),
         dto.getSize()
     );
 
-    Comment comment = commentRepository.findById(commentId)
-        .orElseThrow(CommentNotFoundException::new);
+    return replyRepository.findByCommentIdOrderByCreatedAtDesc(commentId, pageable)
+        .map(ReplyOutputDto::of);
+  }
 
-    switch (comment.getShareStatus()) {
-      case COMPANY:
-        break;
-      case ME:
-        if (!comment.getMember().equals(getMember())) {
-          throw new MemberUnauthorizedException();
-        }
-        break;
-    }
+  public CursorSliceResponse<ReplyOutputDto> getReplyListByCursor(long commentId,
+      GetReplyListRequest dto) {
+    checkReadableComment(commentId);
 
-    return replyRepository.findByCommentIdOrderByCreatedAtDesc(commentId, pageable)
+    return replyRepository.getSlice(commentId, dto)
         .map(ReplyOutputDto::of);
   }
 
@@ -87,10 +85,10 @@ public class ReplyService {
   public void updateReply(long replyId, UpdateReplyRequest dto) {
     checkDinerByReplyId(replyId);
 
-    Member member = getMember();
+    long memberId = memberPrincipalProvider.getMemberId();
 
     Reply reply = replyRepository.findById(replyId)
-        .filter((r) -> r.getMember().getId().equals(member.getId()))
+        .filter((r) -> r.getMember().getId().equals(memberId))
         .orElseThrow(ReplyNotFoundException::new);
 
     reply.setContent(dto.getContent());
@@ -100,33 +98,45 @@ public class ReplyService {
   public void deleteReply(long replyId) {
     checkDinerByReplyId(replyId);
 
-    Member member = getMember();
+    long memberId = memberPrincipalProvider.getMemberId();
 
     Reply reply = replyRepository.findById(replyId)
-        .filter((r) -> r.getMember().getId().equals(member.getId()))
+        .filter((r) -> r.getMember().getId().equals(memberId))
         .orElseThrow(ReplyNotFoundException::new);
 
     replyRepository.delete(reply);
   }
 
-  private Member getMember() {
-    String email = (String) SecurityContextHolder.getContext()
-        .getAuthentication()
-        .getPrincipal();
-    return memberRepository.findByEmail(email)
-        .orElseThrow(MemberNotFoundException::new);
+  /**
+   * Check if the member can read the comment and its replies.
+   */
+  private void checkReadableComment(long commentId) {
+    checkDinerByCommentId(commentId);
+
+    Comment comment = commentRepository.findById(commentId)
+        .orElseThrow(CommentNotFoundException::new);
+
+    switch (comment.getShareStatus()) {
+      case COMPANY:
+        break;
+      case ME:
+        if (!comment.getMember().getId().equals(memberPrincipalProvider.getMemberId())) {
+          throw new MemberUnauthorizedException();
+        }
+        break;
+    }
   }
 
   /**
    * Check if the member can access the diner.
    */
   private void checkDinerByCommentId(long id) {
-    Member member = getMember();
+    long companyId = memberPrincipalProvider.getCompanyId();
 
     Company company = companyRepository.findCompanyByCommentId(id)
         .orElseThrow(CompanyNotFoundException::new);
 
-    if (!member.getCompany().getId().equals(company.getId())) {
+    if (!company.getId().equals(companyId)) {
       throw new MemberUnauthorizedException();
     }
   }
@@ -135,12 +145,12 @@ public class ReplyService {
    * Check if the member can access the diner.
    */
   private void checkDinerByReplyId(long id) {
-    Member member = getMember();
+    long companyId = memberPrincipalProvider.getCompanyId();
 
     Company company = companyRepository.findCompanyByReplyId(id)
         .orElseThrow(CompanyNotFoundException::new);
 
-    if (!member.getCompany().getId().equals(company.getId())) {
+    if (!company.getId().equals(companyId)) {
       throw new MemberUnauthorizedException();
     }
   }
@@ -0,0 +1,33 @@
+package com.marceldev.ourcompanylunch.service;
+
+import com.marceldev.ourcompanylunch.entity.StorageDeletion;
+import com.marceldev.ourcompanylunch.repository.storage.StorageDeletionRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class StorageDeletionService {
+
+  private final StorageDeletionRepository storageDeletionRepository;
+
+  /**
+   * Must join the transaction removing the rows of the keys, so the objects are deleted only if it
+   * commits, and surely once it does.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void enqueue(Collection<String> keys) {
+    LocalDateTime now = LocalDateTime.now();
+    storageDeletionRepository.saveAll(keys.stream()
+        .distinct()
+        .map(key -> StorageDeletion.builder()
+            .s3Key(key)
+            .nextAttemptAt(now)
+            .build())
+        .toList());
+  }
+}
@@ -4,7 +4,8 @@ import lombok.Getter;
 
 @Getter
 public enum CommentSort {
-  CREATED_AT("createdAt");
+  CREATED_AT("createdAt"),
+  RELEVANCE("relevance");
 
   private final String field;
 
@@ -6,7 +6,8 @@ import lombok.Getter;
 public enum DinerSort {
   DINER_NAME("name"),
   COMMENTS_COUNT("commentsCount"),
-  DISTANCE("distance");
+  DISTANCE("distance"),
+  RELEVANCE("relevance");
 
   private final String field;
 
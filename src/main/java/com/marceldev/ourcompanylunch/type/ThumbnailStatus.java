@@ -0,0 +1,5 @@
+package com.marceldev.ourcompanylunch.type;
+
+public enum ThumbnailStatus {
+  PENDING, DONE, FAILED
+}
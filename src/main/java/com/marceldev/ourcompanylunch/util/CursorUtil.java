@@ -0,0 +1,74 @@
+package com.marceldev.ourcompanylunch.util;
+
+import com.marceldev.ourcompanylunch.dto.common.Cursor;
+import com.marceldev.ourcompanylunch.exception.common.InvalidCursorException;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpression;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class CursorUtil {
+
+  private static final String DELIMITER = ":";
+
+  private static final String FORWARD = "N";
+
+  private static final String BACKWARD = "P";
+
+  /**
+   * Encode the sort key and id of a row as an opaque cursor.
+   */
+  public static String encode(Object value, long id, boolean backward) {
+    String raw = (backward ? BACKWARD : FORWARD) + DELIMITER + id + DELIMITER + value;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decode a cursor. Blank cursor means the first slice, and returns null.
+   */
+  public static Cursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      // The value is the last part, because it can contain the delimiter. (e.g. diner name)
+      String[] parts = raw.split(DELIMITER, 3);
+      if (parts.length != 3 || !(parts[0].equals(FORWARD) || parts[0].equals(BACKWARD))) {
+        throw new InvalidCursorException();
+      }
+      return new Cursor(parts[0].equals(BACKWARD), Long.parseLong(parts[1]), parts[2]);
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException is also IllegalArgumentException
+      throw new InvalidCursorException();
+    }
+  }
+
+  /**
+   * Condition for rows after the cursor, ordered by (key, id) in the same direction. Pass the
+   * read direction, so it's rows before the cursor for a backward cursor.
+   */
+  public static <T extends Comparable<?>> BooleanExpression after(ComparableExpression<T> key,
+      T value, NumberPath<Long> id, long cursorId, boolean asc) {
+    BooleanExpression keyAfter = asc ? key.gt(value) : key.lt(value);
+    return keyAfter.or(key.eq(value).and(idAfter(id, cursorId, asc)));
+  }
+
+  /**
+   * Condition for rows after the cursor, ordered by (key, id) in the same direction. Pass the
+   * read direction, so it's rows before the cursor for a backward cursor.
+   */
+  public static <T extends Number & Comparable<?>> BooleanExpression after(
+      NumberExpression<T> key, T value, NumberPath<Long> id, long cursorId, boolean asc) {
+    BooleanExpression keyAfter = asc ? key.gt(value) : key.lt(value);
+    return keyAfter.or(key.eq(value).and(idAfter(id, cursorId, asc)));
+  }
+
+  private static BooleanExpression idAfter(NumberPath<Long> id, long cursorId, boolean asc) {
+    return asc ? id.gt(cursorId) : id.lt(cursorId);
+  }
+}
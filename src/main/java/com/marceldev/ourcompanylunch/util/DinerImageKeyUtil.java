@@ -0,0 +1,67 @@
+package com.marceldev.ourcompanylunch.util;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class DinerImageKeyUtil {
+
+  private static final String IMAGES = "/images/";
+
+  /**
+   * diner/{dinerId}/images/{uuid}.{extension}
+   */
+  public static String genImageKey(long dinerId, String extension) {
+    return "diner/" + dinerId + IMAGES + UUID.randomUUID() + "." + extension;
+  }
+
+  /**
+   * diner/{dinerId}/images/{name}. The name must be a single path segment.
+   */
+  public static Optional<String> imageKey(long dinerId, String name) {
+    if (name.isBlank() || name.contains("/")) {
+      return Optional.empty();
+    }
+    return Optional.of("diner/" + dinerId + IMAGES + name);
+  }
+
+  /**
+   * The last path segment of the key.
+   */
+  public static String getName(String key) {
+    return key.substring(key.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * diner/{dinerId}/ of the key. Keys sorted in binary order have the keys of a diner together.
+   * The whole key if it has no diner segment.
+   */
+  public static String getDinerPrefix(String key) {
+    int index = key.indexOf('/', key.indexOf('/') + 1);
+    return index == -1 ? key : key.substring(0, index + 1);
+  }
+
+  /**
+   * The image and its variants. The key of a thumbnail is also one of the variants.
+   */
+  public static Stream<String> storageKeys(String imageKey, List<Integer> variantWidths) {
+    return Stream.concat(Stream.of(imageKey), Optional.ofNullable(variantWidths)
+        .orElse(List.of())
+        .stream()
+        .map(width -> variantKey(imageKey, width)));
+  }
+
+  /**
+   * diner/{dinerId}/variants/{width}/{name} of the original at diner/{dinerId}/images/{name}. The
+   * same for every attempt, so a retried upload overwrites the former one.
+   */
+  public static String variantKey(String imageKey, int width) {
+    int index = imageKey.lastIndexOf(IMAGES);
+    if (index == -1) {
+      throw new IllegalArgumentException("Not a diner image key: " + imageKey);
+    }
+    return imageKey.substring(0, index) + "/variants/" + width + "/"
+        + imageKey.substring(index + IMAGES.length());
+  }
+}
@@ -1,5 +1,8 @@
 package com.marceldev.ourcompanylunch.util;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.multipart.MultipartFile;
@@ -14,7 +17,10 @@ public class FileUtil {
       log.debug("No filename {}", file.toString());
       return Optional.empty();
     }
+    return getExtension(original);
+  }
 
+  public static Optional<String> getExtension(String original) {
     // Prepare a whole path including directory.
     int lastSlashIndex = original.lastIndexOf("/");
     if (lastSlashIndex != -1) {
@@ -27,4 +33,27 @@ public class FileUtil {
     }
     return Optional.of(original.substring(lastDotIndex + 1));
   }
+
+  /**
+   * Write the upload to a temp file in the directory. The caller deletes the file.
+   */
+  public static Path spool(MultipartFile file, Path directory, String extension)
+      throws IOException {
+    Path spooled = Files.createTempFile(directory, "upload-", "." + extension);
+    try {
+      file.transferTo(spooled);
+      return spooled;
+    } catch (IOException | RuntimeException e) {
+      deleteQuietly(spooled);
+      throw e;
+    }
+  }
+
+  public static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Fail to delete {}: {}", file, e.getMessage());
+    }
+  }
 }
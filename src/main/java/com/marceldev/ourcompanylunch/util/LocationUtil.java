@@ -3,6 +3,7 @@ package com.marceldev.ourcompanylunch.util;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.geom.PrecisionModel;
 
 public class LocationUtil {
@@ -12,7 +13,39 @@ public class LocationUtil {
   private static final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(),
       4326);
 
+  // Same radius as the default of ST_Distance_Sphere
+  private static final double EARTH_RADIUS_IN_METER = 6370986;
+
   public static Point createPoint(double latitude, double longitude) {
     return geometryFactory.createPoint(new Coordinate(latitude, longitude));
   }
+
+  /**
+   * Bounding box containing every point within radiusInMeter from the center. Used to prefilter
+   * with a spatial index before computing exact distances. Doesn't wrap around the 180th
+   * meridian.
+   */
+  public static Polygon createBoundingBox(double latitude, double longitude,
+      double radiusInMeter) {
+    double deltaLatitude = Math.toDegrees(radiusInMeter / EARTH_RADIUS_IN_METER);
+
+    // Longitude degrees get shorter away from the equator. Use the edge farthest from it.
+    double farthestLatitude = Math.min(90, Math.abs(latitude) + deltaLatitude);
+    double cos = Math.cos(Math.toRadians(farthestLatitude));
+    double deltaLongitude = cos > 0
+        ? Math.min(180, Math.toDegrees(radiusInMeter / (EARTH_RADIUS_IN_METER * cos)))
+        : 180;
+
+    double minLatitude = latitude - deltaLatitude;
+    double maxLatitude = latitude + deltaLatitude;
+    double minLongitude = longitude - deltaLongitude;
+    double maxLongitude = longitude + deltaLongitude;
+    return geometryFactory.createPolygon(new Coordinate[]{
+        new Coordinate(minLatitude, minLongitude),
+        new Coordinate(maxLatitude, minLongitude),
+        new Coordinate(maxLatitude, maxLongitude),
+        new Coordinate(minLatitude, maxLongitude),
+        new Coordinate(minLatitude, minLongitude)
+    });
+  }
 }
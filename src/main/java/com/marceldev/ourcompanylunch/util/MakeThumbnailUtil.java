@@ -1,49 +1,146 @@
 package com.marceldev.ourcompanylunch.util;
 
 import com.marceldev.ourcompanylunch.exception.diner.ImageReadFailException;
-import java.awt.Image;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 public class MakeThumbnailUtil {
 
-  private static final int FIXED_WIDTH = 300;
+  public static final int FIXED_WIDTH = 300;
 
-  public static ByteArrayOutputStream resizeFile(InputStream inputStream, String extension) {
-    try {
-      BufferedImage image = ImageIO.read(inputStream);
+  private static final Set<String> ALPHA_FORMATS = Set.of("png", "gif");
 
-      if (image == null) {
+  /**
+   * Check only the header, without decoding the image.
+   */
+  public static void checkReadable(Path file) {
+    try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(file.toFile())) {
+      if (imageInputStream == null || !ImageIO.getImageReaders(imageInputStream).hasNext()) {
         throw new ImageReadFailException();
       }
+    } catch (IOException e) {
+      throw new ImageReadFailException();
+    }
+  }
+
+  /**
+   * Decode the file once, subsampled for the largest width, and resize it to each width on the
+   * pool. A width larger than the image is made at the image width, so the result is keyed by the
+   * actual width. Read from the file directly, so the encoded image isn't held on heap.
+   */
+  public static SortedMap<Integer, ByteArrayOutputStream> resizeFile(Path file, String extension,
+      Collection<Integer> widths, ForkJoinPool pool) {
+    int maxWidth = widths.stream().mapToInt(Integer::intValue).max().orElse(FIXED_WIDTH);
+    BufferedImage source = read(file.toFile(), maxWidth);
 
-      // calculate thumbnail size
-      double ratio = (double) image.getHeight() / (double) image.getWidth();
-      int newWidth = Math.min(FIXED_WIDTH, image.getWidth());
-      int newHeight = (int) (newWidth * ratio);
+    Map<Integer, ForkJoinTask<ByteArrayOutputStream>> tasks = new TreeMap<>();
+    for (int width : widths) {
+      tasks.computeIfAbsent(Math.min(width, source.getWidth()), targetWidth -> pool.submit(
+          () -> write(resizeToWidth(source, targetWidth, extension), extension)));
+    }
 
-      // get resized image
-      BufferedImage resizedImage = resizeImage(image, newWidth, newHeight);
+    SortedMap<Integer, ByteArrayOutputStream> variants = new TreeMap<>();
+    tasks.forEach((width, task) -> variants.put(width, task.join()));
+    return variants;
+  }
 
-      // make file
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      ImageIO.write(resizedImage, extension, outputStream);
-      return outputStream;
+  private static BufferedImage read(File file, int maxWidth) {
+    try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(file)) {
+      if (imageInputStream == null) {
+        throw new ImageReadFailException();
+      }
+      return readSubsampled(imageInputStream, maxWidth);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  private static BufferedImage resizeImage(BufferedImage originalImage, int targetWidth,
-      int targetHeight) {
-    Image resultingImage = originalImage.getScaledInstance(targetWidth, targetHeight,
-        Image.SCALE_DEFAULT);
-    BufferedImage outputImage = new BufferedImage(targetWidth, targetHeight,
-        BufferedImage.TYPE_INT_RGB);
-    outputImage.getGraphics().drawImage(resultingImage, 0, 0, null);
-    return outputImage;
+  /**
+   * Decode every n-th pixel of every n-th row, so the decoded image is only a little larger than
+   * the max width. A 4000px wide image is decoded to about 307px wide for a 300px thumbnail, not
+   * to 4000px.
+   */
+  private static BufferedImage readSubsampled(ImageInputStream imageInputStream, int maxWidth)
+      throws IOException {
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+    if (!readers.hasNext()) {
+      throw new ImageReadFailException();
+    }
+
+    ImageReader reader = readers.next();
+    try {
+      reader.setInput(imageInputStream, true, true);
+      int width = reader.getWidth(0);
+
+      ImageReadParam param = reader.getDefaultReadParam();
+      int subsampling = Math.max(1, width / maxWidth);
+      param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+      return reader.read(0, param);
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  private static BufferedImage resizeToWidth(BufferedImage source, int width, String extension) {
+    // calculate thumbnail size from the original size
+    double ratio = (double) source.getHeight() / (double) source.getWidth();
+    int height = Math.max(1, (int) (width * ratio));
+
+    // get resized image
+    return resizeImage(source, width, height, extension);
+  }
+
+  private static ByteArrayOutputStream write(BufferedImage image, String extension)
+      throws IOException {
+    // make file
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ImageIO.write(image, extension, outputStream);
+    return outputStream;
+  }
+
+  /**
+   * Halve the image with bilinear interpolation while it's more than twice the target, then draw
+   * it at the target size. A single step from a large image would skip most source pixels. Alpha
+   * is kept if the format can store it.
+   */
+  static BufferedImage resizeImage(BufferedImage originalImage, int targetWidth, int targetHeight,
+      String extension) {
+    boolean keepAlpha = originalImage.getColorModel().hasAlpha()
+        && ALPHA_FORMATS.contains(extension.toLowerCase());
+    int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+    BufferedImage current = originalImage;
+    int width = originalImage.getWidth();
+    int height = originalImage.getHeight();
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+
+      BufferedImage next = new BufferedImage(width, height, type);
+      Graphics2D graphics = next.createGraphics();
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+          RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(current, 0, 0, width, height, null);
+      graphics.dispose();
+      current = next;
+    } while (width != targetWidth || height != targetHeight);
+    return current;
   }
 }
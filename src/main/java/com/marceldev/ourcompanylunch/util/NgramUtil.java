@@ -0,0 +1,44 @@
+package com.marceldev.ourcompanylunch.util;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits text into bigrams for the keyword indexes. Text is lowercased and split into words by
+ * whitespace. Bigrams don't cross words, and a word shorter than two characters has no bigram.
+ * Characters are code points, so a surrogate pair such as an emoji isn't split.
+ * <p>
+ * Every bigram of a keyword is also a bigram of a text containing the keyword, so the bigrams
+ * find the candidates. The candidates still have to be checked with contains.
+ */
+public class NgramUtil {
+
+  private static final int N = 2;
+
+  /**
+   * Bigrams of the text and how many times each appears.
+   */
+  public static Map<String, Integer> countGrams(String text) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    if (text == null) {
+      return counts;
+    }
+    for (String word : text.toLowerCase(Locale.ROOT).split("\\s+")) {
+      int[] codePoints = word.codePoints().toArray();
+      for (int i = 0; i + N <= codePoints.length; i++) {
+        counts.merge(new String(codePoints, i, N), 1, Integer::sum);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Bigrams of the keyword. Empty if the keyword has no word of two characters or more, in which
+   * case the index can't be used.
+   */
+  public static Set<String> grams(String keyword) {
+    return countGrams(keyword).keySet();
+  }
+}
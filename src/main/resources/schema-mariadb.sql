@@ -0,0 +1,41 @@
+-- Runs after Hibernate updated the schema, on every start.
+-- (spring.jpa.defer-datasource-initialization)
+-- Each ALTER is prepared only while the column still differs, else DO 0 runs, so a start after the
+-- first doesn't rebuild the tables.
+
+-- SPATIAL INDEX requires a NOT NULL geometry column.
+SET @alter_location = IF((SELECT COUNT(*) FROM information_schema.COLUMNS c
+    WHERE c.TABLE_SCHEMA = DATABASE() AND c.TABLE_NAME = 'diner' AND c.COLUMN_NAME = 'location'
+      AND (c.IS_NULLABLE = 'YES' OR NOT EXISTS (SELECT 1 FROM information_schema.GEOMETRY_COLUMNS g
+        WHERE g.G_TABLE_SCHEMA = c.TABLE_SCHEMA AND g.G_TABLE_NAME = c.TABLE_NAME
+          AND g.G_GEOMETRY_COLUMN = c.COLUMN_NAME AND g.SRID = 4326))) > 0,
+    'ALTER TABLE diner MODIFY location POINT NOT NULL REF_SYSTEM_ID = 4326', 'DO 0');
+PREPARE alter_location FROM @alter_location;
+EXECUTE alter_location;
+DEALLOCATE PREPARE alter_location;
+
+SET @alter_location = IF((SELECT COUNT(*) FROM information_schema.COLUMNS c
+    WHERE c.TABLE_SCHEMA = DATABASE() AND c.TABLE_NAME = 'company' AND c.COLUMN_NAME = 'location'
+      AND (c.IS_NULLABLE = 'YES' OR NOT EXISTS (SELECT 1 FROM information_schema.GEOMETRY_COLUMNS g
+        WHERE g.G_TABLE_SCHEMA = c.TABLE_SCHEMA AND g.G_TABLE_NAME = c.TABLE_NAME
+          AND g.G_GEOMETRY_COLUMN = c.COLUMN_NAME AND g.SRID = 4326))) > 0,
+    'ALTER TABLE company MODIFY location POINT NOT NULL REF_SYSTEM_ID = 4326', 'DO 0');
+PREPARE alter_location FROM @alter_location;
+EXECUTE alter_location;
+DEALLOCATE PREPARE alter_location;
+
+CREATE SPATIAL INDEX IF NOT EXISTS idx_diner_location ON diner (location);
+CREATE SPATIAL INDEX IF NOT EXISTS idx_company_location ON company (location);
+
+-- Distinct bigrams must be distinct keys, which the default case and accent insensitive collation
+-- doesn't keep.
+SET @alter_token = IF((SELECT COUNT(*) FROM information_schema.COLUMNS c
+    WHERE c.TABLE_SCHEMA = DATABASE() AND c.TABLE_NAME = 'comment_search_token'
+      AND c.COLUMN_NAME = 'token'
+      AND (c.COLLATION_NAME <> 'utf8mb4_bin' OR c.IS_NULLABLE = 'YES'
+        OR c.CHARACTER_MAXIMUM_LENGTH <> 8)) > 0,
+    'ALTER TABLE comment_search_token MODIFY token VARCHAR(8) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL',
+    'DO 0');
+PREPARE alter_token FROM @alter_token;
+EXECUTE alter_token;
+DEALLOCATE PREPARE alter_token;
@@ -1,11 +1,34 @@
 package com.marceldev.ourcompanylunch.basic;
 
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 
 public class H2Functions {
 
+  // Same radius as the default of ST_Distance_Sphere
+  private static final double EARTH_RADIUS_IN_METER = 6370986;
+
+  /**
+   * Haversine distance in meter. X is latitude and Y is longitude, as LocationUtil creates.
+   */
   public static Double stDistanceSphere(Point location1, Point location2) {
-    // Dummy implementation just for testing in H2
-    return 0.0;
+    if (location1 == null || location2 == null) {
+      return null;
+    }
+    double lat1 = Math.toRadians(location1.getX());
+    double lat2 = Math.toRadians(location2.getX());
+    double deltaLat = lat2 - lat1;
+    double deltaLng = Math.toRadians(location2.getY() - location1.getY());
+
+    double a = Math.pow(Math.sin(deltaLat / 2), 2)
+        + Math.cos(lat1) * Math.cos(lat2) * Math.pow(Math.sin(deltaLng / 2), 2);
+    return 2 * EARTH_RADIUS_IN_METER * Math.asin(Math.sqrt(a));
+  }
+
+  public static Boolean mbrContains(Geometry geometry1, Geometry geometry2) {
+    if (geometry1 == null || geometry2 == null) {
+      return null;
+    }
+    return geometry1.getEnvelopeInternal().contains(geometry2.getEnvelopeInternal());
   }
 }
@@ -1,6 +1,11 @@
 package com.marceldev.ourcompanylunch.basic;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
 import com.marceldev.ourcompanylunch.component.EmailSender;
+import com.marceldev.ourcompanylunch.component.MemberCache;
 import com.marceldev.ourcompanylunch.component.S3Manager;
 import com.marceldev.ourcompanylunch.repository.comment.CommentRepository;
 import com.marceldev.ourcompanylunch.repository.company.CompanyRepository;
@@ -21,6 +26,9 @@ import com.marceldev.ourcompanylunch.service.MemberService;
 import com.marceldev.ourcompanylunch.service.ReplyService;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -96,4 +104,26 @@ public abstract class IntegrationTest {
   @PersistenceContext
   protected EntityManager entityManager;
 
+  @Autowired
+  protected MemberCache memberCache;
+
+  /**
+   * Every test signs in with the same email, and a rolled back member can't be left in the cache.
+   */
+  @BeforeEach
+  void clearMemberCache() {
+    memberCache.invalidateAll();
+  }
+
+  /**
+   * Uploads succeed unless a test stubs otherwise.
+   */
+  @BeforeEach
+  void stubAsyncUploads() {
+    doReturn(CompletableFuture.completedFuture(null))
+        .when(s3Manager).uploadFileAsync(anyString(), any(byte[].class));
+    doReturn(CompletableFuture.completedFuture(null))
+        .when(s3Manager).uploadFileAsync(anyString(), any(Path.class));
+  }
+
 }
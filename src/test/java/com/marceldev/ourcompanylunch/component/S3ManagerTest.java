@@ -0,0 +1,184 @@
+package com.marceldev.ourcompanylunch.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.marceldev.ourcompanylunch.component.S3Manager.StoredFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+class S3ManagerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  /**
+   * In-process stand-in of the bucket. A put is stored when it's sent, and completes only when
+   * the test completes it, so uploads in flight at the same time can be seen.
+   */
+  private final Map<String, byte[]> bucket = new ConcurrentHashMap<>();
+
+  private final List<CompletableFuture<PutObjectResponse>> inFlight =
+      new CopyOnWriteArrayList<>();
+
+  private final S3Client s3Client = mock(S3Client.class);
+
+  private S3Manager s3Manager;
+
+  @BeforeEach
+  void setUp() {
+    S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+    doAnswer(invocation -> {
+      PutObjectRequest request = invocation.getArgument(0);
+      if (request.key().contains("broken")) {
+        return CompletableFuture.failedFuture(S3Exception.builder().message("broken").build());
+      }
+      bucket.put(request.key(), read(invocation.getArgument(1)));
+      CompletableFuture<PutObjectResponse> response = new CompletableFuture<>();
+      inFlight.add(response);
+      return response;
+    }).when(s3AsyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+
+    s3Manager = new S3Manager("our-company-lunch-test", "https://cdn.example.com/",
+        s3Client, s3AsyncClient, mock(S3Presigner.class), meterRegistry);
+  }
+
+  @Test
+  @DisplayName("Upload async - Success(Uploads are sent without waiting for each other)")
+  void upload_async_concurrent() {
+    //given
+    List<String> keys = List.of("diner/1/variants/150/a.jpg", "diner/1/variants/300/a.jpg",
+        "diner/1/variants/720/a.jpg");
+
+    //when
+    List<CompletableFuture<Void>> uploads = keys.stream()
+        .map(key -> s3Manager.uploadFileAsync(key, key.getBytes(StandardCharsets.UTF_8)))
+        .toList();
+
+    //then
+    assertThat(inFlight).hasSize(3);
+    assertThat(uploads).noneMatch(CompletableFuture::isDone);
+
+    inFlight.forEach(response -> response.complete(PutObjectResponse.builder().build()));
+    CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+    assertThat(bucket).containsOnlyKeys(keys);
+    assertThat(meterRegistry.get("s3.requests")
+        .tag("operation", "put_async")
+        .tag("result", "success")
+        .timer().count()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Upload async - Success(File on disk)")
+  void upload_async_file(@TempDir Path tempDir) throws IOException {
+    //given
+    Path file = tempDir.resolve("food.jpg");
+    byte[] content = new byte[100_000];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    Files.write(file, content);
+
+    //when
+    CompletableFuture<Void> upload = s3Manager.uploadFileAsync("diner/1/images/a.jpg", file);
+    inFlight.forEach(response -> response.complete(PutObjectResponse.builder().build()));
+    upload.join();
+
+    //then
+    assertThat(bucket.get("diner/1/images/a.jpg")).isEqualTo(content);
+  }
+
+  @Test
+  @DisplayName("Upload async - Fail(Completed exceptionally and timed as failure)")
+  void upload_async_fail() {
+    //given
+    byte[] content = "image".getBytes(StandardCharsets.UTF_8);
+
+    //when
+    CompletableFuture<Void> upload = s3Manager.uploadFileAsync("diner/1/images/broken.jpg",
+        content);
+
+    //then
+    assertThatThrownBy(upload::join)
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(S3Exception.class);
+    assertThat(meterRegistry.get("s3.requests")
+        .tag("operation", "put_async")
+        .tag("result", "failure")
+        .timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("List files - Success(Next page requested when the stream reaches it)")
+  void list_files_paged() {
+    //given
+    Instant lastModified = Instant.parse("2024-05-01T00:00:00Z");
+    List<ListObjectsV2Request> requests = new CopyOnWriteArrayList<>();
+    doAnswer(invocation -> {
+      ListObjectsV2Request request = invocation.getArgument(0);
+      requests.add(request);
+      boolean first = request.continuationToken() == null;
+      return ListObjectsV2Response.builder()
+          .contents(S3Object.builder()
+              .key(first ? "diner/1/images/a.jpg" : "diner/2/images/b.jpg")
+              .lastModified(lastModified)
+              .build())
+          .isTruncated(first)
+          .nextContinuationToken(first ? "page-2" : null)
+          .build();
+    }).when(s3Client).listObjectsV2(any(ListObjectsV2Request.class));
+
+    //when
+    List<StoredFile> firstFile = s3Manager.listFiles("diner/").limit(1).toList();
+    int requestsForFirstFile = requests.size();
+    List<StoredFile> files = s3Manager.listFiles("diner/").toList();
+
+    //then
+    assertThat(firstFile).extracting(StoredFile::key).containsExactly("diner/1/images/a.jpg");
+    assertThat(requestsForFirstFile).isEqualTo(1);
+    assertThat(files)
+        .containsExactly(new StoredFile("diner/1/images/a.jpg", lastModified),
+            new StoredFile("diner/2/images/b.jpg", lastModified));
+    assertThat(requests).hasSize(3);
+    assertThat(requests.get(2).continuationToken()).isEqualTo("page-2");
+    assertThat(requests).allMatch(request -> request.prefix().equals("diner/"));
+  }
+
+  private static byte[] read(AsyncRequestBody body) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    body.subscribe((ByteBuffer buffer) -> {
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      outputStream.write(bytes, 0, bytes.length);
+    }).join();
+    return outputStream.toByteArray();
+  }
+}
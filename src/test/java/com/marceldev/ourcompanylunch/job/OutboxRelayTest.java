@@ -0,0 +1,445 @@
+package com.marceldev.ourcompanylunch.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marceldev.ourcompanylunch.basic.IntegrationTest;
+import com.marceldev.ourcompanylunch.component.DinerSubscriberIndex;
+import com.marceldev.ourcompanylunch.component.KafkaCircuitBreaker;
+import com.marceldev.ourcompanylunch.component.KafkaCircuitBreaker.State;
+import com.marceldev.ourcompanylunch.component.KafkaHealthIndicator;
+import com.marceldev.ourcompanylunch.dto.comment.CreateCommentRequest;
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
+import com.marceldev.ourcompanylunch.entity.Company;
+import com.marceldev.ourcompanylunch.entity.Diner;
+import com.marceldev.ourcompanylunch.entity.DinerSubscription;
+import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.entity.Outbox;
+import com.marceldev.ourcompanylunch.repository.outbox.OutboxRepository;
+import com.marceldev.ourcompanylunch.serializer.MessageCommentWriteV2Serializer;
+import com.marceldev.ourcompanylunch.service.MessageProducerService;
+import com.marceldev.ourcompanylunch.service.OutboxService;
+import com.marceldev.ourcompanylunch.type.Role;
+import com.marceldev.ourcompanylunch.type.ShareStatus;
+import com.marceldev.ourcompanylunch.util.LocationUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class OutboxRelayTest extends IntegrationTest {
+
+  @Autowired
+  private OutboxRepository outboxRepository;
+
+  @Autowired
+  private OutboxService outboxService;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private DinerSubscriberIndex dinerSubscriberIndex;
+
+  /**
+   * In-memory stand-in of Kafka. Every producer the template creates is kept.
+   */
+  private final List<MockProducer<String, String>> producers = new CopyOnWriteArrayList<>();
+
+  private final List<MockProducer<String, MessageCommentWriteV2>> v2Producers =
+      new CopyOnWriteArrayList<>();
+
+  private final KafkaCircuitBreaker circuitBreaker = new KafkaCircuitBreaker(
+      new SimpleMeterRegistry(), 1, Duration.ofMinutes(1));
+
+  /**
+   * While set, every send fails at once, as it does after max.block.ms when the broker is down.
+   */
+  private volatile boolean brokerDown;
+
+  private final AtomicInteger sendAttempts = new AtomicInteger();
+
+  private OutboxRelay createRelay(boolean v1Enabled, int maxReceiversPerMessage) {
+    return createRelay(v1Enabled, maxReceiversPerMessage, circuitBreaker, transactionTemplate);
+  }
+
+  private OutboxRelay createRelay(boolean v1Enabled, int maxReceiversPerMessage,
+      KafkaCircuitBreaker circuitBreaker, TransactionTemplate transactionTemplate) {
+    KafkaTemplate<String, String> kafkaTemplate = new KafkaTemplate<>(
+        new MockProducerFactory<>(() -> {
+          MockProducer<String, String> producer = createProducer(new StringSerializer());
+          producers.add(producer);
+          return producer;
+        }));
+    KafkaTemplate<String, MessageCommentWriteV2> v2KafkaTemplate = new KafkaTemplate<>(
+        new MockProducerFactory<>(() -> {
+          MockProducer<String, MessageCommentWriteV2> producer = createProducer(
+              new MessageCommentWriteV2Serializer());
+          v2Producers.add(producer);
+          return producer;
+        }));
+    MessageProducerService messageProducerService = new MessageProducerService(kafkaTemplate,
+        v2KafkaTemplate, dinerRepository, dinerSubscriberIndex, memberRepository, objectMapper,
+        v1Enabled, maxReceiversPerMessage);
+    return new OutboxRelay(outboxRepository, outboxService, messageProducerService,
+        transactionTemplate, circuitBreaker, new SimpleMeterRegistry(), 100, 3,
+        Duration.ofSeconds(5), Duration.ofDays(7));
+  }
+
+  private <V> MockProducer<String, V> createProducer(Serializer<V> valueSerializer) {
+    return new MockProducer<>(true, new StringSerializer(), valueSerializer) {
+      @Override
+      public synchronized Future<RecordMetadata> send(ProducerRecord<String, V> record,
+          Callback callback) {
+        sendAttempts.incrementAndGet();
+        if (brokerDown) {
+          TimeoutException e = new TimeoutException("Topic not present in metadata after 2000 ms");
+          callback.onCompletion(null, e);
+          return CompletableFuture.failedFuture(e);
+        }
+        return super.send(record, callback);
+      }
+    };
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Success(Comment event sent to the subscribers, marked delivered)")
+  void relay_comment_created() {
+    // given
+    OutboxRelay outboxRelay = createRelay(true, 100);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    Member subscriber = saveSubscriber(company, diner, "amy@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+
+    // when
+    outboxRelay.relay();
+
+    // then
+    List<ProducerRecord<String, MessageCommentWriteV2>> v2Records = getSentV2Records();
+    assertThat(v2Records).hasSize(1);
+    assertThat(v2Records.get(0).topic()).isEqualTo("comment.write.v2");
+    assertThat(v2Records.get(0).key()).isEqualTo(String.valueOf(diner.getId()));
+    assertThat(v2Records.get(0).value().getReceiverIds()).containsExactly(subscriber.getId());
+    assertThat(v2Records.get(0).value().getContent()).isEqualTo("It's delicious");
+
+    List<ProducerRecord<String, String>> records = getSentRecords();
+    assertThat(records).hasSize(1);
+    assertThat(records.get(0).topic()).isEqualTo("comment.write.v1");
+    assertThat(records.get(0).value())
+        .contains("\"receiverId\":" + subscriber.getId())
+        .contains("It's delicious");
+
+    entityManager.clear();
+    assertThat(outboxRepository.findAll())
+        .extracting(Outbox::getDeliveredAt)
+        .doesNotContainNull();
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Success(Receivers split into chunks, v1 off)")
+  void relay_comment_created_chunked() {
+    // given
+    OutboxRelay outboxRelay = createRelay(false, 2);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    saveSubscriber(company, diner, "amy@example.com");
+    saveSubscriber(company, diner, "bob@example.com");
+    saveSubscriber(company, diner, "tom@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+
+    // when
+    outboxRelay.relay();
+
+    // then
+    assertThat(getSentRecords()).isEmpty();
+    List<MessageCommentWriteV2> messages = getSentV2Records().stream()
+        .map(ProducerRecord::value)
+        .toList();
+    assertThat(messages)
+        .extracting(MessageCommentWriteV2::getChunkIndex, MessageCommentWriteV2::getChunkCount)
+        .containsExactly(tuple(0, 2), tuple(1, 2));
+    assertThat(messages.get(0).getReceiverIds()).hasSize(2);
+    assertThat(messages.get(1).getReceiverIds()).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Success(Nothing sent twice)")
+  void relay_twice() {
+    // given
+    OutboxRelay outboxRelay = createRelay(true, 100);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    saveSubscriber(company, diner, "amy@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+
+    // when
+    outboxRelay.relay();
+    entityManager.clear();
+    outboxRelay.relay();
+
+    // then
+    assertThat(getSentRecords()).hasSize(1);
+    assertThat(getSentV2Records()).hasSize(1);
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Success(Circuit breaker open, events stay in the outbox)")
+  void relay_circuit_breaker_open() {
+    // given
+    OutboxRelay outboxRelay = createRelay(true, 100);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    saveSubscriber(company, diner, "amy@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+    circuitBreaker.recordFailure();
+
+    // when
+    outboxRelay.relay();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(getSentRecords()).isEmpty();
+    assertThat(getSentV2Records()).isEmpty();
+    entityManager.clear();
+    assertThat(outboxRepository.findAll())
+        .extracting(Outbox::getDeliveredAt, Outbox::getAttempts)
+        .containsOnly(tuple(null, 0));
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Success(Broker failure opens the breaker, health DEGRADED)")
+  void relay_broker_failure_opens_breaker() {
+    // given
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    KafkaCircuitBreaker circuitBreaker = new KafkaCircuitBreaker(meterRegistry, 1,
+        Duration.ofMinutes(1));
+    OutboxRelay outboxRelay = createRelay(true, 1, circuitBreaker, transactionTemplate);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    saveSubscriber(company, diner, "amy@example.com");
+    saveSubscriber(company, diner, "bob@example.com");
+    saveSubscriber(company, diner, "tom@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+    brokerDown = true;
+
+    // when
+    outboxRelay.relay();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    // Stopped at the first failed send, not one per chunk and receiver.
+    assertThat(sendAttempts.get()).isEqualTo(1);
+    entityManager.clear();
+    assertThat(outboxRepository.findAll())
+        .extracting(Outbox::getDeliveredAt, Outbox::getAttempts)
+        .containsOnly(tuple(null, 0));
+
+    Health health = new KafkaHealthIndicator(circuitBreaker, meterRegistry).health();
+    assertThat(health.getStatus().getCode()).isEqualTo("DEGRADED");
+    assertThat(health.getDetails()).containsEntry("circuitBreaker", State.OPEN);
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Success(Half open trial closes the breaker when the broker is back)")
+  void relay_half_open_trial_closes_breaker() {
+    // given
+    KafkaCircuitBreaker circuitBreaker = new KafkaCircuitBreaker(new SimpleMeterRegistry(), 1,
+        Duration.ZERO);
+    OutboxRelay outboxRelay = createRelay(true, 100, circuitBreaker, transactionTemplate);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    saveSubscriber(company, diner, "amy@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+    brokerDown = true;
+    outboxRelay.relay();
+    brokerDown = false;
+
+    // when
+    outboxRelay.relay();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(getSentV2Records()).hasSize(1);
+    entityManager.clear();
+    assertThat(outboxRepository.findAll())
+        .extracting(Outbox::getDeliveredAt)
+        .doesNotContainNull();
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Success(Failed half open trial opens the breaker again)")
+  void relay_half_open_trial_reopens_breaker() {
+    // given
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    KafkaCircuitBreaker circuitBreaker = new KafkaCircuitBreaker(meterRegistry, 1,
+        Duration.ZERO);
+    OutboxRelay outboxRelay = createRelay(true, 100, circuitBreaker, transactionTemplate);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    saveSubscriber(company, diner, "amy@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+    brokerDown = true;
+    outboxRelay.relay();
+
+    // when
+    outboxRelay.relay();
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(meterRegistry.get("kafka.circuit.opened").counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Relay outbox - Fail(Database error in the trial, breaker not left half open)")
+  void relay_half_open_trial_database_error() {
+    // given
+    KafkaCircuitBreaker circuitBreaker = new KafkaCircuitBreaker(new SimpleMeterRegistry(), 1,
+        Duration.ZERO);
+    TransactionTemplate failingTransactionTemplate = mock(TransactionTemplate.class);
+    doThrow(new DataAccessResourceFailureException("Connection refused"))
+        .when(failingTransactionTemplate).executeWithoutResult(any());
+    OutboxRelay outboxRelay = createRelay(true, 100, circuitBreaker, failingTransactionTemplate);
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    saveSubscriber(company, diner, "amy@example.com");
+
+    commentService.createComment(diner.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+    circuitBreaker.recordFailure();
+
+    // when
+    assertThatThrownBy(outboxRelay::relay)
+        .isInstanceOf(DataAccessResourceFailureException.class);
+
+    // then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.allowRequest()).isTrue();
+  }
+
+  private List<ProducerRecord<String, String>> getSentRecords() {
+    return producers.stream()
+        .flatMap(producer -> producer.history().stream())
+        .toList();
+  }
+
+  private List<ProducerRecord<String, MessageCommentWriteV2>> getSentV2Records() {
+    return v2Producers.stream()
+        .flatMap(producer -> producer.history().stream())
+        .toList();
+  }
+
+  // --- Save some entity ---
+
+  private Company saveCompany() {
+    Company company = Company.builder()
+        .name("HelloCompany")
+        .address("321, Teheran-ro Gangnam-gu Seoul")
+        .enterKey("company123")
+        .enterKeyEnabled(false)
+        .location(LocationUtil.createPoint(37.123456, 127.123456))
+        .build();
+    return companyRepository.save(company);
+  }
+
+  private Member saveMember() {
+    Member member = Member.builder()
+        .name("Jack")
+        .email("jack@example.com")
+        .company(null)
+        .role(Role.VIEWER)
+        .build();
+    return memberRepository.save(member);
+  }
+
+  private Member saveSubscriber(Company company, Diner diner, String email) {
+    Member member = memberRepository.save(Member.builder()
+        .name("Amy")
+        .email(email)
+        .company(company)
+        .role(Role.VIEWER)
+        .build());
+    dinerSubscriptionRepository.save(DinerSubscription.builder()
+        .diner(diner)
+        .member(member)
+        .build());
+    return member;
+  }
+
+  private void chooseCompany(Company company) {
+    ChooseCompanyRequest chooseCompanyRequest = new ChooseCompanyRequest("company123");
+    companyService.chooseCompany(company.getId(), chooseCompanyRequest);
+  }
+
+  private Diner saveDiner(String name) {
+    CreateDinerRequest request = CreateDinerRequest.builder()
+        .name(name)
+        .link("diner.com")
+        .latitude(37.29283882)
+        .longitude(127.39232323)
+        .tags(new LinkedHashSet<>())
+        .build();
+    CreateDinerResponse response = dinerService.createDiner(request);
+    return dinerRepository.findById(response.getId()).orElseThrow();
+  }
+}
@@ -0,0 +1,114 @@
+package com.marceldev.ourcompanylunch.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.marceldev.ourcompanylunch.basic.IntegrationTest;
+import com.marceldev.ourcompanylunch.entity.StorageDeletion;
+import com.marceldev.ourcompanylunch.entity.StorageDeletionDeadLetter;
+import com.marceldev.ourcompanylunch.repository.storage.StorageDeletionDeadLetterRepository;
+import com.marceldev.ourcompanylunch.repository.storage.StorageDeletionRepository;
+import com.marceldev.ourcompanylunch.service.StorageDeletionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class StorageDeletionRelayTest extends IntegrationTest {
+
+  @Autowired
+  private StorageDeletionRepository storageDeletionRepository;
+
+  @Autowired
+  private StorageDeletionDeadLetterRepository deadLetterRepository;
+
+  @Autowired
+  private StorageDeletionService storageDeletionService;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private StorageDeletionRelay createRelay(int batchSize, int maxAttempts, Duration retryBackoff) {
+    return new StorageDeletionRelay(storageDeletionRepository, deadLetterRepository, s3Manager,
+        transactionTemplate, meterRegistry, batchSize, maxAttempts, retryBackoff,
+        Duration.ofHours(6));
+  }
+
+  @Test
+  @DisplayName("Relay storage deletion - Success(Deleted in batches, queue emptied)")
+  void relay_batches() {
+    // given
+    StorageDeletionRelay relay = createRelay(2, 3, Duration.ofMinutes(1));
+    storageDeletionService.enqueue(List.of("diner/1/images/a.jpg", "diner/1/images/b.jpg",
+        "diner/1/images/c.jpg"));
+
+    // when
+    relay.relay();
+
+    // then
+    verify(s3Manager, times(2)).removeFiles(any());
+    entityManager.clear();
+    assertThat(storageDeletionRepository.findAll()).isEmpty();
+    assertThat(meterRegistry.get("storage.deletion.keys").tag("result", "deleted")
+        .counter().count()).isEqualTo(3);
+    assertThat(meterRegistry.get("storage.deletion.pending").gauge().value()).isZero();
+  }
+
+  @Test
+  @DisplayName("Relay storage deletion - Success(Failed key retried later, others deleted)")
+  void relay_failed_key_retried() {
+    // given
+    StorageDeletionRelay relay = createRelay(100, 3, Duration.ofMinutes(1));
+    storageDeletionService.enqueue(List.of("diner/1/images/a.jpg", "diner/1/images/b.jpg"));
+    doReturn(Map.of("diner/1/images/a.jpg", "AccessDenied: Access Denied"))
+        .when(s3Manager).removeFiles(any());
+
+    // when
+    relay.relay();
+
+    // then
+    entityManager.clear();
+    List<StorageDeletion> deletions = storageDeletionRepository.findAll();
+    assertThat(deletions)
+        .extracting(StorageDeletion::getS3Key, StorageDeletion::getAttempts)
+        .containsExactly(tuple("diner/1/images/a.jpg", 1));
+    assertThat(deletions.get(0).getNextAttemptAt())
+        .isAfter(LocalDateTime.now().plusSeconds(30));
+    assertThat(meterRegistry.get("storage.deletion.pending").gauge().value()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Relay storage deletion - Success(Moved to dead letter after max attempts)")
+  void relay_dead_letter() {
+    // given
+    StorageDeletionRelay relay = createRelay(100, 2, Duration.ZERO);
+    storageDeletionService.enqueue(List.of("diner/1/images/a.jpg"));
+    doThrow(new RuntimeException("Service Unavailable"))
+        .when(s3Manager).removeFiles(any());
+
+    // when
+    relay.relay();
+    relay.relay();
+
+    // then
+    entityManager.clear();
+    assertThat(storageDeletionRepository.findAll()).isEmpty();
+    assertThat(deadLetterRepository.findAll())
+        .extracting(StorageDeletionDeadLetter::getS3Key, StorageDeletionDeadLetter::getAttempts,
+            StorageDeletionDeadLetter::getLastError)
+        .containsExactly(tuple("diner/1/images/a.jpg", 2, "Service Unavailable"));
+    assertThat(meterRegistry.get("storage.deletion.failed").gauge().value()).isEqualTo(1);
+  }
+}
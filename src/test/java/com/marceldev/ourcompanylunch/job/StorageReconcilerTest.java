@@ -0,0 +1,241 @@
+package com.marceldev.ourcompanylunch.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+
+import com.marceldev.ourcompanylunch.basic.IntegrationTest;
+import com.marceldev.ourcompanylunch.component.S3Manager.StoredFile;
+import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
+import com.marceldev.ourcompanylunch.entity.Company;
+import com.marceldev.ourcompanylunch.entity.Diner;
+import com.marceldev.ourcompanylunch.entity.DinerImage;
+import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.entity.StorageDeletion;
+import com.marceldev.ourcompanylunch.repository.storage.StorageDeletionRepository;
+import com.marceldev.ourcompanylunch.service.StorageDeletionService;
+import com.marceldev.ourcompanylunch.type.Role;
+import com.marceldev.ourcompanylunch.util.DinerImageKeyUtil;
+import com.marceldev.ourcompanylunch.util.LocationUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class StorageReconcilerTest extends IntegrationTest {
+
+  @Autowired
+  private StorageDeletionService storageDeletionService;
+
+  @Autowired
+  private StorageDeletionRepository storageDeletionRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final Instant old = Instant.now().minus(Duration.ofDays(2));
+
+  private String imageKey;
+
+  private String missingImageKey;
+
+  private DinerImage missingImage;
+
+  private List<StoredFile> files;
+
+  /**
+   * An image with its file and one of its two variants, an image without its file, and files
+   * without images. Of another diner too, which has no images.
+   */
+  @BeforeEach
+  void setUp() {
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    imageKey = "diner/" + diner.getId() + "/images/a.jpg";
+    missingImageKey = "diner/" + diner.getId() + "/images/b.jpg";
+    saveImage(diner, imageKey, List.of(150, 300));
+    missingImage = saveImage(diner, missingImageKey, null);
+
+    files = Stream.of(
+            new StoredFile(imageKey, old),
+            new StoredFile(DinerImageKeyUtil.variantKey(imageKey, 150), old),
+            new StoredFile("diner/" + diner.getId() + "/images/orphan.jpg", old),
+            new StoredFile("diner/" + diner.getId() + "/images/uploading.jpg", Instant.now()),
+            new StoredFile("diner/" + (diner.getId() + 1) + "/images/removed.jpg", old))
+        .sorted(Comparator.comparing(StoredFile::key))
+        .toList();
+    doReturn(files.stream()).when(s3Manager).listFiles("diner/");
+  }
+
+  private StorageReconciler createReconciler(boolean dryRun, int chunkSize) {
+    return createReconciler(dryRun, chunkSize, 1);
+  }
+
+  private StorageReconciler createReconciler(boolean dryRun, int chunkSize,
+      double maxOrphanImageRatio) {
+    return new StorageReconciler(dinerImageRepository, storageDeletionService, s3Manager,
+        transactionTemplate, meterRegistry, chunkSize, dryRun, Duration.ofDays(1),
+        maxOrphanImageRatio);
+  }
+
+  @Test
+  @DisplayName("Reconcile storage - Success(Dry run only reports the orphans)")
+  void reconcile_dry_run() {
+    // given
+    StorageReconciler reconciler = createReconciler(true, 1);
+
+    // when
+    reconciler.reconcile();
+
+    // then
+    entityManager.clear();
+    assertThat(storageDeletionRepository.findAll()).isEmpty();
+    assertThat(dinerImageRepository.findById(missingImage.getId())).isPresent();
+    assertThat(getOrphanCount("storage", "reported")).isEqualTo(2);
+    assertThat(getOrphanCount("database", "reported")).isEqualTo(1);
+    assertThat(getOrphanCount("variant", "reported")).isEqualTo(1);
+    assertThat(meterRegistry.get("storage.reconciler.scanned").tag("side", "storage")
+        .gauge().value()).isEqualTo(5);
+    assertThat(meterRegistry.get("storage.reconciler.scanned").tag("side", "database")
+        .gauge().value()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("Reconcile storage - Success(Orphans deleted on both sides, new file kept)")
+  void reconcile_delete() {
+    // given
+    StorageReconciler reconciler = createReconciler(false, 1);
+
+    // when
+    reconciler.reconcile();
+
+    // then
+    entityManager.clear();
+    assertThat(storageDeletionRepository.findAll())
+        .extracting(StorageDeletion::getS3Key)
+        .containsExactlyInAnyOrder(files.stream()
+            .map(StoredFile::key)
+            .filter(key -> key.endsWith("orphan.jpg") || key.endsWith("removed.jpg"))
+            .toArray(String[]::new));
+    assertThat(dinerImageRepository.findById(missingImage.getId())).isEmpty();
+    assertThat(dinerImageRepository.findAll())
+        .extracting(DinerImage::getS3Key)
+        .containsExactly(imageKey);
+    assertThat(getOrphanCount("storage", "deleted")).isEqualTo(2);
+    assertThat(getOrphanCount("database", "deleted")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Reconcile storage - Fail(Files not in key order, nothing deleted)")
+  void reconcile_fail_not_in_order() {
+    // given
+    StorageReconciler reconciler = createReconciler(false, 1000);
+    doReturn(files.reversed().stream()).when(s3Manager).listFiles("diner/");
+
+    // when // then
+    assertThatThrownBy(reconciler::reconcile)
+        .isInstanceOf(IllegalStateException.class);
+    entityManager.clear();
+    assertThat(storageDeletionRepository.findAll()).isEmpty();
+    assertThat(dinerImageRepository.findById(missingImage.getId())).isPresent();
+  }
+
+  @Test
+  @DisplayName("Reconcile storage - Fail(No files listed, no image deleted)")
+  void reconcile_fail_no_files() {
+    // given
+    StorageReconciler reconciler = createReconciler(false, 1);
+    doReturn(Stream.empty()).when(s3Manager).listFiles("diner/");
+
+    // when // then
+    assertThatThrownBy(reconciler::reconcile)
+        .isInstanceOf(IllegalStateException.class);
+    entityManager.clear();
+    assertThat(dinerImageRepository.findAll()).hasSize(2);
+  }
+
+  @Test
+  @DisplayName("Reconcile storage - Fail(Images without file over the max ratio, none deleted)")
+  void reconcile_fail_max_orphan_image_ratio() {
+    // given
+    StorageReconciler reconciler = createReconciler(false, 1, 0.1);
+
+    // when // then
+    assertThatThrownBy(reconciler::reconcile)
+        .isInstanceOf(IllegalStateException.class);
+    entityManager.clear();
+    assertThat(dinerImageRepository.findById(missingImage.getId())).isPresent();
+  }
+
+  private double getOrphanCount(String side, String action) {
+    return meterRegistry.get("storage.reconciler.orphans")
+        .tag("side", side)
+        .tag("action", action)
+        .counter().count();
+  }
+
+  // --- Save some entity ---
+
+  private DinerImage saveImage(Diner diner, String key, List<Integer> variantWidths) {
+    return dinerImageRepository.save(DinerImage.builder()
+        .s3Key(key)
+        .orders(100)
+        .thumbnail(false)
+        .variantWidths(variantWidths)
+        .diner(diner)
+        .build());
+  }
+
+  private Company saveCompany() {
+    Company company = Company.builder()
+        .name("HelloCompany")
+        .address("321, Teheran-ro Gangnam-gu Seoul")
+        .enterKey("company123")
+        .enterKeyEnabled(false)
+        .location(LocationUtil.createPoint(37.123456, 127.123456))
+        .build();
+    return companyRepository.save(company);
+  }
+
+  private Member saveMember() {
+    Member member = Member.builder()
+        .name("Jack")
+        .email("jack@example.com")
+        .company(null)
+        .role(Role.VIEWER)
+        .build();
+    return memberRepository.save(member);
+  }
+
+  private void chooseCompany(Company company) {
+    ChooseCompanyRequest chooseCompanyRequest = new ChooseCompanyRequest("company123");
+    companyService.chooseCompany(company.getId(), chooseCompanyRequest);
+  }
+
+  private Diner saveDiner(String name) {
+    CreateDinerRequest request = CreateDinerRequest.builder()
+        .name(name)
+        .link("diner.com")
+        .latitude(37.29283882)
+        .longitude(127.39232323)
+        .tags(new LinkedHashSet<>())
+        .build();
+    CreateDinerResponse response = dinerService.createDiner(request);
+    return dinerRepository.findById(response.getId()).orElseThrow();
+  }
+}
@@ -0,0 +1,129 @@
+package com.marceldev.ourcompanylunch.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.authenticated;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.marceldev.ourcompanylunch.basic.IntegrationTest;
+import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
+import com.marceldev.ourcompanylunch.entity.Company;
+import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.type.Role;
+import com.marceldev.ourcompanylunch.util.LocationUtil;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+/**
+ * Requests go through the security filters, so the principal is resolved by MemberPrincipalFilter,
+ * not by the email fallback of MemberPrincipalProvider as in the service tests.
+ */
+@AutoConfigureMockMvc
+class MemberPrincipalFilterTest extends IntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  private long dinerId;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    dinerId = saveDiner("HotTaco").getId();
+    entityManager.flush();
+    entityManager.clear();
+
+    memberCache.invalidateAll();
+    statistics = entityManager.getEntityManagerFactory()
+        .unwrap(SessionFactory.class)
+        .getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  @DisplayName("Resolve principal - Success(Diner list, one principal lookup)")
+  void resolve_principal_diner_list() throws Exception {
+    // when // then
+    assertOnePrincipalLookup(get("/diners")
+        .param("page", "0")
+        .param("size", "10")
+        .param("sortBy", "DINER_NAME")
+        .param("sortDirection", "ASC"));
+  }
+
+  @Test
+  @DisplayName("Resolve principal - Success(Diner detail, one principal lookup)")
+  void resolve_principal_diner_detail() throws Exception {
+    // when // then
+    assertOnePrincipalLookup(get("/diners/{id}", dinerId));
+  }
+
+  private void assertOnePrincipalLookup(RequestBuilder request) throws Exception {
+    mockMvc.perform(request)
+        .andExpect(status().isOk())
+        .andExpect(authenticated().withAuthentication(auth ->
+            assertThat(auth.getPrincipal()).isInstanceOf(MemberPrincipal.class)));
+    assertThat(getPrincipalLookups()).isEqualTo(1);
+  }
+
+  private long getPrincipalLookups() {
+    return Arrays.stream(statistics.getQueries())
+        .filter(query -> query.contains(MemberPrincipal.class.getName()))
+        .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionCount())
+        .sum();
+  }
+
+  // --- Save some entity ---
+
+  private Company saveCompany() {
+    Company company = Company.builder()
+        .name("HelloCompany")
+        .address("321, Teheran-ro Gangnam-gu Seoul")
+        .enterKey("company123")
+        .enterKeyEnabled(false)
+        .location(LocationUtil.createPoint(37.123456, 127.123456))
+        .build();
+    return companyRepository.save(company);
+  }
+
+  private Member saveMember() {
+    Member member = Member.builder()
+        .name("Jack")
+        .email("jack@example.com")
+        .company(null)
+        .role(Role.VIEWER)
+        .build();
+    return memberRepository.save(member);
+  }
+
+  private void chooseCompany(Company company) {
+    ChooseCompanyRequest chooseCompanyRequest = new ChooseCompanyRequest("company123");
+    companyService.chooseCompany(company.getId(), chooseCompanyRequest);
+  }
+
+  private CreateDinerResponse saveDiner(String name) {
+    CreateDinerRequest request = CreateDinerRequest.builder()
+        .name(name)
+        .link("diner.com")
+        .latitude(37.29283882)
+        .longitude(127.39232323)
+        .tags(new LinkedHashSet<>())
+        .build();
+    return dinerService.createDiner(request);
+  }
+}
@@ -0,0 +1,131 @@
+package com.marceldev.ourcompanylunch.serializer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marceldev.ourcompanylunch.dto.comment.MessageCommentWriteV2;
+import java.util.Arrays;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MessageCommentWriteV2CodecTest {
+
+  @Test
+  @DisplayName("Encode and decode - Success")
+  public void encode_decode_success() {
+    //given
+    MessageCommentWriteV2 message = createMessage(new long[]{3, 150, 151, 300_000_000_000L});
+
+    //when
+    MessageCommentWriteV2 decoded = MessageCommentWriteV2Codec.decode(
+        MessageCommentWriteV2Codec.encode(message));
+
+    //then
+    assertEquals(message, decoded);
+  }
+
+  @Test
+  @DisplayName("Encode and decode - Success(Null name, no receivers)")
+  public void encode_decode_null_and_empty() {
+    //given
+    MessageCommentWriteV2 message = createMessage(new long[0]);
+    message.setSenderName(null);
+
+    //when
+    MessageCommentWriteV2 decoded = MessageCommentWriteV2Codec.decode(
+        MessageCommentWriteV2Codec.encode(message));
+
+    //then
+    assertNull(decoded.getSenderName());
+    assertArrayEquals(new long[0], decoded.getReceiverIds());
+  }
+
+  @Test
+  @DisplayName("Encode - Smaller than JSON")
+  public void encode_smaller_than_json() throws Exception {
+    //given
+    long[] receiverIds = new long[100];
+    for (int i = 0; i < receiverIds.length; i++) {
+      receiverIds[i] = 10_000 + i * 7;
+    }
+    MessageCommentWriteV2 message = createMessage(receiverIds);
+
+    //when
+    byte[] binary = MessageCommentWriteV2Codec.encode(message);
+    byte[] json = new ObjectMapper().writeValueAsBytes(message);
+
+    //then
+    assertTrue(binary.length * 3 < json.length);
+  }
+
+  @Test
+  @DisplayName("Encode - Fail(Receiver ids not sorted)")
+  public void encode_fail_not_sorted() {
+    //given
+    MessageCommentWriteV2 message = createMessage(new long[]{5, 3});
+
+    //when
+    //then
+    assertThrows(SerializationException.class, () -> MessageCommentWriteV2Codec.encode(message));
+  }
+
+  @Test
+  @DisplayName("Decode - Fail(Unknown format version, truncated)")
+  public void decode_fail() {
+    //given
+    byte[] encoded = MessageCommentWriteV2Codec.encode(createMessage(new long[]{1, 2}));
+    byte[] unknownVersion = encoded.clone();
+    unknownVersion[0] = 9;
+    byte[] truncated = Arrays.copyOf(encoded, encoded.length - 2);
+
+    //when
+    //then
+    assertThrows(SerializationException.class,
+        () -> MessageCommentWriteV2Codec.decode(unknownVersion));
+    assertThrows(SerializationException.class, () -> MessageCommentWriteV2Codec.decode(truncated));
+  }
+
+  @Test
+  @DisplayName("Decode - Fail(Receiver count over the remaining bytes, negative)")
+  public void decode_fail_receiver_count() {
+    //given
+    // No receivers, so the count is the last byte.
+    byte[] encoded = MessageCommentWriteV2Codec.encode(createMessage(new long[0]));
+    byte[] overRemaining = withLastByteReplaced(encoded,
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x07);
+    byte[] negative = withLastByteReplaced(encoded,
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x01);
+
+    //when
+    //then
+    assertThrows(SerializationException.class,
+        () -> MessageCommentWriteV2Codec.decode(overRemaining));
+    assertThrows(SerializationException.class, () -> MessageCommentWriteV2Codec.decode(negative));
+  }
+
+  private byte[] withLastByteReplaced(byte[] encoded, byte... bytes) {
+    byte[] replaced = Arrays.copyOf(encoded, encoded.length - 1 + bytes.length);
+    System.arraycopy(bytes, 0, replaced, encoded.length - 1, bytes.length);
+    return replaced;
+  }
+
+  private MessageCommentWriteV2 createMessage(long[] receiverIds) {
+    return MessageCommentWriteV2.builder()
+        .commentId(123_456L)
+        .senderId(42L)
+        .dinerId(7L)
+        .senderName("Jack")
+        .dinerName("Caf\u00e9 HotTaco")
+        .content("It's delicious \uD83C\uDF2E")
+        .receiverIds(receiverIds)
+        .chunkIndex(0)
+        .chunkCount(1)
+        .build();
+  }
+}
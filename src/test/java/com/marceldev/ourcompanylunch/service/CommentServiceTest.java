@@ -11,6 +11,7 @@ import com.marceldev.ourcompanylunch.dto.comment.CreateCommentRequest;
 import com.marceldev.ourcompanylunch.dto.comment.CreateCommentResponse;
 import com.marceldev.ourcompanylunch.dto.comment.GetCommentListRequest;
 import com.marceldev.ourcompanylunch.dto.comment.UpdateCommentRequest;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
@@ -18,19 +19,29 @@ import com.marceldev.ourcompanylunch.entity.Comment;
 import com.marceldev.ourcompanylunch.entity.Company;
 import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.event.CommentCreatedEvent;
 import com.marceldev.ourcompanylunch.exception.comment.CommentNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
+import com.marceldev.ourcompanylunch.type.CommentSort;
 import com.marceldev.ourcompanylunch.type.Role;
 import com.marceldev.ourcompanylunch.type.ShareStatus;
+import com.marceldev.ourcompanylunch.type.SortDirection;
 import com.marceldev.ourcompanylunch.util.LocationUtil;
 import java.util.LinkedHashSet;
 import java.util.Optional;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 
+@RecordApplicationEvents
 class CommentServiceTest extends IntegrationTest {
 
+  @Autowired
+  private ApplicationEvents applicationEvents;
+
   @Test
   @DisplayName("Create comment - Success")
   void create_comment() {
@@ -57,6 +68,44 @@ class CommentServiceTest extends IntegrationTest {
         );
   }
 
+  @Test
+  @DisplayName("Create comment - Success(Comment created event published)")
+  void create_comment_publish_event() {
+    // given
+    Company company = saveCompany();
+    Member member = saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    // when
+    CreateCommentResponse response = commentService.createComment(diner.getId(),
+        createCreateCommentRequest("It's delicious"));
+
+    // then
+    assertThat(applicationEvents.stream(CommentCreatedEvent.class))
+        .containsExactly(new CommentCreatedEvent(response.getId(), diner.getId(),
+            member.getId(), "Jack", "It's delicious"));
+  }
+
+  @Test
+  @DisplayName("Create comment - Success(Diner comment count increased)")
+  void create_comment_increase_comment_count() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    // when
+    commentService.createComment(diner.getId(), createCreateCommentRequest("It's delicious"));
+    commentService.createComment(diner.getId(), createCreateCommentRequest("Very kind"));
+
+    // then
+    entityManager.clear(); // Comment count is updated in DB directly.
+    Diner savedDiner = dinerRepository.findById(diner.getId()).orElseThrow();
+    assertThat(savedDiner.getCommentCount()).isEqualTo(2);
+  }
+
   @Test
   @DisplayName("Create comment - Fail(Diner not found)")
   void create_comment_fail_diner_not_found() {
@@ -103,6 +152,82 @@ class CommentServiceTest extends IntegrationTest {
         );
   }
 
+  @Test
+  @DisplayName("Get comment list - Success(Keyword search by relevance, follows updated content)")
+  void get_comment_list_by_relevance() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    commentService.createComment(diner.getId(), createCreateCommentRequest("spicy noodle"));
+    commentService.createComment(diner.getId(),
+        createCreateCommentRequest("spicy spicy spicy soup"));
+    CreateCommentResponse updated = commentService.createComment(diner.getId(),
+        createCreateCommentRequest("sweet cake"));
+    commentService.updateComment(updated.getId(),
+        UpdateCommentRequest.create("a little spicy", ShareStatus.COMPANY));
+
+    GetCommentListRequest request = GetCommentListRequest.builder()
+        .page(0)
+        .size(10)
+        .keyword("spicy")
+        .sortBy(CommentSort.RELEVANCE)
+        .sortDirection(SortDirection.DESC)
+        .build();
+
+    // when
+    Page<CommentOutputDto> commentsPage = commentService.getCommentList(diner.getId(), request);
+
+    // then
+    assertThat(commentsPage.getContent())
+        .extracting("content")
+        .containsExactly("spicy spicy spicy soup", "a little spicy", "spicy noodle");
+  }
+
+  @Test
+  @DisplayName("Get comment list by cursor - Success(Stable while comments are added)")
+  void get_comment_list_by_cursor() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    commentService.createComment(diner.getId(), createCreateCommentRequest("Comment1"));
+    commentService.createComment(diner.getId(), createCreateCommentRequest("Comment2"));
+    commentService.createComment(diner.getId(), createCreateCommentRequest("Comment3"));
+
+    // when
+    CursorSliceResponse<CommentOutputDto> first = commentService.getCommentListByCursor(
+        diner.getId(), createGetCommentListRequest(""));
+    commentService.createComment(diner.getId(), createCreateCommentRequest("Comment4"));
+    CursorSliceResponse<CommentOutputDto> second = commentService.getCommentListByCursor(
+        diner.getId(), createGetCommentListRequest(first.getNextCursor()));
+    CursorSliceResponse<CommentOutputDto> back = commentService.getCommentListByCursor(
+        diner.getId(), createGetCommentListRequest(second.getPrevCursor()));
+
+    // then
+    assertThat(first.getContent())
+        .extracting("content")
+        .containsExactly("Comment1", "Comment2");
+    assertThat(first.isHasPrevious()).isFalse();
+    assertThat(first.isHasNext()).isTrue();
+
+    assertThat(second.getContent())
+        .extracting("content")
+        .containsExactly("Comment3", "Comment4");
+    assertThat(second.isHasPrevious()).isTrue();
+    assertThat(second.isHasNext()).isFalse();
+
+    assertThat(back.getContent())
+        .extracting("content")
+        .containsExactly("Comment1", "Comment2");
+    assertThat(back.isHasPrevious()).isFalse();
+    assertThat(back.isHasNext()).isTrue();
+  }
+
   @Test
   @DisplayName("Update comment - Success")
   void update_comment() {
@@ -171,6 +296,28 @@ class CommentServiceTest extends IntegrationTest {
     assertThat(comment).isEmpty();
   }
 
+  @Test
+  @DisplayName("Delete comment - Success(Diner comment count decreased)")
+  void delete_comment_decrease_comment_count() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    CreateCommentResponse createCommentResponse = commentService.createComment(diner.getId(),
+        createCreateCommentRequest("It's delicious"));
+    commentService.createComment(diner.getId(), createCreateCommentRequest("Very kind"));
+
+    // when
+    commentService.deleteComment(createCommentResponse.getId());
+
+    // then
+    entityManager.clear(); // Comment count is updated in DB directly.
+    Diner savedDiner = dinerRepository.findById(diner.getId()).orElseThrow();
+    assertThat(savedDiner.getCommentCount()).isEqualTo(1);
+  }
+
   @Test
   @DisplayName("Delete comment - Fail(Comment not found)")
   void delete_comment_no_comment() {
@@ -195,6 +342,15 @@ class CommentServiceTest extends IntegrationTest {
 
   // --- Save some entity ---
 
+  private GetCommentListRequest createGetCommentListRequest(String cursor) {
+    return GetCommentListRequest.builder()
+        .cursor(cursor)
+        .size(2)
+        .sortBy(CommentSort.CREATED_AT)
+        .sortDirection(SortDirection.ASC)
+        .build();
+  }
+
   private Company saveCompany() {
     Company company = Company.builder()
         .name("HelloCompany")
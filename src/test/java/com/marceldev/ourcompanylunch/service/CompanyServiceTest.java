@@ -3,25 +3,34 @@ package com.marceldev.ourcompanylunch.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
 
 import com.marceldev.ourcompanylunch.basic.IntegrationTest;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.company.CompanyOutputDto;
 import com.marceldev.ourcompanylunch.dto.company.CreateCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.company.CreateCompanyResponse;
 import com.marceldev.ourcompanylunch.dto.company.GetCompanyListRequest;
 import com.marceldev.ourcompanylunch.dto.company.UpdateCompanyRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
+import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
 import com.marceldev.ourcompanylunch.entity.Company;
+import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.Member;
 import com.marceldev.ourcompanylunch.entity.Verification;
+import com.marceldev.ourcompanylunch.exception.common.InvalidCursorException;
 import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
 import com.marceldev.ourcompanylunch.exception.company.SameCompanyNameExistException;
 import com.marceldev.ourcompanylunch.exception.member.VerificationCodeNotFoundException;
 import com.marceldev.ourcompanylunch.type.CompanySort;
+import com.marceldev.ourcompanylunch.type.DinerSort;
 import com.marceldev.ourcompanylunch.type.Role;
 import com.marceldev.ourcompanylunch.type.SortDirection;
 import com.marceldev.ourcompanylunch.util.LocationUtil;
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.Page;
@@ -83,6 +92,29 @@ class CompanyServiceTest extends IntegrationTest {
         .isEqualTo(company.getId());
   }
 
+  @Test
+  @DisplayName("Choose company - Success(Cached member sees the chosen company)")
+  void choose_company_invalidates_member_cache() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    GetDinerListRequest request = GetDinerListRequest.builder()
+        .page(0)
+        .size(10)
+        .sortBy(DinerSort.DINER_NAME)
+        .sortDirection(SortDirection.ASC)
+        .build();
+    // Caches the member without company
+    assertThatThrownBy(() -> dinerService.getDinerList(request))
+        .isInstanceOf(CompanyNotFoundException.class);
+
+    // when
+    companyService.chooseCompany(company.getId(), createChooseCompanyRequest());
+
+    // then
+    assertThat(dinerService.getDinerList(request).getContent()).isEmpty();
+  }
+
   @Test
   @DisplayName("Choose company - Fail(Company not found)")
   void choose_company_fail_no_company() {
@@ -119,6 +151,41 @@ class CompanyServiceTest extends IntegrationTest {
         .isEqualTo("111, Teheran-ro Gangnam-gu Seoul");
   }
 
+  @Test
+  @DisplayName("Update company - Success(Distances of the diners recomputed)")
+  void update_company_diner_distance() {
+    // given
+    Company company = saveCompany();
+    Member member = saveMember();
+    chooseCompany(company);
+
+    CreateDinerResponse dinerResponse = dinerService.createDiner(CreateDinerRequest.builder()
+        .name("Gamsung Taco")
+        .link("diner.com")
+        .latitude(37.123456)
+        .longitude(127.123456)
+        .tags(new LinkedHashSet<>())
+        .build());
+
+    Verification verification = saveVerification(member.getEmail(), "123456");
+    UpdateCompanyRequest updateRequest = UpdateCompanyRequest.builder()
+        .address("111, Teheran-ro Gangnam-gu Seoul")
+        .latitude(37.133456)
+        .longitude(127.123456)
+        .enterKeyEnabled(false)
+        .verificationCode(verification.getCode())
+        .build();
+
+    // when
+    companyService.updateCompany(company.getId(), updateRequest);
+
+    // then
+    entityManager.clear();
+    Diner diner = dinerRepository.findById(dinerResponse.getId()).orElseThrow();
+    // 0.01 degree of latitude
+    assertThat(diner.getDistanceInMeter()).isCloseTo(1111.9, within(1.0));
+  }
+
   @Test
   @DisplayName("Update company - Fail(Company not found)")
   void update_company_fail_no_company() {
@@ -231,6 +298,56 @@ class CompanyServiceTest extends IntegrationTest {
     assertThat(companies.getContent()).hasSize(0);
   }
 
+  @Test
+  @DisplayName("Get company list by cursor - Success")
+  void get_company_list_by_cursor() {
+    // given
+    companyService.createCompany(createCreateCompanyRequest("HelloCompany3"));
+    companyService.createCompany(createCreateCompanyRequest("HelloCompany1"));
+    companyService.createCompany(createCreateCompanyRequest("HelloCompany2"));
+
+    GetCompanyListRequest getRequest = GetCompanyListRequest.builder()
+        .cursor("")
+        .size(2)
+        .sortBy(CompanySort.COMPANY_NAME)
+        .sortDirection(SortDirection.DESC)
+        .build();
+
+    // when
+    CursorSliceResponse<CompanyOutputDto> first = companyService.getCompanyListByCursor(
+        getRequest);
+    getRequest.setCursor(first.getNextCursor());
+    CursorSliceResponse<CompanyOutputDto> second = companyService.getCompanyListByCursor(
+        getRequest);
+
+    // then
+    assertThat(first.isHasNext()).isTrue();
+    assertThat(first.getContent())
+        .extracting("name")
+        .containsExactly("HelloCompany3", "HelloCompany2");
+    assertThat(second.isHasNext()).isFalse();
+    assertThat(second.getNextCursor()).isNull();
+    assertThat(second.getContent())
+        .extracting("name")
+        .containsExactly("HelloCompany1");
+  }
+
+  @Test
+  @DisplayName("Get company list by cursor - Fail(Invalid cursor)")
+  void get_company_list_by_cursor_fail_invalid_cursor() {
+    // given
+    GetCompanyListRequest getRequest = GetCompanyListRequest.builder()
+        .cursor("not-a-cursor")
+        .size(2)
+        .sortBy(CompanySort.COMPANY_NAME)
+        .sortDirection(SortDirection.ASC)
+        .build();
+
+    // when // then
+    assertThatThrownBy(() -> companyService.getCompanyListByCursor(getRequest))
+        .isInstanceOf(InvalidCursorException.class);
+  }
+
   // --- Save some entity ---
 
   private Verification saveVerification(String email, String code) {
@@ -2,13 +2,20 @@ package com.marceldev.ourcompanylunch.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import com.marceldev.ourcompanylunch.basic.IntegrationTest;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.diner.AddDinerImageResponse;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerImageUploadUrlRequest;
+import com.marceldev.ourcompanylunch.dto.diner.CreateDinerImageUploadUrlResponse;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
 import com.marceldev.ourcompanylunch.entity.Company;
@@ -16,23 +23,40 @@ import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.DinerImage;
 import com.marceldev.ourcompanylunch.entity.Member;
 import com.marceldev.ourcompanylunch.exception.diner.DinerImageNotFoundException;
+import com.marceldev.ourcompanylunch.exception.diner.DinerImageUploadNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerMaxImageCountExceedException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.ImageDeleteFailException;
+import com.marceldev.ourcompanylunch.exception.diner.ImageNotUploadedException;
 import com.marceldev.ourcompanylunch.exception.diner.ImageReadFailException;
+import com.marceldev.ourcompanylunch.exception.diner.NotImageFileException;
+import com.marceldev.ourcompanylunch.repository.diner.DinerImageUploadRepository;
 import com.marceldev.ourcompanylunch.type.Role;
+import com.marceldev.ourcompanylunch.type.ThumbnailStatus;
+import com.marceldev.ourcompanylunch.util.DinerImageKeyUtil;
 import com.marceldev.ourcompanylunch.util.LocationUtil;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.LinkedHashSet;
 import java.util.Optional;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
 class DinerImageServiceTest extends IntegrationTest {
 
+  @Autowired
+  private DinerThumbnailService dinerThumbnailService;
+
+  @Autowired
+  private DinerImageUploadRepository dinerImageUploadRepository;
+
   @Test
   @DisplayName("Add diner image - Success")
   void test_update_diner_add_image() {
@@ -50,9 +74,52 @@ class DinerImageServiceTest extends IntegrationTest {
     // then
     entityManager.clear(); // To get updated entity from DB(Not persistent context)
     Diner savedDiner = dinerRepository.findById(diner.getId()).orElseThrow();
-    assertThat(savedDiner.getDinerImages()).hasSize(2)
-        .extracting("orders")
-        .containsExactly(100, 200); // TODO: Fix that thumbnail is included in order.
+    assertThat(savedDiner.getDinerImages()).hasSize(1)
+        .extracting("orders", "thumbnail", "thumbnailStatus")
+        .containsExactly(tuple(100, false, ThumbnailStatus.PENDING));
+    assertThat(response.getThumbnailStatus()).isEqualTo(ThumbnailStatus.PENDING);
+  }
+
+  @Test
+  @DisplayName("Make thumbnail - Success(Variants, thumbnail with the order of the original)")
+  void test_make_thumbnail(@TempDir Path tempDir) throws IOException {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    dinerImageService.addDinerImage(diner.getId(), createMockImageFile());
+    AddDinerImageResponse response = dinerImageService.addDinerImage(diner.getId(),
+        createMockImageFile());
+
+    String originalKey = dinerImageRepository.findById(response.getId()).orElseThrow().getS3Key();
+
+    Path spooled = tempDir.resolve("food.jpg");
+    Files.copy(new ClassPathResource("food.jpg").getInputStream(), spooled);
+
+    // when
+    dinerThumbnailService.process(response.getId(), originalKey, spooled, "jpg");
+
+    // then
+    entityManager.clear();
+    Diner savedDiner = dinerRepository.findById(diner.getId()).orElseThrow();
+    assertThat(savedDiner.getDinerImages()).hasSize(3)
+        .extracting("orders", "thumbnail", "thumbnailStatus")
+        .containsExactlyInAnyOrder(
+            tuple(100, false, ThumbnailStatus.PENDING),
+            tuple(200, false, ThumbnailStatus.DONE),
+            tuple(200, true, null)
+        );
+    // food.jpg is 612px wide. 720 and 1280 are made at 612.
+    assertThat(dinerImageRepository.findById(response.getId()).orElseThrow().getVariantWidths())
+        .containsExactly(150, 300, 612);
+    assertThat(savedDiner.getDinerImages())
+        .filteredOn(DinerImage::isThumbnail)
+        .extracting(DinerImage::getS3Key)
+        .containsExactly(DinerImageKeyUtil.variantKey(originalKey, 300));
+    verify(s3Manager, times(3)).uploadFileAsync(
+        startsWith("diner/" + diner.getId() + "/variants/"), any(byte[].class));
+    assertThat(spooled).doesNotExist();
   }
 
   @Test
@@ -169,6 +236,141 @@ class DinerImageServiceTest extends IntegrationTest {
         .isInstanceOf(ImageDeleteFailException.class);
   }
 
+  @Test
+  @DisplayName("Create upload URL - Success(Reserved until it expires)")
+  void test_create_upload_url() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    doReturn("https://bucket.example.com/signed")
+        .when(s3Manager).createUploadUrl(any(), any(), any());
+
+    // when
+    CreateDinerImageUploadUrlResponse response = dinerImageService.createUploadUrl(
+        diner.getId(), createUploadUrlRequest("food.jpg"));
+
+    // then
+    assertThat(response.getUploadUrl()).isEqualTo("https://bucket.example.com/signed");
+    assertThat(response.getContentType()).isEqualTo("image/jpeg");
+    assertThat(response.getKey()).endsWith(".jpg").doesNotContain("/");
+    assertThat(response.getExpirationAt()).isAfter(LocalDateTime.now());
+    assertThat(dinerImageUploadRepository.findByS3Key(
+        DinerImageKeyUtil.imageKey(diner.getId(), response.getKey()).orElseThrow())).isPresent();
+  }
+
+  @Test
+  @DisplayName("Create upload URL - Fail(Not an image file)")
+  void test_create_upload_url_fail_not_image() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    // when // then
+    assertThatThrownBy(() -> dinerImageService.createUploadUrl(diner.getId(),
+        createUploadUrlRequest("menu.pdf")))
+        .isInstanceOf(NotImageFileException.class);
+  }
+
+  @Test
+  @DisplayName("Create upload URL - Fail(Uploads in flight count to max image count)")
+  void test_create_upload_url_fail_max_count() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    for (int i = 1; i <= 5; i++) {
+      dinerImageService.addDinerImage(diner.getId(), createMockImageFile());
+      dinerImageService.createUploadUrl(diner.getId(), createUploadUrlRequest("food.jpg"));
+    }
+
+    // when // then
+    assertThrows(DinerMaxImageCountExceedException.class,
+        () -> dinerImageService.createUploadUrl(diner.getId(), createUploadUrlRequest("food.jpg")));
+    assertThrows(DinerMaxImageCountExceedException.class,
+        () -> dinerImageService.addDinerImage(diner.getId(), createMockImageFile()));
+  }
+
+  @Test
+  @DisplayName("Complete upload - Success")
+  void test_complete_upload() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    dinerImageService.addDinerImage(diner.getId(), createMockImageFile());
+    CreateDinerImageUploadUrlResponse uploadUrl = dinerImageService.createUploadUrl(
+        diner.getId(), createUploadUrlRequest("food.jpg"));
+    doReturn(Optional.of(76150L)).when(s3Manager).getFileSize(any());
+
+    // when
+    AddDinerImageResponse response = dinerImageService.completeUpload(diner.getId(),
+        uploadUrl.getKey());
+
+    // then
+    entityManager.clear();
+    DinerImage dinerImage = dinerImageRepository.findById(response.getId()).orElseThrow();
+    assertThat(dinerImage.getS3Key()).endsWith("/" + uploadUrl.getKey());
+    assertThat(dinerImage.getOrders()).isEqualTo(200);
+    assertThat(response.getThumbnailStatus()).isEqualTo(ThumbnailStatus.PENDING);
+    assertThat(dinerImageUploadRepository.findByS3Key(dinerImage.getS3Key())).isEmpty();
+  }
+
+  @Test
+  @DisplayName("Complete upload - Fail(Image not in storage)")
+  void test_complete_upload_fail_not_uploaded() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    CreateDinerImageUploadUrlResponse uploadUrl = dinerImageService.createUploadUrl(
+        diner.getId(), createUploadUrlRequest("food.jpg"));
+
+    // when // then
+    assertThatThrownBy(() -> dinerImageService.completeUpload(diner.getId(), uploadUrl.getKey()))
+        .isInstanceOf(ImageNotUploadedException.class);
+  }
+
+  @Test
+  @DisplayName("Complete upload - Fail(Completed already, no second image)")
+  void test_complete_upload_fail_completed_already() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    CreateDinerImageUploadUrlResponse uploadUrl = dinerImageService.createUploadUrl(
+        diner.getId(), createUploadUrlRequest("food.jpg"));
+    doReturn(Optional.of(76150L)).when(s3Manager).getFileSize(any());
+    dinerImageService.completeUpload(diner.getId(), uploadUrl.getKey());
+
+    // when // then
+    assertThatThrownBy(() -> dinerImageService.completeUpload(diner.getId(), uploadUrl.getKey()))
+        .isInstanceOf(DinerImageUploadNotFoundException.class);
+    assertThat(dinerImageRepository.countByDinerAndThumbnail(diner, false)).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Complete upload - Fail(No upload of the key)")
+  void test_complete_upload_fail_no_upload() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+
+    // when // then
+    assertThatThrownBy(() -> dinerImageService.completeUpload(diner.getId(), "unknown.jpg"))
+        .isInstanceOf(DinerImageUploadNotFoundException.class);
+  }
+
   // --- Create fixture ---
 
   private MultipartFile createMockImageFile() {
@@ -186,6 +388,12 @@ class DinerImageServiceTest extends IntegrationTest {
     }
   }
 
+  private CreateDinerImageUploadUrlRequest createUploadUrlRequest(String filename) {
+    return CreateDinerImageUploadUrlRequest.builder()
+        .filename(filename)
+        .build();
+  }
+
   // --- Save some entity ---
 
   private Company saveCompany() {
@@ -3,48 +3,51 @@ package com.marceldev.ourcompanylunch.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import com.marceldev.ourcompanylunch.basic.IntegrationTest;
+import com.marceldev.ourcompanylunch.dto.comment.CreateCommentRequest;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
 import com.marceldev.ourcompanylunch.dto.diner.DinerDetailOutputDto;
 import com.marceldev.ourcompanylunch.dto.diner.DinerOutputDto;
 import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
+import com.marceldev.ourcompanylunch.dto.diner.GetNearbyDinerListRequest;
 import com.marceldev.ourcompanylunch.dto.diner.UpdateDinerRequest;
 import com.marceldev.ourcompanylunch.entity.Company;
 import com.marceldev.ourcompanylunch.entity.Diner;
+import com.marceldev.ourcompanylunch.entity.DinerImage;
 import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.entity.StorageDeletion;
 import com.marceldev.ourcompanylunch.exception.company.CompanyNotFoundException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerNotFoundException;
+import com.marceldev.ourcompanylunch.repository.storage.StorageDeletionRepository;
 import com.marceldev.ourcompanylunch.type.DinerSort;
 import com.marceldev.ourcompanylunch.type.Role;
+import com.marceldev.ourcompanylunch.type.ShareStatus;
 import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.util.DinerImageKeyUtil;
 import com.marceldev.ourcompanylunch.util.LocationUtil;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
-import org.junit.jupiter.api.BeforeEach;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 
 class DinerServiceTest extends IntegrationTest {
 
-  @BeforeEach
-  public void setUp() {
-    setUpH2Procedure();
-  }
-
-  private void setUpH2Procedure() {
-    // Test db(H2) doesn't have ST_Distance_sphere procedure. So create dummy procedure.
-    entityManager.createNativeQuery(
-        "CREATE ALIAS IF NOT EXISTS ST_Distance_Sphere FOR \"com.marceldev.ourcompanylunch.basic.H2Functions.stDistanceSphere\""
-    ).executeUpdate();
-  }
+  @Autowired
+  private StorageDeletionRepository storageDeletionRepository;
 
   @Test
   @DisplayName("Create diner - Success")
@@ -72,6 +75,25 @@ class DinerServiceTest extends IntegrationTest {
         );
   }
 
+  @Test
+  @DisplayName("Create diner - Success(Distance to the company stored)")
+  void test_create_diner_distance() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+
+    CreateDinerRequest request = createCreateDinerRequest("Gamsung Taco");
+
+    // when
+    CreateDinerResponse response = dinerService.createDiner(request);
+
+    // then
+    entityManager.clear();
+    Diner diner = dinerRepository.findById(response.getId()).orElseThrow();
+    assertThat(diner.getDistanceInMeter()).isCloseTo(30359.48, within(1.0));
+  }
+
   @Test
   @DisplayName("Create diner - Fail(No company chosen)")
   void test_create_diner_no_company_chosen() {
@@ -118,6 +140,172 @@ class DinerServiceTest extends IntegrationTest {
         );
   }
 
+  @Test
+  @DisplayName("Get diner list - Success(Snapshot is rebuilt after a diner is created)")
+  void test_get_diner_list_snapshot_invalidated() {
+    //given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+
+    dinerService.createDiner(createCreateDinerRequest("Gamsung Taco1"));
+
+    GetDinerListRequest request = GetDinerListRequest.builder()
+        .page(0)
+        .size(10)
+        .keyword("taco")
+        .sortBy(DinerSort.DINER_NAME)
+        .sortDirection(SortDirection.DESC)
+        .build();
+    Page<DinerOutputDto> before = dinerService.getDinerList(request);
+
+    //when
+    dinerService.createDiner(createCreateDinerRequest("Gamsung Taco2"));
+    dinerService.createDiner(createCreateDinerRequest("Pizza"));
+    Page<DinerOutputDto> after = dinerService.getDinerList(request);
+
+    //then
+    assertThat(before.getTotalElements()).isEqualTo(1);
+    assertThat(after.getTotalElements()).isEqualTo(2);
+    assertThat(after.getContent())
+        .extracting("name")
+        .containsExactly("Gamsung Taco2", "Gamsung Taco1");
+  }
+
+  @Test
+  @DisplayName("Get diner list - Success(Sort by name ignores case, as DB collation)")
+  void test_get_diner_list_sort_by_name_ignore_case() {
+    //given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+
+    dinerService.createDiner(createCreateDinerRequest("Banana Cafe"));
+    dinerService.createDiner(createCreateDinerRequest("apple Pie"));
+    dinerService.createDiner(createCreateDinerRequest("\u00c9coute"));
+
+    GetDinerListRequest request = GetDinerListRequest.builder()
+        .page(0)
+        .size(10)
+        .sortBy(DinerSort.DINER_NAME)
+        .sortDirection(SortDirection.ASC)
+        .build();
+
+    //when
+    Page<DinerOutputDto> page = dinerService.getDinerList(request);
+
+    //then
+    assertThat(page.getContent())
+        .extracting("name")
+        .containsExactly("apple Pie", "Banana Cafe", "\u00c9coute");
+  }
+
+  @Test
+  @DisplayName("Get diner list - Success(Sort by comments count)")
+  void test_get_diner_list_sort_by_comments_count() {
+    //given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+
+    CreateDinerResponse diner1 = dinerService.createDiner(createCreateDinerRequest("Gamsung Taco1"));
+    CreateDinerResponse diner2 = dinerService.createDiner(createCreateDinerRequest("Gamsung Taco2"));
+    commentService.createComment(diner2.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+
+    GetDinerListRequest request = GetDinerListRequest.builder()
+        .page(0)
+        .size(10)
+        .sortBy(DinerSort.COMMENTS_COUNT)
+        .sortDirection(SortDirection.DESC)
+        .build();
+
+    //when
+    Page<DinerOutputDto> page = dinerService.getDinerList(request);
+
+    //then
+    assertThat(page.getContent()).hasSize(2)
+        .extracting("name", "commentCount")
+        .containsExactly(
+            tuple("Gamsung Taco2", 1L),
+            tuple("Gamsung Taco1", 0L)
+        );
+  }
+
+  @Test
+  @DisplayName("Get diner list by cursor - Success(Sort by comments count, ties broken by id)")
+  void test_get_diner_list_by_cursor() {
+    //given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+
+    CreateDinerResponse diner1 = dinerService.createDiner(createCreateDinerRequest("Gamsung Taco1"));
+    dinerService.createDiner(createCreateDinerRequest("Gamsung Taco2"));
+    dinerService.createDiner(createCreateDinerRequest("Gamsung Taco3"));
+    commentService.createComment(diner1.getId(),
+        CreateCommentRequest.create("It's delicious", ShareStatus.COMPANY));
+
+    GetDinerListRequest request = GetDinerListRequest.builder()
+        .cursor("")
+        .size(2)
+        .sortBy(DinerSort.COMMENTS_COUNT)
+        .sortDirection(SortDirection.DESC)
+        .build();
+
+    //when
+    CursorSliceResponse<DinerOutputDto> first = dinerService.getDinerListByCursor(request);
+    request.setCursor(first.getNextCursor());
+    CursorSliceResponse<DinerOutputDto> second = dinerService.getDinerListByCursor(request);
+
+    //then
+    assertThat(first.isHasNext()).isTrue();
+    assertThat(first.getContent())
+        .extracting("name", "commentCount")
+        .containsExactly(
+            tuple("Gamsung Taco1", 1L),
+            tuple("Gamsung Taco3", 0L)
+        );
+    assertThat(second.isHasNext()).isFalse();
+    assertThat(second.getContent())
+        .extracting("name", "commentCount")
+        .containsExactly(
+            tuple("Gamsung Taco2", 0L)
+        );
+  }
+
+  @Test
+  @DisplayName("Get nearby diner list - Success(Within radius, nearest first)")
+  void test_get_nearby_diner_list() {
+    //given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+
+    // About 111m per 0.001 degree latitude
+    dinerService.createDiner(createCreateDinerRequest("Near", 37.001, 127.0));
+    dinerService.createDiner(createCreateDinerRequest("Nearest", 37.0005, 127.0));
+    dinerService.createDiner(createCreateDinerRequest("Far", 37.01, 127.0));
+
+    GetNearbyDinerListRequest request = GetNearbyDinerListRequest.builder()
+        .lat(37.0)
+        .lng(127.0)
+        .radius(500)
+        .size(10)
+        .build();
+
+    //when
+    List<DinerOutputDto> diners = dinerService.getNearbyDinerList(request);
+
+    //then
+    assertThat(diners)
+        .extracting("name", "distanceInMeter")
+        .containsExactly(
+            tuple("Nearest", 55),
+            tuple("Near", 111)
+        );
+  }
+
   @Test
   @DisplayName("Get diner detail - Success")
   void test_get_diner_detail() {
@@ -138,6 +326,53 @@ class DinerServiceTest extends IntegrationTest {
         .containsExactly("Gamsung Taco", "diner.com", 37.29283882, 127.39232323, new HashSet<>());
   }
 
+  @Test
+  @DisplayName("Get diner detail - Success(Comments are not loaded, images are limited)")
+  void test_get_diner_detail_statements() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+
+    CreateDinerResponse response = dinerService.createDiner(createCreateDinerRequest());
+    Diner diner = dinerRepository.findById(response.getId()).orElseThrow();
+    for (int i = 0; i < 20; i++) {
+      commentService.createComment(diner.getId(),
+          CreateCommentRequest.create("It's delicious " + i, ShareStatus.COMPANY));
+    }
+    for (int i = 0; i < 15; i++) {
+      dinerImageRepository.save(DinerImage.builder()
+          .s3Key("diner/" + diner.getId() + "/images/" + i).orders(i).thumbnail(false)
+          .diner(diner).build());
+      dinerImageRepository.save(DinerImage.builder()
+          .s3Key("diner/" + diner.getId() + "/thumbnails/" + i).orders(i).thumbnail(true)
+          .diner(diner).build());
+    }
+    entityManager.flush();
+    entityManager.clear();
+
+    Statistics statistics = entityManager.getEntityManagerFactory()
+        .unwrap(SessionFactory.class)
+        .getStatistics();
+    statistics.clear();
+
+    // when
+    DinerDetailOutputDto dinerDetail = dinerService.getDinerDetail(diner.getId());
+
+    // then
+    assertThat(dinerDetail.getCommentCount()).isEqualTo(20);
+    // Member, diner detail
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    // Member only. No comment or image entity is loaded.
+    assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+    assertThat(statistics.getCollectionLoadCount()).isZero();
+    assertThat(dinerRepository.getDetail(company.getId(), diner.getId(), 20).orElseThrow())
+        .satisfies(detail -> {
+          assertThat(detail.getImageKeys()).hasSize(10);
+          assertThat(detail.getThumbnailKeys()).hasSize(10);
+        });
+  }
+
   @Test
   @DisplayName("Update diner - Success")
   void test_update_diner() {
@@ -203,8 +438,8 @@ class DinerServiceTest extends IntegrationTest {
   }
 
   @Test
-  @DisplayName("Remove diner - Success(Removing diner success, even if removing in S3 fails.")
-  void test_remove_diner_even_if_s3_fail() {
+  @DisplayName("Remove diner - Success(Image keys queued for deletion, S3 not called)")
+  void test_remove_diner_queues_storage_deletion() {
     // given
     Company company = saveCompany();
     saveMember();
@@ -212,15 +447,27 @@ class DinerServiceTest extends IntegrationTest {
 
     CreateDinerRequest createDinerRequest = createCreateDinerRequest();
     CreateDinerResponse response = dinerService.createDiner(createDinerRequest);
+    Diner savedDiner = dinerRepository.findById(response.getId()).orElseThrow();
+    String imageKey = "diner/" + savedDiner.getId() + "/images/food.jpg";
+    dinerImageRepository.save(DinerImage.builder()
+        .s3Key(imageKey).orders(100).thumbnail(false).variantWidths(List.of(150, 300))
+        .diner(savedDiner).build());
+    entityManager.flush();
+    entityManager.clear();
 
     // when
-    doThrow(new RuntimeException())
-        .when(s3Manager).removeFile(any());
     dinerService.removeDiner(response.getId());
 
     // then
     Optional<Diner> diner = dinerRepository.findById(response.getId());
     assertThat(diner).isEmpty();
+    assertThat(storageDeletionRepository.findAll())
+        .extracting(StorageDeletion::getS3Key)
+        .containsExactlyInAnyOrder(imageKey,
+            DinerImageKeyUtil.variantKey(imageKey, 150),
+            DinerImageKeyUtil.variantKey(imageKey, 300));
+    verify(s3Manager, never()).removeFile(any());
+    verify(s3Manager, never()).removeFiles(any());
   }
 
   // --- Create some request ---
@@ -239,6 +486,17 @@ class DinerServiceTest extends IntegrationTest {
         .build();
   }
 
+  private CreateDinerRequest createCreateDinerRequest(String name, double latitude,
+      double longitude) {
+    return CreateDinerRequest.builder()
+        .name(name)
+        .link("diner.com")
+        .latitude(latitude)
+        .longitude(longitude)
+        .tags(new LinkedHashSet<>())
+        .build();
+  }
+
   private CreateDinerRequest createCreateDinerRequest(LinkedHashSet<String> tags) {
     return CreateDinerRequest.builder()
         .name("Gamsung Taco")
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.marceldev.ourcompanylunch.basic.IntegrationTest;
+import com.marceldev.ourcompanylunch.component.DinerSubscriberIndex;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
@@ -15,13 +16,24 @@ import com.marceldev.ourcompanylunch.exception.diner.AlreadySubscribedException;
 import com.marceldev.ourcompanylunch.exception.diner.DinerSubscriptionNotFoundException;
 import com.marceldev.ourcompanylunch.type.Role;
 import com.marceldev.ourcompanylunch.util.LocationUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 class DinerSubscribeServiceTest extends IntegrationTest {
 
+  @Autowired
+  private DinerSubscriberIndex dinerSubscriberIndex;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
   @Test
   @DisplayName("Subscribe diner - Success")
   void subscribe_diner() {
@@ -73,6 +85,30 @@ class DinerSubscribeServiceTest extends IntegrationTest {
     assertThat(subscription).isEmpty();
   }
 
+  @Test
+  @DisplayName("Subscribe and unsubscribe diner - Success(Subscriber index changed after commit)")
+  void subscribe_diner_index() {
+    // given
+    Company company = saveCompany();
+    Member member = saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner("HotTaco");
+    assertThat(dinerSubscriberIndex.getSubscriberIds(diner.getId())).isEmpty();
+    double misses = getIndexMisses();
+
+    // when
+    runAfterCommit(() -> dinerSubscribeService.subscribeDiner(diner.getId()));
+    long[] subscribed = dinerSubscriberIndex.getSubscriberIds(diner.getId());
+
+    runAfterCommit(() -> dinerSubscribeService.unsubscribeDiner(diner.getId()));
+    long[] unsubscribed = dinerSubscriberIndex.getSubscriberIds(diner.getId());
+
+    // then
+    assertThat(subscribed).containsExactly(member.getId());
+    assertThat(unsubscribed).isEmpty();
+    assertThat(getIndexMisses()).isEqualTo(misses);
+  }
+
   @Test
   @DisplayName("Unsubscribe diner - Fail(No subscription)")
   void unsubscribe_diner_fail_no_subscription() {
@@ -87,6 +123,28 @@ class DinerSubscribeServiceTest extends IntegrationTest {
         .isInstanceOf(DinerSubscriptionNotFoundException.class);
   }
 
+  private double getIndexMisses() {
+    return meterRegistry.get("diner.subscriber.index.requests")
+        .tag("result", "miss")
+        .counter()
+        .count();
+  }
+
+  /**
+   * The test transaction is rolled back, so run what the action registered in the subscriber
+   * index for the commit. The synchronizations of other components are left alone.
+   */
+  private void runAfterCommit(Runnable action) {
+    List<TransactionSynchronization> before =
+        TransactionSynchronizationManager.getSynchronizations();
+    action.run();
+    TransactionSynchronizationManager.getSynchronizations().stream()
+        .filter(synchronization -> !before.contains(synchronization))
+        .filter(synchronization ->
+            synchronization.getClass().getEnclosingClass() == DinerSubscriberIndex.class)
+        .forEach(TransactionSynchronization::afterCommit);
+  }
+
   // --- Save some entity ---
 
   private Company saveCompany() {
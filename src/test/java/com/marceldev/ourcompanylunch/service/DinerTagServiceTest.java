@@ -1,22 +1,30 @@
 package com.marceldev.ourcompanylunch.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import com.marceldev.ourcompanylunch.basic.IntegrationTest;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.diner.AddDinerTagsRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
+import com.marceldev.ourcompanylunch.dto.diner.DinerOutputDto;
+import com.marceldev.ourcompanylunch.dto.diner.DinerTagFacetDto;
+import com.marceldev.ourcompanylunch.dto.diner.GetDinerListRequest;
 import com.marceldev.ourcompanylunch.dto.diner.RemoveDinerTagsRequest;
 import com.marceldev.ourcompanylunch.entity.Company;
 import com.marceldev.ourcompanylunch.entity.Diner;
 import com.marceldev.ourcompanylunch.entity.Member;
+import com.marceldev.ourcompanylunch.type.DinerSort;
 import com.marceldev.ourcompanylunch.type.Role;
+import com.marceldev.ourcompanylunch.type.SortDirection;
+import com.marceldev.ourcompanylunch.type.TagMatch;
 import com.marceldev.ourcompanylunch.util.LocationUtil;
 import java.util.LinkedHashSet;
 import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
 
 class DinerTagServiceTest extends IntegrationTest {
 
@@ -86,6 +94,78 @@ class DinerTagServiceTest extends IntegrationTest {
         .isEqualTo(new LinkedHashSet<>(List.of("tag1")));
   }
 
+  @Test
+  @DisplayName("Get diner list - Success(Filter by tags, ALL and ANY)")
+  void test_get_diner_list_filter_by_tags() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner1 = saveDiner("HotTaco");
+    Diner diner2 = saveDiner("KimchiHouse");
+    saveDiner("Pasta");
+    dinerTagService.addDinerTag(diner1.getId(),
+        AddDinerTagsRequest.create(List.of("Mexican", "Spicy")));
+    dinerTagService.addDinerTag(diner2.getId(),
+        AddDinerTagsRequest.create(List.of("Korean", "Spicy")));
+
+    // when
+    Page<DinerOutputDto> all = dinerService.getDinerList(
+        createGetDinerListRequest(List.of("Korean", "Spicy"), TagMatch.ALL));
+    Page<DinerOutputDto> any = dinerService.getDinerList(
+        createGetDinerListRequest(List.of("Korean", "Mexican"), TagMatch.ANY));
+
+    // then
+    assertThat(all.getContent())
+        .extracting("name")
+        .containsExactly("KimchiHouse");
+    assertThat(any.getContent())
+        .extracting("name")
+        .containsExactly("HotTaco", "KimchiHouse");
+  }
+
+  @Test
+  @DisplayName("Get tag facets - Success(Reflects removed tags)")
+  void test_get_tag_facets() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner1 = saveDiner("HotTaco");
+    Diner diner2 = saveDiner("KimchiHouse");
+    dinerTagService.addDinerTag(diner1.getId(),
+        AddDinerTagsRequest.create(List.of("Mexican", "Spicy")));
+    dinerTagService.addDinerTag(diner2.getId(),
+        AddDinerTagsRequest.create(List.of("Korean", "Spicy")));
+    dinerTagService.getTagFacets();
+
+    // when
+    dinerTagService.removeDinerTag(diner1.getId(),
+        RemoveDinerTagsRequest.create(List.of("Mexican")));
+    List<DinerTagFacetDto> facets = dinerTagService.getTagFacets();
+
+    // then
+    assertThat(facets)
+        .extracting("tag", "count")
+        .containsExactly(
+            tuple("Spicy", 2),
+            tuple("Korean", 1)
+        );
+  }
+
+  // --- Create some request ---
+
+  private GetDinerListRequest createGetDinerListRequest(List<String> tags, TagMatch tagMatch) {
+    return GetDinerListRequest.builder()
+        .page(0)
+        .size(10)
+        .tags(tags)
+        .tagMatch(tagMatch)
+        .sortBy(DinerSort.DINER_NAME)
+        .sortDirection(SortDirection.ASC)
+        .build();
+  }
+
   // --- Save some entity ---
 
   private Company saveCompany() {
@@ -7,6 +7,7 @@ import static org.assertj.core.api.Assertions.tuple;
 import com.marceldev.ourcompanylunch.basic.IntegrationTest;
 import com.marceldev.ourcompanylunch.dto.comment.CreateCommentRequest;
 import com.marceldev.ourcompanylunch.dto.comment.CreateCommentResponse;
+import com.marceldev.ourcompanylunch.dto.common.CursorSliceResponse;
 import com.marceldev.ourcompanylunch.dto.company.ChooseCompanyRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerRequest;
 import com.marceldev.ourcompanylunch.dto.diner.CreateDinerResponse;
@@ -103,6 +104,42 @@ class ReplyServiceTest extends IntegrationTest {
         );
   }
 
+  @Test
+  @DisplayName("Get reply list by cursor - Success(Newest first)")
+  void get_reply_list_by_cursor() {
+    // given
+    Company company = saveCompany();
+    saveMember();
+    chooseCompany(company);
+    Diner diner = saveDiner();
+    Comment comment = saveComment(diner, "It's delicious");
+
+    replyService.createReply(comment.getId(), CreateReplyRequest.create("Reply1"));
+    replyService.createReply(comment.getId(), CreateReplyRequest.create("Reply2"));
+    replyService.createReply(comment.getId(), CreateReplyRequest.create("Reply3"));
+
+    // when
+    CursorSliceResponse<ReplyOutputDto> first = replyService.getReplyListByCursor(
+        comment.getId(), GetReplyListRequest.builder().cursor("").size(2).build());
+    GetReplyListRequest nextRequest = GetReplyListRequest.builder()
+        .cursor(first.getNextCursor())
+        .size(2)
+        .build();
+    CursorSliceResponse<ReplyOutputDto> second = replyService.getReplyListByCursor(
+        comment.getId(), nextRequest);
+
+    // then
+    assertThat(first.getContent())
+        .extracting("content")
+        .containsExactly("Reply3", "Reply2");
+    assertThat(first.isHasNext()).isTrue();
+    assertThat(second.getContent())
+        .extracting("content")
+        .containsExactly("Reply1");
+    assertThat(second.isHasNext()).isFalse();
+    assertThat(second.getNextCursor()).isNull();
+  }
+
   @Test
   @DisplayName("Update reply - Success")
   void update_reply() {
@@ -1,16 +1,28 @@
 package com.marceldev.ourcompanylunch.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.marceldev.ourcompanylunch.exception.diner.ImageReadFailException;
+import com.sun.management.ThreadMXBean;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.mock.web.MockMultipartFile;
 
 class MakeThumbnailUtilTest {
 
@@ -18,63 +30,129 @@ class MakeThumbnailUtilTest {
   @DisplayName("Create thumbnail - Success(jpg)")
   public void make_thumbnail_success_jpg() throws IOException {
     //given
-    ClassPathResource imageFile = new ClassPathResource("food.jpg");
-    MockMultipartFile multipartFile = new MockMultipartFile(
-        "file",
-        imageFile.getFilename(),
-        "image/jpeg", // MIME type is jpeg, not jpg.
-        imageFile.getInputStream()
-    );
+    Path image = new ClassPathResource("food.jpg").getFile().toPath();
 
     //when
-    ByteArrayOutputStream outputStream = MakeThumbnailUtil.resizeFile(
-        multipartFile.getInputStream(), "jpg");
+    ByteArrayOutputStream outputStream = resizeToThumbnail(image, "jpg");
 
     //then
-    assertNotNull(multipartFile);
-    assertEquals(76150, multipartFile.getSize());
-    assertNotNull(outputStream);
+    BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    assertEquals(300, thumbnail.getWidth());
   }
 
   @Test
   @DisplayName("Create thumbnail - Success(png)")
   public void make_thumbnail_success_png() throws IOException {
     //given
-    ClassPathResource imageFile = new ClassPathResource("food-salad.png");
-    MockMultipartFile multipartFile = new MockMultipartFile(
-        "food-salad.png",
-        imageFile.getFilename(),
-        "image/png",
-        imageFile.getInputStream()
-    );
+    Path image = new ClassPathResource("food-salad.png").getFile().toPath();
+
+    //when
+    ByteArrayOutputStream outputStream = resizeToThumbnail(image, "png");
+
+    //then
+    BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    assertEquals(300, thumbnail.getWidth());
+  }
+
+  @Test
+  @DisplayName("Create thumbnail - Keeps alpha(png)")
+  public void make_thumbnail_png_keeps_alpha() throws IOException {
+    //given
+    Path image = new ClassPathResource("food-salad.png").getFile().toPath();
 
     //when
-    ByteArrayOutputStream outputStream = MakeThumbnailUtil.resizeFile(
-        multipartFile.getInputStream(), "png");
+    ByteArrayOutputStream outputStream = resizeToThumbnail(image, "png");
 
     //then
-    assertNotNull(multipartFile);
-    assertEquals(43777, multipartFile.getSize());
-    assertNotNull(outputStream);
+    BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    assertEquals(300, thumbnail.getWidth());
+    assertTrue(thumbnail.getColorModel().hasAlpha());
   }
 
   @Test
   @DisplayName("Create thumbnail - Fail(File format is not image)")
   public void make_thumbnail_fail_no_extension() throws IOException {
     //given
-    ClassPathResource textFile = new ClassPathResource("food.txt");
-    MockMultipartFile multipartFile = new MockMultipartFile(
-        "file",
-        textFile.getFilename(),
-        "image/jpeg",
-        textFile.getInputStream()
-    );
+    Path textFile = new ClassPathResource("food.txt").getFile().toPath();
 
     //when
     //then
     assertThrows(
         ImageReadFailException.class,
-        () -> MakeThumbnailUtil.resizeFile(multipartFile.getInputStream(), "txt")
+        () -> resizeToThumbnail(textFile, "txt")
     );
   }
-}
\ No newline at end of file
+
+  @Test
+  @DisplayName("Create thumbnail - Success(Large image decoded with subsampling)")
+  public void make_thumbnail_large_image_bounded_allocation(@TempDir Path tempDir)
+      throws IOException {
+    //given
+    int width = 4000;
+    int height = 3000;
+    Path largeImage = tempDir.resolve("large.jpg");
+    writeJpeg(largeImage, width, height);
+    // Load the classes of the decoder before measuring.
+    resizeToThumbnail(new ClassPathResource("food.jpg").getFile().toPath(), "jpg");
+    ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    //when
+    // The image is decoded on this thread, so its allocation is measured.
+    long before = threadMXBean.getCurrentThreadAllocatedBytes();
+    ByteArrayOutputStream outputStream = resizeToThumbnail(largeImage, "jpg");
+    long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+
+    //then
+    BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    assertEquals(300, thumbnail.getWidth());
+    assertEquals(225, thumbnail.getHeight());
+    // Everything allocated is at most a quarter of the full bitmap(48MB), so is the peak.
+    long fullBitmap = (long) width * height * 4;
+    assertTrue(allocated < fullBitmap / 4,
+        "Allocated " + allocated + " bytes, full bitmap is " + fullBitmap + " bytes");
+  }
+
+  @Test
+  @DisplayName("Create variants - Success(Wider than the image made at the image width)")
+  public void make_variants_success() throws IOException {
+    //given
+    Path image = new ClassPathResource("food.jpg").getFile().toPath();
+    ForkJoinPool pool = new ForkJoinPool(2);
+
+    //when
+    SortedMap<Integer, ByteArrayOutputStream> variants;
+    try {
+      variants = MakeThumbnailUtil.resizeFile(image, "jpg", List.of(150, 300, 720, 1280), pool);
+    } finally {
+      pool.shutdown();
+    }
+
+    //then
+    // food.jpg is 612x408.
+    assertEquals(List.of(150, 300, 612), List.copyOf(variants.keySet()));
+    for (Map.Entry<Integer, ByteArrayOutputStream> variant : variants.entrySet()) {
+      int width = variant.getKey();
+      BufferedImage resized = ImageIO.read(
+          new ByteArrayInputStream(variant.getValue().toByteArray()));
+      assertEquals(width, resized.getWidth());
+      assertEquals(width * 2 / 3, resized.getHeight());
+    }
+  }
+
+  private ByteArrayOutputStream resizeToThumbnail(Path image, String extension) {
+    SortedMap<Integer, ByteArrayOutputStream> variants = MakeThumbnailUtil.resizeFile(image,
+        extension, List.of(MakeThumbnailUtil.FIXED_WIDTH), ForkJoinPool.commonPool());
+    return variants.get(variants.firstKey());
+  }
+
+  private void writeJpeg(Path path, int width, int height) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    for (int x = 0; x < width; x += 100) {
+      graphics.setColor(new Color(x % 256, (x / 3) % 256, 128));
+      graphics.fillRect(x, 0, 100, height);
+    }
+    graphics.dispose();
+    ImageIO.write(image, "jpg", path.toFile());
+  }
+}
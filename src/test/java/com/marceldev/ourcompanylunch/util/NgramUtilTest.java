@@ -0,0 +1,31 @@
+package com.marceldev.ourcompanylunch.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class NgramUtilTest {
+
+  @Test
+  @DisplayName("Count grams - Success(Lowercased, not across words)")
+  void count_grams() {
+    //when
+    Map<String, Integer> counts = NgramUtil.countGrams("Taco taco A");
+
+    //then
+    assertThat(counts).containsExactly(Map.entry("ta", 2), Map.entry("ac", 2),
+        Map.entry("co", 2));
+  }
+
+  @Test
+  @DisplayName("Count grams - Success(Surrogate pair not split)")
+  void count_grams_surrogate_pair() {
+    //when
+    Map<String, Integer> counts = NgramUtil.countGrams("a\uD83C\uDF2Eb");
+
+    //then
+    assertThat(counts).containsOnlyKeys("a\uD83C\uDF2E", "\uD83C\uDF2Eb");
+  }
+}
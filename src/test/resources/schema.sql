@@ -0,0 +1,3 @@
+-- Test db(H2) doesn't have ST_Distance_Sphere, MBRContains. So create them from Java functions.
+CREATE ALIAS IF NOT EXISTS ST_Distance_Sphere FOR "com.marceldev.ourcompanylunch.basic.H2Functions.stDistanceSphere";
+CREATE ALIAS IF NOT EXISTS MBRContains FOR "com.marceldev.ourcompanylunch.basic.H2Functions.mbrContains";